@@ -0,0 +1,4 @@
+# The SDK reads the configuration generated by pivotal-config.gradle through reflection.
+-keep class io.pivotal.android.auth.PivotalConfig {
+    public static final java.lang.String[] PROPERTIES;
+}
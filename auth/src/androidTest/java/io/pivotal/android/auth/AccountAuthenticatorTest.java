@@ -15,14 +15,18 @@ import android.test.AndroidTestCase;
 import android.util.Base64;
 
 import com.google.api.client.auth.oauth2.RefreshTokenRequest;
-import com.google.api.client.auth.oauth2.TokenResponse;
 import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class AccountAuthenticatorTest extends AndroidTestCase {
 
@@ -30,18 +34,26 @@ public class AccountAuthenticatorTest extends AndroidTestCase {
     private static final String REFRESH_TOKEN = UUID.randomUUID().toString();
     private static final String TOKEN_LABEL = UUID.randomUUID().toString();
 
+    private TokenResponseParser.RequestExecutor mExecutor;
+
     @Override
     protected void setUp() throws Exception {
         super.setUp();
         System.setProperty("dexmaker.dexcache", mContext.getCacheDir().getPath());
+
+        mExecutor = Mockito.mock(TokenResponseParser.RequestExecutor.class);
+        TokenResponseParser.setExecutor(mExecutor);
     }
 
     @Override
     protected void tearDown() throws Exception {
         super.tearDown();
 
-        AccountsProxyHolder.init(null);
-        RemoteAuthenticatorHolder.init(null);
+        TokenResponseParser.setExecutor(null);
+        AuthRuntime.setAccountsProxy(null);
+        AuthRuntime.setRemoteAuthenticator(null);
+        AuthExecutor.initRefreshExecutor(null);
+        RefreshGate.reset();
     }
 
     public void testAddAccount() throws Exception {
@@ -89,7 +101,7 @@ public class AccountAuthenticatorTest extends AndroidTestCase {
         final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
         final AccountAuthenticator accountAuthenticator = Mockito.spy(new AccountAuthenticator(context));
 
-        AccountsProxyHolder.init(proxy);
+        AuthRuntime.setAccountsProxy(proxy);
 
         Mockito.when(proxy.getAccessToken(account)).thenReturn(ACCESS_TOKEN);
         Mockito.doReturn(bundle).when(accountAuthenticator).newAuthTokenBundle(account, ACCESS_TOKEN);
@@ -108,7 +120,7 @@ public class AccountAuthenticatorTest extends AndroidTestCase {
         final AccountAuthenticatorResponse response = Mockito.mock(AccountAuthenticatorResponse.class);
         final AccountAuthenticator accountAuthenticator = Mockito.spy(new AccountAuthenticator(context));
 
-        AccountsProxyHolder.init(proxy);
+        AuthRuntime.setAccountsProxy(proxy);
 
         Mockito.when(proxy.getAccessToken(account)).thenReturn("");
         Mockito.when(proxy.getRefreshToken(account)).thenReturn(REFRESH_TOKEN);
@@ -129,7 +141,7 @@ public class AccountAuthenticatorTest extends AndroidTestCase {
         final AccountAuthenticatorResponse response = Mockito.mock(AccountAuthenticatorResponse.class);
         final AccountAuthenticator accountAuthenticator = Mockito.spy(new AccountAuthenticator(context));
 
-        AccountsProxyHolder.init(proxy);
+        AuthRuntime.setAccountsProxy(proxy);
 
         Mockito.when(proxy.getAccessToken(account)).thenReturn(getExpiredToken());
         Mockito.when(proxy.getRefreshToken(account)).thenReturn(REFRESH_TOKEN);
@@ -150,7 +162,7 @@ public class AccountAuthenticatorTest extends AndroidTestCase {
         final AccountAuthenticatorResponse response = Mockito.mock(AccountAuthenticatorResponse.class);
         final AccountAuthenticator accountAuthenticator = Mockito.spy(new AccountAuthenticator(context));
 
-        AccountsProxyHolder.init(proxy);
+        AuthRuntime.setAccountsProxy(proxy);
 
         Mockito.when(proxy.getAccessToken(account)).thenReturn("");
         Mockito.when(proxy.getRefreshToken(account)).thenReturn("");
@@ -170,13 +182,12 @@ public class AccountAuthenticatorTest extends AndroidTestCase {
         final RemoteAuthenticator authenticator = Mockito.mock(RemoteAuthenticator.class);
         final RefreshTokenRequest request = Mockito.mock(RefreshTokenRequest.class);
         final AccountAuthenticator accountAuthenticator = Mockito.spy(new AccountAuthenticator(context));
-        final TokenResponse response = new TokenResponse();
-        response.setAccessToken(ACCESS_TOKEN);
+        final HttpResponse response = TokenResponseParserTest.newHttpResponse(ACCESS_TOKEN, REFRESH_TOKEN);
 
-        RemoteAuthenticatorHolder.init(authenticator);
+        AuthRuntime.setRemoteAuthenticator(authenticator);
 
         Mockito.when(authenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(request);
-        Mockito.when(request.execute()).thenReturn(response);
+        Mockito.when(mExecutor.execute(request)).thenReturn(response);
         Mockito.doReturn(bundle).when(accountAuthenticator).newAuthTokenBundle(account, ACCESS_TOKEN);
 
         assertEquals(bundle, accountAuthenticator.newAuthTokenBundle(null, account, REFRESH_TOKEN));
@@ -185,6 +196,93 @@ public class AccountAuthenticatorTest extends AndroidTestCase {
         Mockito.verify(accountAuthenticator).newAuthTokenBundle(account, ACCESS_TOKEN);
     }
 
+    public void testNewAuthTokenBundleStoresRotatedRefreshToken() throws Exception {
+        final String rotatedToken = UUID.randomUUID().toString();
+        final Context context = Mockito.mock(Context.class);
+        final Account account = new Account(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+        final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
+        final RemoteAuthenticator authenticator = Mockito.mock(RemoteAuthenticator.class);
+        final RefreshTokenRequest request = Mockito.mock(RefreshTokenRequest.class);
+        final AccountAuthenticator accountAuthenticator = new AccountAuthenticator(context);
+        final HttpResponse response = TokenResponseParserTest.newHttpResponse(ACCESS_TOKEN, rotatedToken);
+
+        AuthRuntime.setAccountsProxy(proxy);
+        AuthRuntime.setRemoteAuthenticator(authenticator);
+
+        Mockito.when(authenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(request);
+        Mockito.when(mExecutor.execute(request)).thenReturn(response);
+        Mockito.when(proxy.getAccount(account.name)).thenReturn(account);
+
+        final Bundle bundle = accountAuthenticator.newAuthTokenBundle(null, account, REFRESH_TOKEN);
+
+        assertEquals(ACCESS_TOKEN, bundle.getString(AccountManager.KEY_AUTHTOKEN));
+        Mockito.verify(proxy).setRefreshToken(account, rotatedToken);
+    }
+
+    public void testNewAuthTokenBundleKeepsUnchangedRefreshToken() throws Exception {
+        final Context context = Mockito.mock(Context.class);
+        final Account account = new Account(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+        final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
+        final RemoteAuthenticator authenticator = Mockito.mock(RemoteAuthenticator.class);
+        final RefreshTokenRequest request = Mockito.mock(RefreshTokenRequest.class);
+        final AccountAuthenticator accountAuthenticator = new AccountAuthenticator(context);
+        final HttpResponse response = TokenResponseParserTest.newHttpResponse(ACCESS_TOKEN, REFRESH_TOKEN);
+
+        AuthRuntime.setAccountsProxy(proxy);
+        AuthRuntime.setRemoteAuthenticator(authenticator);
+
+        Mockito.when(authenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(request);
+        Mockito.when(mExecutor.execute(request)).thenReturn(response);
+
+        accountAuthenticator.newAuthTokenBundle(null, account, REFRESH_TOKEN);
+
+        Mockito.verify(proxy, Mockito.never()).setRefreshToken(Mockito.any(Account.class), Mockito.anyString());
+    }
+
+    public void testNewAuthTokenBundleExchangesRefreshTokenAsynchronously() throws Exception {
+        final Bundle bundle = new Bundle();
+        final Context context = Mockito.mock(Context.class);
+        final Account account = Mockito.mock(Account.class);
+        final AccountAuthenticatorResponse authenticatorResponse = Mockito.mock(AccountAuthenticatorResponse.class);
+        final RemoteAuthenticator authenticator = Mockito.mock(RemoteAuthenticator.class);
+        final RefreshTokenRequest request = Mockito.mock(RefreshTokenRequest.class);
+        final AccountAuthenticator accountAuthenticator = Mockito.spy(new AccountAuthenticator(context));
+        final HttpResponse response = TokenResponseParserTest.newHttpResponse(ACCESS_TOKEN, REFRESH_TOKEN);
+
+        AuthRuntime.setRemoteAuthenticator(authenticator);
+
+        Mockito.doReturn(true).when(accountAuthenticator).isAsync();
+        Mockito.when(authenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(request);
+        Mockito.when(mExecutor.execute(request)).thenReturn(response);
+        Mockito.doReturn(bundle).when(accountAuthenticator).newAuthTokenBundle(account, ACCESS_TOKEN);
+
+        assertNull(accountAuthenticator.newAuthTokenBundle(authenticatorResponse, account, REFRESH_TOKEN));
+
+        Mockito.verify(authenticatorResponse, Mockito.timeout(1000)).onResult(bundle);
+        Mockito.verify(authenticator).newRefreshTokenRequest(REFRESH_TOKEN);
+        Mockito.verify(authenticatorResponse, Mockito.never()).onError(Mockito.anyInt(), Mockito.anyString());
+    }
+
+    public void testNewAuthTokenBundleExchangesRefreshTokenAsynchronouslyAndFails() throws Exception {
+        final Context context = Mockito.mock(Context.class);
+        final Account account = new Account(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+        final AccountAuthenticatorResponse authenticatorResponse = Mockito.mock(AccountAuthenticatorResponse.class);
+        final RemoteAuthenticator authenticator = Mockito.mock(RemoteAuthenticator.class);
+        final RefreshTokenRequest request = Mockito.mock(RefreshTokenRequest.class);
+        final AccountAuthenticator accountAuthenticator = Mockito.spy(new AccountAuthenticator(context));
+
+        AuthRuntime.setRemoteAuthenticator(authenticator);
+
+        Mockito.doReturn(true).when(accountAuthenticator).isAsync();
+        Mockito.when(authenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(request);
+        Mockito.doThrow(new IOException()).when(mExecutor).execute(request);
+
+        assertNull(accountAuthenticator.newAuthTokenBundle(authenticatorResponse, account, REFRESH_TOKEN));
+
+        Mockito.verify(authenticatorResponse, Mockito.timeout(1000)).onError(Mockito.eq(1), Mockito.anyString());
+        Mockito.verify(authenticatorResponse, Mockito.never()).onResult(Mockito.any(Bundle.class));
+    }
+
     public void testNewAuthTokenBundleExchangesRefreshTokenAndFailsWith401() throws Exception {
         final Bundle bundle = Bundle.EMPTY;
         final Context context = Mockito.mock(Context.class);
@@ -194,13 +292,13 @@ public class AccountAuthenticatorTest extends AndroidTestCase {
         final AccountAuthenticatorResponse response = Mockito.mock(AccountAuthenticatorResponse.class);
         final AccountAuthenticator accountAuthenticator = Mockito.spy(new AccountAuthenticator(context));
 
-        RemoteAuthenticatorHolder.init(authenticator);
+        AuthRuntime.setRemoteAuthenticator(authenticator);
 
         final HttpResponseException.Builder builder = new HttpResponseException.Builder(401, null, new HttpHeaders());
         final HttpResponseException exception = new TestResponseException(builder);
 
         Mockito.when(authenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(request);
-        Mockito.doThrow(exception).when(request).execute();
+        Mockito.doThrow(exception).when(mExecutor).execute(request);
         Mockito.doReturn(bundle).when(accountAuthenticator).newAccountBundle(response);
 
         assertEquals(bundle, accountAuthenticator.newAuthTokenBundle(response, account, REFRESH_TOKEN));
@@ -217,13 +315,13 @@ public class AccountAuthenticatorTest extends AndroidTestCase {
         final RefreshTokenRequest request = Mockito.mock(RefreshTokenRequest.class);
         final AccountAuthenticator accountAuthenticator = Mockito.spy(new AccountAuthenticator(context));
 
-        RemoteAuthenticatorHolder.init(authenticator);
+        AuthRuntime.setRemoteAuthenticator(authenticator);
 
         final HttpResponseException.Builder builder = new HttpResponseException.Builder(400, null, new HttpHeaders());
         final HttpResponseException exception = new TestResponseException(builder);
 
         Mockito.when(authenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(request);
-        Mockito.doThrow(exception).when(request).execute();
+        Mockito.doThrow(exception).when(mExecutor).execute(request);
         Mockito.doReturn(bundle).when(accountAuthenticator).newErrorBundle(Mockito.eq(account), Mockito.any(Throwable.class));
 
         assertEquals(bundle, accountAuthenticator.newAuthTokenBundle(null, account, REFRESH_TOKEN));
@@ -240,10 +338,10 @@ public class AccountAuthenticatorTest extends AndroidTestCase {
         final RefreshTokenRequest request = Mockito.mock(RefreshTokenRequest.class);
         final AccountAuthenticator accountAuthenticator = Mockito.spy(new AccountAuthenticator(context));
 
-        RemoteAuthenticatorHolder.init(authenticator);
+        AuthRuntime.setRemoteAuthenticator(authenticator);
 
         Mockito.when(authenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(request);
-        Mockito.doThrow(new IOException()).when(request).execute();
+        Mockito.doThrow(new IOException()).when(mExecutor).execute(request);
         Mockito.doReturn(bundle).when(accountAuthenticator).newErrorBundle(Mockito.eq(account), Mockito.any(Throwable.class));
 
         assertEquals(bundle, accountAuthenticator.newAuthTokenBundle(null, account, REFRESH_TOKEN));
@@ -289,6 +387,87 @@ public class AccountAuthenticatorTest extends AndroidTestCase {
         }
     }
 
+    public void testConcurrentRefreshesForSameAccountShareOneRequest() throws Exception {
+        final Context context = Mockito.mock(Context.class);
+        final Account account = new Account(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+        final RemoteAuthenticator authenticator = Mockito.mock(RemoteAuthenticator.class);
+        final RefreshTokenRequest request = Mockito.mock(RefreshTokenRequest.class);
+        final AccountAuthenticator accountAuthenticator = new AccountAuthenticator(context);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final HttpResponse response = TokenResponseParserTest.newHttpResponse(ACCESS_TOKEN, REFRESH_TOKEN);
+
+        AuthRuntime.setRemoteAuthenticator(authenticator);
+
+        Mockito.when(authenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(request);
+        Mockito.when(mExecutor.execute(request)).thenAnswer(new BlockingAnswer(started, release, response));
+
+        final AtomicReference<Bundle> leaderBundle = new AtomicReference<Bundle>();
+        final AtomicReference<Bundle> followerBundle = new AtomicReference<Bundle>();
+
+        final Thread leader = new RefreshThread(accountAuthenticator, null, account, leaderBundle);
+        leader.start();
+        started.await();
+
+        final Thread follower = new RefreshThread(accountAuthenticator, null, account, followerBundle);
+        follower.start();
+        SingleFlightTest.waitUntilWaiting(follower);
+
+        release.countDown();
+        leader.join();
+        follower.join();
+
+        assertNotSame(leaderBundle.get(), followerBundle.get());
+        assertEquals(ACCESS_TOKEN, leaderBundle.get().getString(AccountManager.KEY_AUTHTOKEN));
+        assertEquals(ACCESS_TOKEN, followerBundle.get().getString(AccountManager.KEY_AUTHTOKEN));
+
+        Mockito.verify(authenticator, Mockito.times(1)).newRefreshTokenRequest(REFRESH_TOKEN);
+    }
+
+    public void testConcurrentRefreshesFailingWith401ReturnOwnLoginIntents() throws Exception {
+        final Context context = Mockito.mock(Context.class);
+        final Account account = new Account(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+        final AccountAuthenticatorResponse leaderResponse = Mockito.mock(AccountAuthenticatorResponse.class);
+        final AccountAuthenticatorResponse followerResponse = Mockito.mock(AccountAuthenticatorResponse.class);
+        final RemoteAuthenticator authenticator = Mockito.mock(RemoteAuthenticator.class);
+        final RefreshTokenRequest request = Mockito.mock(RefreshTokenRequest.class);
+        final AccountAuthenticator accountAuthenticator = Mockito.spy(new AccountAuthenticator(context));
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final HttpResponseException.Builder builder = new HttpResponseException.Builder(401, null, new HttpHeaders());
+        final HttpResponseException exception = new TestResponseException(builder);
+
+        AuthRuntime.setRemoteAuthenticator(authenticator);
+
+        Mockito.doReturn(LoginActivity.class).when(accountAuthenticator).getLoginActivityClass();
+        Mockito.when(authenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(request);
+        Mockito.when(mExecutor.execute(request)).thenAnswer(new BlockingAnswer(started, release, exception));
+
+        final AtomicReference<Bundle> leaderBundle = new AtomicReference<Bundle>();
+        final AtomicReference<Bundle> followerBundle = new AtomicReference<Bundle>();
+
+        final Thread leader = new RefreshThread(accountAuthenticator, leaderResponse, account, leaderBundle);
+        leader.start();
+        started.await();
+
+        final Thread follower = new RefreshThread(accountAuthenticator, followerResponse, account, followerBundle);
+        follower.start();
+        SingleFlightTest.waitUntilWaiting(follower);
+
+        release.countDown();
+        leader.join();
+        follower.join();
+
+        final Intent leaderIntent = leaderBundle.get().getParcelable(AccountManager.KEY_INTENT);
+        final Intent followerIntent = followerBundle.get().getParcelable(AccountManager.KEY_INTENT);
+
+        assertEquals(leaderResponse, leaderIntent.getParcelableExtra(AccountManager.KEY_ACCOUNT_AUTHENTICATOR_RESPONSE));
+        assertEquals(followerResponse, followerIntent.getParcelableExtra(AccountManager.KEY_ACCOUNT_AUTHENTICATOR_RESPONSE));
+
+        Mockito.verify(authenticator, Mockito.times(1)).newRefreshTokenRequest(REFRESH_TOKEN);
+    }
+
 
     // ====================================
 
@@ -302,6 +481,51 @@ public class AccountAuthenticatorTest extends AndroidTestCase {
     private static class LoginActivity extends AccountAuthenticatorActivity {
     }
 
+    /* package */ static final class BlockingAnswer implements Answer<HttpResponse> {
+
+        private final CountDownLatch mStarted;
+        private final CountDownLatch mRelease;
+        private final Object mResult;
+
+        public BlockingAnswer(final CountDownLatch started, final CountDownLatch release, final Object result) {
+            mStarted = started;
+            mRelease = release;
+            mResult = result;
+        }
+
+        @Override
+        public HttpResponse answer(final InvocationOnMock invocation) throws Throwable {
+            mStarted.countDown();
+            mRelease.await();
+
+            if (mResult instanceof Throwable) {
+                throw (Throwable) mResult;
+            } else {
+                return (HttpResponse) mResult;
+            }
+        }
+    }
+
+    private static final class RefreshThread extends Thread {
+
+        private final AccountAuthenticator mAuthenticator;
+        private final AccountAuthenticatorResponse mResponse;
+        private final Account mAccount;
+        private final AtomicReference<Bundle> mBundle;
+
+        public RefreshThread(final AccountAuthenticator authenticator, final AccountAuthenticatorResponse response, final Account account, final AtomicReference<Bundle> bundle) {
+            mAuthenticator = authenticator;
+            mResponse = response;
+            mAccount = account;
+            mBundle = bundle;
+        }
+
+        @Override
+        public void run() {
+            mBundle.set(mAuthenticator.newAuthTokenBundle(mResponse, mAccount, REFRESH_TOKEN));
+        }
+    }
+
     private static class TestResponseException extends HttpResponseException {
 
         public TestResponseException(final Builder builder) {
@@ -9,6 +9,7 @@ import android.test.AndroidTestCase;
 
 import org.mockito.Mockito;
 
+@SuppressWarnings("deprecation")
 public class AccountsChangedListenerTest extends AndroidTestCase {
 
     @Override
@@ -16,90 +17,49 @@ public class AccountsChangedListenerTest extends AndroidTestCase {
         super.setUp();
         System.setProperty("dexmaker.dexcache", mContext.getCacheDir().getPath());
         AccountsChangedListener.sAccountsChangedListener = null;
+        AuthStateBus.reset();
     }
 
     @Override
     protected void tearDown() throws Exception {
         super.tearDown();
 
-        AccountsProxyHolder.init(null);
+        AuthRuntime.setAccountsProxy(null);
+        AuthStateBus.reset();
     }
 
-    public void testLoggedInNotificationWhenLoggedOut() {
+    public void testLoginListenerIsAddedToBus() {
         final Context context = Mockito.mock(Context.class);
-        final Account account = Mockito.mock(Account.class);
-        final Account[] accounts = new Account[] {account};
         final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
         final LoginListener listener = Mockito.mock(LoginListener.class);
         final AccountsChangedListener accountsChangedListener = AccountsChangedListener.getInstance(context);
 
-        Mockito.when(accountsProxy.getAccounts()).thenReturn(accounts);
+        Mockito.when(accountsProxy.getAccounts()).thenReturn(new Account[]{ new Account("hi", "bye") });
 
-        AccountsProxyHolder.init(accountsProxy);
+        AuthRuntime.setAccountsProxy(accountsProxy);
         accountsChangedListener.registerLoginListener(listener);
         accountsChangedListener.setIsLoggedIn(false);
 
-
-        accountsChangedListener.onAccountsUpdated(accounts);
+        AuthStateBus.getInstance(context).update();
 
         Mockito.verify(listener).onLogin(context);
+        Mockito.verify(accountsProxy).clearAccessTokenCache();
     }
 
-    public void testLoggedInNotificationWhenLoggedIn() {
-        final Context context = Mockito.mock(Context.class);
-        final Account account = Mockito.mock(Account.class);
-        final Account[] accounts = new Account[] {account};
-        final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
-        final LoginListener listener = Mockito.mock(LoginListener.class);
-        final AccountsChangedListener accountsChangedListener = AccountsChangedListener.getInstance(context);
-
-        Mockito.when(accountsProxy.getAccounts()).thenReturn(accounts);
-
-        AccountsProxyHolder.init(accountsProxy);
-        accountsChangedListener.registerLoginListener(listener);
-        accountsChangedListener.setIsLoggedIn(true);
-
-        accountsChangedListener.onAccountsUpdated(accounts);
-
-        Mockito.verify(listener, Mockito.never()).onLogin(context);
-    }
-
-    public void testLoggedOutNotificationWhenLoggedOut() {
+    public void testLogoutListenerIsAddedToBus() {
         final Context context = Mockito.mock(Context.class);
-        final Account account = Mockito.mock(Account.class);
-        final Account[] accounts = new Account[] {account};
         final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
         final LogoutListener listener = Mockito.mock(LogoutListener.class);
         final AccountsChangedListener accountsChangedListener = AccountsChangedListener.getInstance(context);
 
-        Mockito.when(accountsProxy.getAccounts()).thenReturn(accounts);
+        Mockito.when(accountsProxy.getAccounts()).thenReturn(new Account[]{});
 
-        AccountsProxyHolder.init(accountsProxy);
-        accountsChangedListener.registerLogoutListener(listener);
-        accountsChangedListener.setIsLoggedIn(false);
-
-        accountsChangedListener.onAccountsUpdated(accounts);
-
-        Mockito.verify(listener, Mockito.never()).onLogout(context);
-
-    }
-
-    public void testLoggedOutNotificationWhenLoggedIn() {
-        final Context context = Mockito.mock(Context.class);
-        final Account[] accounts = new Account[] { null };
-        final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
-        final LogoutListener listener = Mockito.mock(LogoutListener.class);
-        final AccountsChangedListener accountsChangedListener = AccountsChangedListener.getInstance(context);
-
-        Mockito.when(accountsProxy.getAccounts()).thenReturn(accounts);
-
-        AccountsProxyHolder.init(accountsProxy);
+        AuthRuntime.setAccountsProxy(accountsProxy);
         accountsChangedListener.registerLogoutListener(listener);
         accountsChangedListener.setIsLoggedIn(true);
 
-        accountsChangedListener.onAccountsUpdated(accounts);
+        AuthStateBus.getInstance(context).update();
 
         Mockito.verify(listener).onLogout(context);
-
     }
 }
@@ -29,7 +29,8 @@ public class AccountsTest extends AndroidTestCase {
     protected void tearDown() throws Exception {
         super.tearDown();
 
-        AccountsProxyHolder.init(null);
+        AuthRuntime.setAccountsProxy(null);
+        AuthPreferences.reset();
     }
 
     public void testAddAccountInvokesProviderWhenNoExistingAccount() throws Exception {
@@ -41,7 +42,7 @@ public class AccountsTest extends AndroidTestCase {
         Mockito.doNothing().when(provider).addAccount(Mockito.any(Account.class), Mockito.eq(token.getRefreshToken()));
         Mockito.doNothing().when(provider).setAccessToken(Mockito.any(Account.class), Mockito.eq(token.getAccessToken()));
 
-        AccountsProxyHolder.init(provider);
+        AuthRuntime.setAccountsProxy(provider);
         Accounts.addAccount(context, ACCOUNT_NAME, token);
 
         Mockito.verify(provider).addAccount(Mockito.any(Account.class), Mockito.eq(token.getRefreshToken()));
@@ -58,7 +59,7 @@ public class AccountsTest extends AndroidTestCase {
         Mockito.doNothing().when(provider).addAccount(Mockito.any(Account.class), Mockito.eq(token.getRefreshToken()));
         Mockito.doNothing().when(provider).setAccessToken(Mockito.any(Account.class), Mockito.eq(token.getAccessToken()));
 
-        AccountsProxyHolder.init(provider);
+        AuthRuntime.setAccountsProxy(provider);
         Accounts.addAccount(context, ACCOUNT_NAME, token);
 
         Mockito.verify(provider).addAccount(Mockito.any(Account.class), Mockito.eq(token.getRefreshToken()));
@@ -73,7 +74,7 @@ public class AccountsTest extends AndroidTestCase {
 
         Mockito.doReturn(new Account[] {account}).when(provider).getAccounts();
 
-        AccountsProxyHolder.init(provider);
+        AuthRuntime.setAccountsProxy(provider);
         Accounts.addAccount(context, ACCOUNT_NAME, token);
 
         Mockito.verify(provider, Mockito.never()).addAccount(Mockito.any(Account.class), Mockito.eq(token.getRefreshToken()));
@@ -91,7 +92,7 @@ public class AccountsTest extends AndroidTestCase {
         Mockito.doReturn(accounts).when(provider).getAccounts();
         Mockito.doNothing().when(provider).removeAccount(Mockito.any(Account.class));
 
-        AccountsProxyHolder.init(provider);
+        AuthRuntime.setAccountsProxy(provider);
         Accounts.removeAccount(context);
 
         Mockito.verify(provider).removeAccount(Mockito.any(Account.class));
@@ -103,7 +104,7 @@ public class AccountsTest extends AndroidTestCase {
         final Account[] accounts = new Account[] { account };
         final AccountsProxy provider = Mockito.mock(AccountsProxy.class);
 
-        AccountsProxyHolder.init(provider);
+        AuthRuntime.setAccountsProxy(provider);
 
         Mockito.when(provider.getAccounts()).thenReturn(accounts);
 
@@ -111,4 +112,35 @@ public class AccountsTest extends AndroidTestCase {
 
         Mockito.verify(provider).getAccounts();
     }
+
+    public void testGetAccountWithMultipleAccountsLooksUpLastUsedName() {
+        final Account account = new Account(ACCOUNT_NAME, ACCOUNT_TYPE);
+        final Account other = new Account(UUID.randomUUID().toString(), ACCOUNT_TYPE);
+        final AccountsProxy provider = Mockito.mock(AccountsProxy.class);
+
+        AuthRuntime.setAccountsProxy(provider);
+        AuthPreferences.setAccountName(mContext, ACCOUNT_NAME);
+
+        Mockito.when(provider.getAccounts()).thenReturn(new Account[] { other, account });
+        Mockito.when(provider.getAccount(ACCOUNT_NAME)).thenReturn(account);
+
+        assertEquals(account, Accounts.getAccount(mContext));
+
+        Mockito.verify(provider).getAccounts();
+        Mockito.verify(provider).getAccount(ACCOUNT_NAME);
+    }
+
+    public void testGetAccountWithNoAccounts() {
+        final Context context = Mockito.mock(Context.class);
+        final AccountsProxy provider = Mockito.mock(AccountsProxy.class);
+
+        AuthRuntime.setAccountsProxy(provider);
+
+        Mockito.when(provider.getAccounts()).thenReturn(new Account[0]);
+
+        assertNull(Accounts.getAccount(context));
+
+        Mockito.verify(provider).getAccounts();
+        Mockito.verify(provider, Mockito.never()).getAccount(Mockito.anyString());
+    }
 }
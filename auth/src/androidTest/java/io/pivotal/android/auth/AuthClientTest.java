@@ -6,14 +6,22 @@ package io.pivotal.android.auth;
 import android.accounts.Account;
 import android.accounts.AccountManager;
 import android.accounts.AccountManagerFuture;
+import android.accounts.OperationCanceledException;
 import android.app.Activity;
 import android.content.Context;
 import android.os.Bundle;
 import android.test.AndroidTestCase;
 
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class AuthClientTest extends AndroidTestCase {
 
@@ -28,6 +36,13 @@ public class AuthClientTest extends AndroidTestCase {
         System.setProperty("dexmaker.dexcache", mContext.getCacheDir().getPath());
     }
 
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        AuthExecutor.init(null);
+    }
+
     public void testRequestAccessTokenWithActivityAndUserPromptEnabled() {
         final Activity activity = Mockito.mock(Activity.class);
         final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
@@ -86,6 +101,37 @@ public class AuthClientTest extends AndroidTestCase {
         Mockito.verify(client).validateTokenInFuture(context, future);
     }
 
+    public void testRequestAccessTokenWithContextReturnsCachedToken() {
+        final Context context = Mockito.mock(Context.class);
+        final Account account = new Account(ACCOUNT_NAME, UUID.randomUUID().toString());
+        final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
+        final AuthClient.Default client = Mockito.spy(new AuthClient.Default(proxy));
+
+        Mockito.doReturn(account).when(client).getAccount(context);
+        Mockito.when(proxy.getCachedAccessToken(account)).thenReturn(ACCESS_TOKEN);
+
+        final Response response = client.requestAccessToken(context);
+
+        assertEquals(ACCESS_TOKEN, response.accessToken);
+        assertEquals(ACCOUNT_NAME, response.accountName);
+
+        Mockito.verify(proxy).getCachedAccessToken(account);
+        Mockito.verify(proxy, Mockito.never()).getAuthToken(account);
+    }
+
+    public void testRequestAccessTokenWithAccountReturnsCachedTokenWhenValidating() {
+        final Activity activity = Mockito.mock(Activity.class);
+        final Account account = new Account(ACCOUNT_NAME, UUID.randomUUID().toString());
+        final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
+        final AuthClient.Default client = new AuthClient.Default(proxy);
+
+        Mockito.when(proxy.getCachedAccessToken(account)).thenReturn(ACCESS_TOKEN);
+
+        assertEquals(ACCESS_TOKEN, client.requestAccessToken(activity, account, true).accessToken);
+
+        Mockito.verify(proxy, Mockito.never()).getAuthToken(activity, account);
+    }
+
     public void testRequestAccessTokenWithContextNoLastUsedAccount() {
         final Context context = Mockito.mock(Context.class);
         final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
@@ -275,4 +321,179 @@ public class AuthClientTest extends AndroidTestCase {
         Mockito.verify(future).getResult();
         Mockito.verify(client).getFailureAuthResponse(exception);
     }
+
+    public void testRequestAccessTokenWithListenerReturnsFuture() throws Exception {
+        final Context context = Mockito.mock(Context.class);
+        final Account account = Mockito.mock(Account.class);
+        final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
+        final Auth.Listener listener = Mockito.mock(Auth.Listener.class);
+        final AuthClient.Default client = Mockito.spy(new AuthClient.Default(proxy));
+        final Response response = new Response(ACCESS_TOKEN, ACCOUNT_NAME);
+
+        Mockito.doReturn(response).when(client).requestAccessToken(context, account, true);
+
+        final Future<Response> future = client.requestAccessToken(context, account, true, listener);
+
+        assertEquals(response, future.get(1, TimeUnit.SECONDS));
+        Mockito.verify(listener, Mockito.timeout(1000)).onResponse(response);
+    }
+
+    public void testRequestAccessTokenWithListenerUsesAuthExecutor() throws Exception {
+        final Context context = Mockito.mock(Context.class);
+        final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
+        final ExecutorService executor = Mockito.mock(ExecutorService.class);
+        final AuthClient.Default client = new AuthClient.Default(proxy);
+
+        AuthExecutor.init(executor);
+
+        final Future<Response> future = client.requestAccessToken(context, null);
+
+        Mockito.verify(executor).execute((Runnable) future);
+        assertFalse(future.isDone());
+    }
+
+    public void testRequestAccessTokenWithListenerCancelled() throws Exception {
+        final Context context = Mockito.mock(Context.class);
+        final Account account = Mockito.mock(Account.class);
+        final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
+        final Auth.Listener listener = Mockito.mock(Auth.Listener.class);
+        final AuthClient.Default client = Mockito.spy(new AuthClient.Default(proxy));
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        Mockito.doAnswer(new Answer<Response>() {
+            @Override
+            public Response answer(final InvocationOnMock invocation) throws Throwable {
+                started.countDown();
+                release.await();
+                return new Response(ACCESS_TOKEN, ACCOUNT_NAME);
+            }
+        }).when(client).requestAccessToken(context, account, true);
+
+        final Future<Response> future = client.requestAccessToken(context, account, true, listener);
+        started.await();
+
+        assertTrue(future.cancel(true));
+        assertTrue(future.isCancelled());
+
+        release.countDown();
+
+        Mockito.verify(listener, Mockito.never()).onResponse(Mockito.any(Response.class));
+    }
+
+    public void testConcurrentRequestsForSameAccountShareOneAuthTokenRequest() throws Exception {
+        final Context context = Mockito.mock(Context.class);
+        final Account account = new Account(ACCOUNT_NAME, UUID.randomUUID().toString());
+        final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
+        final AccountManagerFuture<Bundle> future = Mockito.mock(AccountManagerFutureBundle.class);
+        final AuthClient.Default client = new AuthClient.Default(proxy);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final Bundle result = new Bundle();
+        result.putString(AccountManager.KEY_AUTHTOKEN, ACCESS_TOKEN);
+        result.putString(AccountManager.KEY_ACCOUNT_NAME, ACCOUNT_NAME);
+
+        Mockito.when(proxy.getAuthToken(account)).thenReturn(future);
+        Mockito.when(future.getResult()).thenAnswer(new Answer<Bundle>() {
+            @Override
+            public Bundle answer(final InvocationOnMock invocation) throws Throwable {
+                started.countDown();
+                release.await();
+                return result;
+            }
+        });
+
+        final AtomicReference<Response> leaderResponse = new AtomicReference<Response>();
+        final AtomicReference<Response> followerResponse = new AtomicReference<Response>();
+
+        final Thread leader = new RequestThread(client, context, account, leaderResponse);
+        leader.start();
+        started.await();
+
+        final Thread follower = new RequestThread(client, context, account, followerResponse);
+        follower.start();
+        SingleFlightTest.waitUntilWaiting(follower);
+
+        release.countDown();
+        leader.join();
+        follower.join();
+
+        assertNotSame(leaderResponse.get(), followerResponse.get());
+        assertEquals(ACCESS_TOKEN, leaderResponse.get().accessToken);
+        assertEquals(ACCESS_TOKEN, followerResponse.get().accessToken);
+
+        Mockito.verify(proxy, Mockito.times(1)).getAuthToken(account);
+    }
+
+    public void testFollowerRetriesWhenLeaderIsCancelled() throws Exception {
+        final Context context = Mockito.mock(Context.class);
+        final Account account = new Account(ACCOUNT_NAME, UUID.randomUUID().toString());
+        final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
+        final AccountManagerFuture<Bundle> cancelled = Mockito.mock(AccountManagerFutureBundle.class);
+        final AccountManagerFuture<Bundle> future = Mockito.mock(AccountManagerFutureBundle.class);
+        final AuthClient.Default client = new AuthClient.Default(proxy);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final Bundle result = new Bundle();
+        result.putString(AccountManager.KEY_AUTHTOKEN, ACCESS_TOKEN);
+        result.putString(AccountManager.KEY_ACCOUNT_NAME, ACCOUNT_NAME);
+
+        Mockito.when(proxy.getAuthToken(account)).thenReturn(cancelled, future);
+        Mockito.when(cancelled.getResult()).thenAnswer(new Answer<Bundle>() {
+            @Override
+            public Bundle answer(final InvocationOnMock invocation) throws Throwable {
+                started.countDown();
+                release.await();
+                throw new OperationCanceledException();
+            }
+        });
+        Mockito.when(future.getResult()).thenReturn(result);
+
+        final AtomicReference<Response> leaderResponse = new AtomicReference<Response>();
+        final AtomicReference<Response> followerResponse = new AtomicReference<Response>();
+
+        final Thread leader = new RequestThread(client, context, account, leaderResponse);
+        leader.start();
+        started.await();
+
+        final Thread follower = new RequestThread(client, context, account, followerResponse);
+        follower.start();
+        SingleFlightTest.waitUntilWaiting(follower);
+
+        release.countDown();
+        leader.join();
+        follower.join();
+
+        assertTrue(leaderResponse.get().isFailure());
+        assertTrue(followerResponse.get().isSuccess());
+        assertEquals(ACCESS_TOKEN, followerResponse.get().accessToken);
+
+        Mockito.verify(proxy, Mockito.times(2)).getAuthToken(account);
+    }
+
+
+    // ====================================
+
+
+    private static final class RequestThread extends Thread {
+
+        private final AuthClient mClient;
+        private final Context mContext;
+        private final Account mAccount;
+        private final AtomicReference<Response> mResponse;
+
+        public RequestThread(final AuthClient client, final Context context, final Account account, final AtomicReference<Response> response) {
+            mClient = client;
+            mContext = context;
+            mAccount = account;
+            mResponse = response;
+        }
+
+        @Override
+        public void run() {
+            mResponse.set(mClient.requestAccessToken(mContext, mAccount, false));
+        }
+    }
 }
@@ -7,8 +7,6 @@ import android.content.Loader;
 import android.os.Bundle;
 import android.test.AndroidTestCase;
 
-import com.google.api.client.auth.oauth2.TokenResponse;
-
 import java.util.UUID;
 
 public class AuthCodeTokenLoaderCallbacksTest extends AndroidTestCase {
@@ -23,7 +21,7 @@ public class AuthCodeTokenLoaderCallbacksTest extends AndroidTestCase {
 
     public void testOnCreateLoader() {
         final AuthCodeTokenLoaderCallbacks callbacks = new AuthCodeTokenLoaderCallbacks(mContext, null);
-        final Loader<TokenResponse> loader = callbacks.onCreateLoader(0, Bundle.EMPTY);
+        final Loader<Token> loader = callbacks.onCreateLoader(0, Bundle.EMPTY);
 
         assertTrue(loader instanceof AuthCodeTokenLoader);
     }
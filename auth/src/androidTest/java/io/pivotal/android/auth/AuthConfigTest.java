@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.test.AndroidTestCase;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+public class AuthConfigTest extends AndroidTestCase {
+
+    private static final String CLIENT_ID = UUID.randomUUID().toString();
+    private static final String CLIENT_SECRET = UUID.randomUUID().toString();
+    private static final String AUTHORIZE_URL = UUID.randomUUID().toString();
+    private static final String TOKEN_URL = UUID.randomUUID().toString();
+    private static final String REDIRECT_URL = UUID.randomUUID().toString();
+    private static final String ACCOUNT_TYPE = UUID.randomUUID().toString();
+    private static final String TOKEN_TYPE = UUID.randomUUID().toString();
+    private static final String SCOPE_1 = UUID.randomUUID().toString();
+    private static final String SCOPE_2 = UUID.randomUUID().toString();
+
+    private static final String[] REQUIRED_KEYS = {
+        "pivotal.auth.clientId",
+        "pivotal.auth.clientSecret",
+        "pivotal.auth.tokenUrl",
+        "pivotal.auth.accountType",
+        "pivotal.auth.tokenType"
+    };
+
+    private static final String[] GRANT_KEYS = {
+        "pivotal.auth.authorizeUrl",
+        "pivotal.auth.redirectUrl",
+        "pivotal.auth.scopes"
+    };
+
+    public void testGetValues() {
+        final Properties properties = newProperties();
+        properties.setProperty("pivotal.auth.connectTimeout", "1000");
+        properties.setProperty("pivotal.auth.readTimeout", "2000");
+
+        final AuthConfig config = new AuthConfig(properties);
+
+        assertEquals(CLIENT_ID, config.getClientId());
+        assertEquals(CLIENT_SECRET, config.getClientSecret());
+        assertEquals(AUTHORIZE_URL, config.getAuthorizeUrl());
+        assertEquals(TOKEN_URL, config.getTokenUrl());
+        assertEquals(REDIRECT_URL, config.getRedirectUrl());
+        assertEquals(ACCOUNT_TYPE, config.getAccountType());
+        assertEquals(TOKEN_TYPE, config.getTokenType());
+        assertEquals(SCOPE_1 + " " + SCOPE_2, config.getScopes());
+        assertEquals(Arrays.asList(SCOPE_1, SCOPE_2), config.getScopeList());
+        assertEquals(1000, config.getConnectTimeout());
+        assertEquals(2000, config.getReadTimeout());
+    }
+
+    public void testValuesAreSnapshotted() {
+        final Properties properties = newProperties();
+        properties.setProperty("pivotal.auth.accountType", ACCOUNT_TYPE);
+
+        final AuthConfig config = new AuthConfig(properties);
+        properties.setProperty("pivotal.auth.accountType", UUID.randomUUID().toString());
+
+        assertEquals(ACCOUNT_TYPE, config.getAccountType());
+    }
+
+    public void testMissingValueFailsOnConstruction() {
+        for (final String key : REQUIRED_KEYS) {
+            final Properties properties = newProperties();
+            properties.remove(key);
+
+            try {
+                new AuthConfig(properties);
+                fail(key);
+            } catch (final IllegalStateException e) {
+                assertTrue(e.getMessage().contains(key));
+            }
+        }
+    }
+
+    public void testMissingGrantValueFailsOnUse() {
+        final Properties properties = newProperties();
+        for (final String key : GRANT_KEYS) {
+            properties.remove(key);
+        }
+
+        final AuthConfig config = new AuthConfig(properties);
+
+        assertEquals(TOKEN_URL, config.getTokenUrl());
+
+        try {
+            config.getAuthorizeUrl();
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage().contains("pivotal.auth.authorizeUrl"));
+        }
+        try {
+            config.getRedirectUrl();
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage().contains("pivotal.auth.redirectUrl"));
+        }
+        try {
+            config.getScopeList();
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage().contains("pivotal.auth.scopes"));
+        }
+    }
+
+    public void testEmptyValueFailsOnConstruction() {
+        final Properties properties = newProperties();
+        properties.setProperty("pivotal.auth.tokenType", "");
+
+        try {
+            new AuthConfig(properties);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertNotNull(e);
+        }
+    }
+
+    public void testInvalidTimeoutFailsOnConstruction() {
+        final Properties properties = newProperties();
+        properties.setProperty("pivotal.auth.readTimeout", "soon");
+
+        try {
+            new AuthConfig(properties);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertNotNull(e);
+        }
+    }
+
+    public void testTimeoutsDefault() {
+        final AuthConfig config = new AuthConfig(newProperties());
+
+        assertEquals(20000, config.getConnectTimeout());
+        assertEquals(20000, config.getReadTimeout());
+    }
+
+    public void testRefreshAsync() {
+        final Properties properties = newProperties();
+
+        assertFalse(new AuthConfig(properties).isRefreshAsync());
+
+        properties.setProperty("pivotal.auth.refreshAsync", "true");
+
+        assertTrue(new AuthConfig(properties).isRefreshAsync());
+    }
+
+    public void testScopeListIsUnmodifiable() {
+        final Properties properties = newProperties();
+        properties.setProperty("pivotal.auth.scopes", SCOPE_1);
+
+        final List<String> scopes = new AuthConfig(properties).getScopeList();
+
+        try {
+            scopes.add(SCOPE_2);
+            fail();
+        } catch (final UnsupportedOperationException e) {
+            assertNotNull(e);
+        }
+    }
+
+
+    // ====================================
+
+
+    /* package */ static Properties newProperties() {
+        final Properties properties = new Properties();
+        properties.setProperty("pivotal.auth.clientId", CLIENT_ID);
+        properties.setProperty("pivotal.auth.clientSecret", CLIENT_SECRET);
+        properties.setProperty("pivotal.auth.authorizeUrl", AUTHORIZE_URL);
+        properties.setProperty("pivotal.auth.tokenUrl", TOKEN_URL);
+        properties.setProperty("pivotal.auth.redirectUrl", REDIRECT_URL);
+        properties.setProperty("pivotal.auth.accountType", ACCOUNT_TYPE);
+        properties.setProperty("pivotal.auth.tokenType", TOKEN_TYPE);
+        properties.setProperty("pivotal.auth.scopes", SCOPE_1 + " " + SCOPE_2);
+        return properties;
+    }
+}
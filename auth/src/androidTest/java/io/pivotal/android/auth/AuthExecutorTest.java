@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.test.AndroidTestCase;
+
+import org.mockito.Mockito;
+
+import java.util.concurrent.ExecutorService;
+
+public class AuthExecutorTest extends AndroidTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        System.setProperty("dexmaker.dexcache", mContext.getCacheDir().getPath());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        AuthExecutor.init(null);
+        AuthExecutor.initRefreshExecutor(null);
+    }
+
+    public void testWithInitialization() {
+        final ExecutorService custom = Mockito.mock(ExecutorService.class);
+        AuthExecutor.init(custom);
+        final ExecutorService executor = AuthExecutor.get();
+        assertEquals(custom, executor);
+    }
+
+    public void testWithoutInitialization() {
+        AuthExecutor.init(null);
+        final ExecutorService executor = AuthExecutor.get();
+        assertNotNull(executor);
+        assertSame(executor, AuthExecutor.get());
+    }
+
+    public void testRefreshExecutorIsSeparate() {
+        final ExecutorService custom = Mockito.mock(ExecutorService.class);
+        AuthExecutor.init(custom);
+        final ExecutorService executor = AuthExecutor.getRefreshExecutor();
+        assertNotNull(executor);
+        assertNotSame(custom, executor);
+        assertSame(executor, AuthExecutor.getRefreshExecutor());
+    }
+
+    public void testRefreshExecutorWithInitialization() {
+        final ExecutorService custom = Mockito.mock(ExecutorService.class);
+        AuthExecutor.initRefreshExecutor(custom);
+        assertEquals(custom, AuthExecutor.getRefreshExecutor());
+    }
+}
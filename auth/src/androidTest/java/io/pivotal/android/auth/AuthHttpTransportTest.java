@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.test.AndroidTestCase;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+
+import org.mockito.Mockito;
+
+public class AuthHttpTransportTest extends AndroidTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        System.setProperty("dexmaker.dexcache", mContext.getCacheDir().getPath());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        AuthHttpTransport.init(null);
+    }
+
+    public void testWithInitialization() {
+        final HttpTransport custom = Mockito.mock(HttpTransport.class);
+        AuthHttpTransport.init(custom);
+        final HttpTransport transport = AuthHttpTransport.get();
+        assertEquals(custom, transport);
+    }
+
+    public void testWithoutInitialization() {
+        AuthHttpTransport.init(null);
+        final HttpTransport transport = AuthHttpTransport.get();
+        assertTrue(transport instanceof NetHttpTransport);
+        assertSame(transport, AuthHttpTransport.get());
+    }
+
+    public void testTimeoutInitializer() throws Exception {
+        final AuthHttpTransport.TimeoutInitializer initializer = new AuthHttpTransport.TimeoutInitializer(1000, 2000);
+        final HttpRequest request = new NetHttpTransport().createRequestFactory(initializer).buildGetRequest(new GenericUrl("http://example.com"));
+
+        assertEquals(1000, request.getConnectTimeout());
+        assertEquals(2000, request.getReadTimeout());
+    }
+}
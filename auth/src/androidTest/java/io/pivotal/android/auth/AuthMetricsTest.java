@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.test.AndroidTestCase;
+
+import java.util.concurrent.CountDownLatch;
+
+public class AuthMetricsTest extends AndroidTestCase {
+
+    public void testIncrement() {
+        final AuthMetrics.Default metrics = new AuthMetrics.Default();
+
+        metrics.increment(AuthMetrics.Counter.CACHE_HIT);
+        metrics.increment(AuthMetrics.Counter.CACHE_HIT);
+        metrics.increment(AuthMetrics.Counter.FAILURE);
+
+        assertEquals(2, metrics.getCount(AuthMetrics.Counter.CACHE_HIT));
+        assertEquals(1, metrics.getCount(AuthMetrics.Counter.FAILURE));
+        assertEquals(0, metrics.getCount(AuthMetrics.Counter.CACHE_MISS));
+    }
+
+    public void testRecord() {
+        final AuthMetrics.Default metrics = new AuthMetrics.Default();
+
+        metrics.record(AuthMetrics.Stage.HTTP_REQUEST, 500);
+        metrics.record(AuthMetrics.Stage.HTTP_REQUEST, 3000);
+        metrics.record(AuthMetrics.Stage.HTTP_REQUEST, 3500);
+
+        final long[] histogram = metrics.getHistogram(AuthMetrics.Stage.HTTP_REQUEST);
+
+        assertEquals(AuthMetrics.Default.BUCKETS, histogram.length);
+        assertEquals(1, histogram[0]);
+        assertEquals(2, histogram[2]);
+        assertEquals(3, metrics.getCount(AuthMetrics.Stage.HTTP_REQUEST));
+        assertEquals(7000, metrics.getTotalNanos(AuthMetrics.Stage.HTTP_REQUEST));
+        assertEquals(0, metrics.getCount(AuthMetrics.Stage.REFRESH));
+    }
+
+    public void testBuckets() {
+        assertEquals(0, AuthMetrics.Default.getBucket(-1));
+        assertEquals(0, AuthMetrics.Default.getBucket(999));
+        assertEquals(1, AuthMetrics.Default.getBucket(1000));
+        assertEquals(2, AuthMetrics.Default.getBucket(2000));
+        assertEquals(20, AuthMetrics.Default.getBucket(1000 * 1000 * 1000));
+        assertEquals(AuthMetrics.Default.BUCKETS - 1, AuthMetrics.Default.getBucket(Long.MAX_VALUE));
+    }
+
+    public void testReset() {
+        final AuthMetrics.Default metrics = new AuthMetrics.Default();
+
+        metrics.increment(AuthMetrics.Counter.REFRESH);
+        metrics.record(AuthMetrics.Stage.REFRESH, 1000);
+        metrics.reset();
+
+        assertEquals(0, metrics.getCount(AuthMetrics.Counter.REFRESH));
+        assertEquals(0, metrics.getCount(AuthMetrics.Stage.REFRESH));
+        assertEquals(0, metrics.getTotalNanos(AuthMetrics.Stage.REFRESH));
+    }
+
+    public void testConcurrentIncrements() throws Exception {
+        final AuthMetrics.Default metrics = new AuthMetrics.Default();
+        final int threads = 8;
+        final int increments = 10000;
+        final CountDownLatch latch = new CountDownLatch(threads);
+
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int j = 0; j < increments; j++) {
+                        metrics.increment(AuthMetrics.Counter.CACHE_MISS);
+                        metrics.record(AuthMetrics.Stage.JWT_DECODE, j);
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+
+        assertEquals(threads * increments, metrics.getCount(AuthMetrics.Counter.CACHE_MISS));
+        assertEquals(threads * increments, metrics.getCount(AuthMetrics.Stage.JWT_DECODE));
+    }
+}
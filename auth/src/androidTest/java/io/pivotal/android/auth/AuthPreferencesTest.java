@@ -7,9 +7,11 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.test.AndroidTestCase;
 
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 
 public class AuthPreferencesTest extends AndroidTestCase {
 
@@ -19,6 +21,16 @@ public class AuthPreferencesTest extends AndroidTestCase {
     protected void setUp() throws Exception {
         super.setUp();
         System.setProperty("dexmaker.dexcache", mContext.getCacheDir().getPath());
+
+        AuthPreferences.reset();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        AuthPreferences.reset();
+        AuthExecutor.init(null);
     }
 
     public void testGetInvokesSharedPreferences() {
@@ -46,13 +58,93 @@ public class AuthPreferencesTest extends AndroidTestCase {
         Mockito.when(context.getSharedPreferences(AuthPreferences.AUTH, Context.MODE_PRIVATE)).thenReturn(preferences);
         Mockito.when(preferences.edit()).thenReturn(editor);
         Mockito.when(editor.putString(AuthPreferences.Keys.LAST_USED_ACCOUNT, VALUE)).thenReturn(editor);
-        Mockito.when(editor.commit()).thenReturn(true);
 
         AuthPreferences.setAccountName(context, VALUE);
 
+        Mockito.verify(preferences, Mockito.timeout(1000)).edit();
+        Mockito.verify(editor, Mockito.timeout(1000)).putString(AuthPreferences.Keys.LAST_USED_ACCOUNT, VALUE);
+        Mockito.verify(editor, Mockito.timeout(1000)).apply();
+        Mockito.verify(editor, Mockito.never()).commit();
+    }
+
+    public void testSetWritesThroughApplicationContext() {
+        final Context context = Mockito.mock(Context.class);
+        final Context applicationContext = Mockito.mock(Context.class);
+        final SharedPreferences preferences = Mockito.mock(SharedPreferences.class);
+        final SharedPreferences.Editor editor = Mockito.mock(SharedPreferences.Editor.class);
+        final ExecutorService executor = Mockito.mock(ExecutorService.class);
+        final ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+
+        Mockito.when(context.getApplicationContext()).thenReturn(applicationContext);
+        Mockito.when(context.getSharedPreferences(AuthPreferences.AUTH, Context.MODE_PRIVATE)).thenReturn(preferences);
+        Mockito.when(applicationContext.getSharedPreferences(AuthPreferences.AUTH, Context.MODE_PRIVATE)).thenReturn(preferences);
+        Mockito.when(preferences.getString(AuthPreferences.Keys.LAST_USED_ACCOUNT, "")).thenReturn("");
+        Mockito.when(preferences.edit()).thenReturn(editor);
+        Mockito.when(editor.putString(AuthPreferences.Keys.LAST_USED_ACCOUNT, VALUE)).thenReturn(editor);
+
+        AuthExecutor.init(executor);
+        AuthPreferences.setAccountName(context, VALUE);
+
+        Mockito.verify(executor).execute(captor.capture());
+        captor.getValue().run();
+
+        Mockito.verify(applicationContext).getSharedPreferences(AuthPreferences.AUTH, Context.MODE_PRIVATE);
+        Mockito.verify(editor).apply();
+    }
+
+    public void testGetIsCached() {
+        final Context context = Mockito.mock(Context.class);
+        final SharedPreferences preferences = Mockito.mock(SharedPreferences.class);
+
+        Mockito.when(context.getSharedPreferences(AuthPreferences.AUTH, Context.MODE_PRIVATE)).thenReturn(preferences);
+        Mockito.when(preferences.getString(AuthPreferences.Keys.LAST_USED_ACCOUNT, "")).thenReturn(VALUE);
+
+        assertEquals(VALUE, AuthPreferences.getAccountName(context));
+        assertEquals(VALUE, AuthPreferences.getAccountName(context));
+
         Mockito.verify(context).getSharedPreferences(AuthPreferences.AUTH, Context.MODE_PRIVATE);
-        Mockito.verify(preferences).edit();
+        Mockito.verify(preferences).getString(AuthPreferences.Keys.LAST_USED_ACCOUNT, "");
+    }
+
+    public void testSetSkipsUnchangedName() {
+        final Context context = Mockito.mock(Context.class);
+        final SharedPreferences preferences = Mockito.mock(SharedPreferences.class);
+        final ExecutorService executor = Mockito.mock(ExecutorService.class);
+
+        Mockito.when(context.getSharedPreferences(AuthPreferences.AUTH, Context.MODE_PRIVATE)).thenReturn(preferences);
+        Mockito.when(preferences.getString(AuthPreferences.Keys.LAST_USED_ACCOUNT, "")).thenReturn(VALUE);
+
+        AuthExecutor.init(executor);
+        AuthPreferences.setAccountName(context, VALUE);
+
+        Mockito.verify(executor, Mockito.never()).execute(Mockito.any(Runnable.class));
+        Mockito.verify(preferences, Mockito.never()).edit();
+    }
+
+    public void testSetCoalescesWrites() {
+        final Context context = Mockito.mock(Context.class);
+        final SharedPreferences preferences = Mockito.mock(SharedPreferences.class);
+        final SharedPreferences.Editor editor = Mockito.mock(SharedPreferences.Editor.class);
+        final ExecutorService executor = Mockito.mock(ExecutorService.class);
+        final ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        final String other = UUID.randomUUID().toString();
+
+        Mockito.when(context.getSharedPreferences(AuthPreferences.AUTH, Context.MODE_PRIVATE)).thenReturn(preferences);
+        Mockito.when(preferences.getString(AuthPreferences.Keys.LAST_USED_ACCOUNT, "")).thenReturn("");
+        Mockito.when(preferences.edit()).thenReturn(editor);
+        Mockito.when(editor.putString(Mockito.anyString(), Mockito.anyString())).thenReturn(editor);
+
+        AuthExecutor.init(executor);
+        AuthPreferences.setAccountName(context, other);
+        AuthPreferences.setAccountName(context, VALUE);
+
+        assertEquals(VALUE, AuthPreferences.getAccountName(context));
+
+        Mockito.verify(executor).execute(captor.capture());
+        captor.getValue().run();
+
         Mockito.verify(editor).putString(AuthPreferences.Keys.LAST_USED_ACCOUNT, VALUE);
+        Mockito.verify(editor, Mockito.never()).putString(AuthPreferences.Keys.LAST_USED_ACCOUNT, other);
         Mockito.verify(editor).apply();
     }
 
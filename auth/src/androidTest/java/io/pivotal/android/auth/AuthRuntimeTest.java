@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.test.AndroidTestCase;
+
+import org.mockito.Mockito;
+
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class AuthRuntimeTest extends AndroidTestCase {
+
+    private static final String CLIENT_ID = UUID.randomUUID().toString();
+    private static final String CLIENT_SECRET = UUID.randomUUID().toString();
+    private static final String TOKEN_URL = "http://" + UUID.randomUUID().toString() + ".com";
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        System.setProperty("dexmaker.dexcache", mContext.getCacheDir().getPath());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        Pivotal.setProperties(null);
+        AuthRuntime.reset();
+    }
+
+    public void testAccountsProxyWithInitialization() {
+        final AccountsProxy custom = Mockito.mock(AccountsProxy.class);
+        AuthRuntime.setAccountsProxy(custom);
+        assertEquals(custom, AuthRuntime.getAccountsProxy(mContext));
+    }
+
+    public void testAccountsProxyWithoutInitialization() {
+        setProperties();
+
+        final AccountsProxy proxy = AuthRuntime.getAccountsProxy(mContext);
+        assertTrue(proxy instanceof AccountsProxy.Default);
+        assertSame(proxy, AuthRuntime.getAccountsProxy(mContext));
+    }
+
+    public void testAuthClientWithInitialization() {
+        final AuthClient custom = Mockito.mock(AuthClient.class);
+        AuthRuntime.setAuthClient(custom);
+        assertEquals(custom, AuthRuntime.getAuthClient(mContext));
+    }
+
+    public void testAuthClientWithoutInitialization() {
+        final AuthClient client = AuthRuntime.getAuthClient(mContext);
+        assertTrue(client instanceof AuthClient.Default);
+        assertSame(client, AuthRuntime.getAuthClient(mContext));
+    }
+
+    public void testRemoteAuthenticatorWithInitialization() {
+        final RemoteAuthenticator custom = Mockito.mock(RemoteAuthenticator.class);
+        AuthRuntime.setRemoteAuthenticator(custom);
+        assertEquals(custom, AuthRuntime.getRemoteAuthenticator());
+    }
+
+    public void testRemoteAuthenticatorWithoutInitialization() {
+        setProperties();
+
+        final RemoteAuthenticator authenticator = AuthRuntime.getRemoteAuthenticator();
+        assertTrue(authenticator instanceof RemoteAuthenticator.Default);
+        assertSame(authenticator, AuthRuntime.getRemoteAuthenticator());
+    }
+
+    public void testResetDefaultRemoteAuthenticator() {
+        setProperties();
+
+        final RemoteAuthenticator authenticator = AuthRuntime.getRemoteAuthenticator();
+        AuthRuntime.resetDefaultRemoteAuthenticator();
+
+        assertNotSame(authenticator, AuthRuntime.getRemoteAuthenticator());
+    }
+
+    public void testResetDefaultRemoteAuthenticatorKeepsCustom() {
+        final RemoteAuthenticator custom = Mockito.mock(RemoteAuthenticator.class);
+        AuthRuntime.setRemoteAuthenticator(custom);
+        AuthRuntime.resetDefaultRemoteAuthenticator();
+
+        assertSame(custom, AuthRuntime.getRemoteAuthenticator());
+    }
+
+    public void testTokenStoreWithInitialization() {
+        final TokenStore custom = Mockito.mock(TokenStore.class);
+        AuthRuntime.setTokenStore(custom);
+        assertEquals(custom, AuthRuntime.getTokenStore(mContext));
+    }
+
+    public void testTokenStoreWithoutInitialization() {
+        setProperties();
+
+        final TokenStore store = AuthRuntime.getTokenStore(mContext);
+        assertTrue(store instanceof TokenStore.Default);
+        assertSame(store, AuthRuntime.getTokenStore(mContext));
+    }
+
+    public void testConcurrentFirstUseCreatesOneInstance() throws Exception {
+        setProperties();
+
+        final int count = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(count);
+        final Future<?>[] futures = new Future<?>[count];
+
+        for (int i = 0; i < count; i++) {
+            futures[i] = executor.submit(new Callable<RemoteAuthenticator>() {
+
+                @Override
+                public RemoteAuthenticator call() throws Exception {
+                    start.await();
+                    return AuthRuntime.getRemoteAuthenticator();
+                }
+            });
+        }
+        start.countDown();
+
+        for (int i = 1; i < count; i++) {
+            assertSame(futures[0].get(), futures[i].get());
+        }
+        executor.shutdown();
+    }
+
+    public void testReset() {
+        final AccountsProxy custom = Mockito.mock(AccountsProxy.class);
+        AuthRuntime.setAccountsProxy(custom);
+
+        AuthRuntime.reset();
+        setProperties();
+
+        assertNotSame(custom, AuthRuntime.getAccountsProxy(mContext));
+    }
+
+    public void testWarmUp() {
+        setProperties();
+
+        AuthRuntime.warmUp(mContext);
+
+        final AccountsProxy proxy = AuthRuntime.getAccountsProxy(mContext);
+        final RemoteAuthenticator authenticator = AuthRuntime.getRemoteAuthenticator();
+
+        AuthRuntime.warmUp(mContext);
+
+        assertSame(proxy, AuthRuntime.getAccountsProxy(mContext));
+        assertSame(authenticator, AuthRuntime.getRemoteAuthenticator());
+    }
+
+
+    // ====================================
+
+
+    private static void setProperties() {
+        final Properties properties = AuthConfigTest.newProperties();
+        properties.setProperty("pivotal.auth.clientId", CLIENT_ID);
+        properties.setProperty("pivotal.auth.clientSecret", CLIENT_SECRET);
+        properties.setProperty("pivotal.auth.tokenUrl", TOKEN_URL);
+        Pivotal.setProperties(properties);
+    }
+}
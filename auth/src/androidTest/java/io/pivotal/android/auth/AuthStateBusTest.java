@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.accounts.Account;
+import android.content.Context;
+import android.test.AndroidTestCase;
+
+import org.mockito.Mockito;
+
+public class AuthStateBusTest extends AndroidTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        System.setProperty("dexmaker.dexcache", mContext.getCacheDir().getPath());
+        AuthStateBus.reset();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        AuthRuntime.setAccountsProxy(null);
+        AuthStateBus.reset();
+    }
+
+    public void testLoggedInNotificationWhenLoggedOut() {
+        final Context context = Mockito.mock(Context.class);
+        final Account account = Mockito.mock(Account.class);
+        final Account[] accounts = new Account[] {account};
+        final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
+        final LoginListener listener = Mockito.mock(LoginListener.class);
+        final AuthStateBus bus = AuthStateBus.getInstance(context);
+
+        Mockito.when(accountsProxy.getAccounts()).thenReturn(accounts);
+
+        AuthRuntime.setAccountsProxy(accountsProxy);
+        bus.addLoginListener(listener);
+        bus.setIsLoggedIn(false);
+
+        bus.update();
+
+        Mockito.verify(listener).onLogin(context);
+        Mockito.verify(accountsProxy).clearAccessTokenCache();
+    }
+
+    public void testLoggedInNotificationWhenLoggedIn() {
+        final Context context = Mockito.mock(Context.class);
+        final Account account = Mockito.mock(Account.class);
+        final Account[] accounts = new Account[] {account};
+        final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
+        final LoginListener listener = Mockito.mock(LoginListener.class);
+        final AuthStateBus bus = AuthStateBus.getInstance(context);
+
+        Mockito.when(accountsProxy.getAccounts()).thenReturn(accounts);
+
+        AuthRuntime.setAccountsProxy(accountsProxy);
+        bus.addLoginListener(listener);
+        bus.setIsLoggedIn(true);
+
+        bus.update();
+
+        Mockito.verify(listener, Mockito.never()).onLogin(context);
+    }
+
+    public void testLoggedOutNotificationWhenLoggedOut() {
+        final Context context = Mockito.mock(Context.class);
+        final Account account = Mockito.mock(Account.class);
+        final Account[] accounts = new Account[] {account};
+        final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
+        final LogoutListener listener = Mockito.mock(LogoutListener.class);
+        final AuthStateBus bus = AuthStateBus.getInstance(context);
+
+        Mockito.when(accountsProxy.getAccounts()).thenReturn(accounts);
+
+        AuthRuntime.setAccountsProxy(accountsProxy);
+        bus.addLogoutListener(listener);
+        bus.setIsLoggedIn(false);
+
+        bus.update();
+
+        Mockito.verify(listener, Mockito.never()).onLogout(context);
+    }
+
+    public void testLoggedOutNotificationWhenLoggedIn() {
+        final Context context = Mockito.mock(Context.class);
+        final Account[] accounts = new Account[] { null };
+        final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
+        final LogoutListener listener = Mockito.mock(LogoutListener.class);
+        final AuthStateBus bus = AuthStateBus.getInstance(context);
+
+        Mockito.when(accountsProxy.getAccounts()).thenReturn(accounts);
+
+        AuthRuntime.setAccountsProxy(accountsProxy);
+        bus.addLogoutListener(listener);
+        bus.setIsLoggedIn(true);
+
+        bus.update();
+
+        Mockito.verify(listener).onLogout(context);
+    }
+
+    public void testNotifiesEverySubscriberOncePerTransition() {
+        final Context context = Mockito.mock(Context.class);
+        final Account[] accounts = new Account[] { Mockito.mock(Account.class) };
+        final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
+        final LoginListener first = Mockito.mock(LoginListener.class);
+        final LoginListener second = Mockito.mock(LoginListener.class);
+        final AuthStateBus bus = AuthStateBus.getInstance(context);
+
+        Mockito.when(accountsProxy.getAccounts()).thenReturn(accounts);
+
+        AuthRuntime.setAccountsProxy(accountsProxy);
+        bus.addLoginListener(first);
+        bus.addLoginListener(second);
+        bus.setIsLoggedIn(false);
+
+        bus.update();
+        bus.update();
+
+        Mockito.verify(first).onLogin(context);
+        Mockito.verify(second).onLogin(context);
+        Mockito.verify(accountsProxy).addOnAccountsUpdatedListener(bus);
+    }
+
+    public void testAccountUpdatesAreDebounced() {
+        final Context context = Mockito.mock(Context.class);
+        final Account[] accounts = new Account[] { Mockito.mock(Account.class) };
+        final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
+        final LoginListener listener = Mockito.mock(LoginListener.class);
+        final AuthStateBus bus = AuthStateBus.getInstance(context);
+
+        Mockito.when(accountsProxy.getAccounts()).thenReturn(accounts);
+
+        AuthRuntime.setAccountsProxy(accountsProxy);
+        bus.addLoginListener(listener);
+        bus.setIsLoggedIn(false);
+
+        bus.onAccountsUpdated(accounts);
+        bus.onAccountsUpdated(accounts);
+        bus.onAccountsUpdated(accounts);
+
+        Mockito.verify(listener, Mockito.timeout(1000)).onLogin(context);
+        Mockito.verify(accountsProxy).clearAccessTokenCache();
+    }
+}
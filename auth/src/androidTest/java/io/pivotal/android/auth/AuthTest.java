@@ -4,13 +4,21 @@
 package io.pivotal.android.auth;
 
 import android.accounts.Account;
+import android.accounts.OnAccountsUpdateListener;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.test.AndroidTestCase;
 
+import com.google.api.client.http.HttpTransport;
+
 import org.mockito.Mockito;
 
+import java.util.Properties;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.UUID;
 
 public class AuthTest extends AndroidTestCase {
@@ -28,9 +36,9 @@ public class AuthTest extends AndroidTestCase {
     protected void tearDown() throws Exception {
         super.tearDown();
 
-        AuthClientHolder.init(null);
-        AccountsProxyHolder.init(null);
-        AccountsChangedListener.sAccountsChangedListener = null;
+        AuthRuntime.setAuthClient(null);
+        AuthRuntime.setAccountsProxy(null);
+        AuthStateBus.reset();
     }
 
     public void testGetAccessTokenWithLoggedInUser() {
@@ -39,8 +47,8 @@ public class AuthTest extends AndroidTestCase {
         final AuthClient client = Mockito.mock(AuthClient.class);
         final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
 
-        AuthClientHolder.init(client);
-        AccountsProxyHolder.init(accountsProxy);
+        AuthRuntime.setAuthClient(client);
+        AuthRuntime.setAccountsProxy(accountsProxy);
 
         Mockito.when(client.requestAccessToken(Mockito.any(Context.class))).thenReturn(response);
         Mockito.when(accountsProxy.getAccounts()).thenReturn(new Account[]{new Account("hi", "bye")});
@@ -48,8 +56,8 @@ public class AuthTest extends AndroidTestCase {
         assertEquals(response, Auth.getAccessToken(context));
 
         Mockito.verify(client).requestAccessToken(context);
-        Mockito.verify(accountsProxy).removeOnAccountsUpdatedListener(Mockito.any(AccountsChangedListener.class));
-        Mockito.verify(accountsProxy, Mockito.never()).addOnAccountsUpdatedListener(Mockito.any(AccountsChangedListener.class));
+        Mockito.verify(accountsProxy, Mockito.never()).removeOnAccountsUpdatedListener(Mockito.any(OnAccountsUpdateListener.class));
+        Mockito.verify(accountsProxy).addOnAccountsUpdatedListener(AuthStateBus.getInstance(context));
     }
 
     public void testGetAccessTokenWithNoLoggedInUser() {
@@ -59,8 +67,8 @@ public class AuthTest extends AndroidTestCase {
         final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
         final SharedPreferences preferences = Mockito.mock(SharedPreferences.class);
 
-        AuthClientHolder.init(client);
-        AccountsProxyHolder.init(accountsProxy);
+        AuthRuntime.setAuthClient(client);
+        AuthRuntime.setAccountsProxy(accountsProxy);
 
         Mockito.when(client.requestAccessToken(Mockito.any(Context.class))).thenReturn(response);
         Mockito.when(accountsProxy.getAccounts()).thenReturn(new Account[]{});
@@ -69,8 +77,8 @@ public class AuthTest extends AndroidTestCase {
         assertEquals(response, Auth.getAccessToken(context));
 
         Mockito.verify(client).requestAccessToken(context);
-        Mockito.verify(accountsProxy).removeOnAccountsUpdatedListener(Mockito.any(AccountsChangedListener.class));
-        Mockito.verify(accountsProxy).addOnAccountsUpdatedListener(Mockito.any(AccountsChangedListener.class));
+        Mockito.verify(accountsProxy, Mockito.never()).removeOnAccountsUpdatedListener(Mockito.any(OnAccountsUpdateListener.class));
+        Mockito.verify(accountsProxy).addOnAccountsUpdatedListener(AuthStateBus.getInstance(context));
     }
 
     public void testGetAccessTokenAsyncWithLoggedInUser() {
@@ -79,16 +87,16 @@ public class AuthTest extends AndroidTestCase {
         final AuthClient client = Mockito.mock(AuthClient.class);
         final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
 
-        AuthClientHolder.init(client);
-        AccountsProxyHolder.init(accountsProxy);
+        AuthRuntime.setAuthClient(client);
+        AuthRuntime.setAccountsProxy(accountsProxy);
 
         Mockito.when(accountsProxy.getAccounts()).thenReturn(new Account[]{new Account("hi", "bye")});
 
         Auth.getAccessToken(context, listener);
 
         Mockito.verify(client).requestAccessToken(context, listener);
-        Mockito.verify(accountsProxy).removeOnAccountsUpdatedListener(Mockito.any(AccountsChangedListener.class));
-        Mockito.verify(accountsProxy, Mockito.never()).addOnAccountsUpdatedListener(Mockito.any(AccountsChangedListener.class));
+        Mockito.verify(accountsProxy, Mockito.never()).removeOnAccountsUpdatedListener(Mockito.any(OnAccountsUpdateListener.class));
+        Mockito.verify(accountsProxy).addOnAccountsUpdatedListener(AuthStateBus.getInstance(context));
     }
 
     public void testGetAccessTokenAsyncWithNoLoggedInUser() {
@@ -98,8 +106,8 @@ public class AuthTest extends AndroidTestCase {
         final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
         final SharedPreferences preferences = Mockito.mock(SharedPreferences.class);
 
-        AuthClientHolder.init(client);
-        AccountsProxyHolder.init(accountsProxy);
+        AuthRuntime.setAuthClient(client);
+        AuthRuntime.setAccountsProxy(accountsProxy);
 
         Mockito.when(accountsProxy.getAccounts()).thenReturn(new Account[]{});
         Mockito.when(context.getSharedPreferences(Mockito.anyString(), Mockito.anyInt())).thenReturn(preferences);
@@ -107,8 +115,8 @@ public class AuthTest extends AndroidTestCase {
         Auth.getAccessToken(context, listener);
 
         Mockito.verify(client).requestAccessToken(context, listener);
-        Mockito.verify(accountsProxy).removeOnAccountsUpdatedListener(Mockito.any(AccountsChangedListener.class));
-        Mockito.verify(accountsProxy).addOnAccountsUpdatedListener(Mockito.any(AccountsChangedListener.class));
+        Mockito.verify(accountsProxy, Mockito.never()).removeOnAccountsUpdatedListener(Mockito.any(OnAccountsUpdateListener.class));
+        Mockito.verify(accountsProxy).addOnAccountsUpdatedListener(AuthStateBus.getInstance(context));
     }
 
     public void testInvalidateAccessToken() {
@@ -116,7 +124,7 @@ public class AuthTest extends AndroidTestCase {
         final Account[] accounts = new Account[] { account };
         final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
 
-        AccountsProxyHolder.init(accountsProxy);
+        AuthRuntime.setAccountsProxy(accountsProxy);
 
         Mockito.when(accountsProxy.getAccounts()).thenReturn(accounts);
         Mockito.when(accountsProxy.getAccessToken(Mockito.any(Account.class))).thenReturn(ACCESS_TOKEN);
@@ -125,13 +133,14 @@ public class AuthTest extends AndroidTestCase {
 
         Mockito.verify(accountsProxy).getAccessToken(account);
         Mockito.verify(accountsProxy).invalidateAccessToken(ACCESS_TOKEN);
+        Mockito.verify(accountsProxy).addOnAccountsUpdatedListener(AuthStateBus.getInstance(mContext));
     }
 
     public void testLogoutWithLoggedInUser() {
         final Context context = Mockito.mock(Context.class);
         final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
 
-        AccountsProxyHolder.init(accountsProxy);
+        AuthRuntime.setAccountsProxy(accountsProxy);
 
         Account account = new Account("hi", "bye");
         Mockito.when(accountsProxy.getAccounts()).thenReturn(new Account[]{ account });
@@ -139,8 +148,9 @@ public class AuthTest extends AndroidTestCase {
         Auth.logout(context);
 
         Mockito.verify(accountsProxy).removeAccount(account);
-        Mockito.verify(accountsProxy).removeOnAccountsUpdatedListener(Mockito.any(AccountsChangedListener.class));
-        Mockito.verify(accountsProxy).addOnAccountsUpdatedListener(Mockito.any(AccountsChangedListener.class));
+        Mockito.verify(accountsProxy).clearAccessTokenCache();
+        Mockito.verify(accountsProxy, Mockito.never()).removeOnAccountsUpdatedListener(Mockito.any(OnAccountsUpdateListener.class));
+        Mockito.verify(accountsProxy).addOnAccountsUpdatedListener(AuthStateBus.getInstance(context));
     }
 
     public void testLogoutWithNoLoggedInUser() {
@@ -148,25 +158,198 @@ public class AuthTest extends AndroidTestCase {
         final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
         final SharedPreferences preferences = Mockito.mock(SharedPreferences.class);
 
-        AccountsProxyHolder.init(accountsProxy);
+        AuthRuntime.setAccountsProxy(accountsProxy);
         Mockito.when(accountsProxy.getAccounts()).thenReturn(new Account[]{});
         Mockito.when(context.getSharedPreferences(Mockito.anyString(), Mockito.anyInt())).thenReturn(preferences);
 
         Auth.logout(context);
 
         Mockito.verify(accountsProxy, Mockito.never()).removeAccount(Mockito.any(Account.class));
-        Mockito.verify(accountsProxy).removeOnAccountsUpdatedListener(Mockito.any(AccountsChangedListener.class));
-        Mockito.verify(accountsProxy, Mockito.never()).addOnAccountsUpdatedListener(Mockito.any(AccountsChangedListener.class));
+        Mockito.verify(accountsProxy, Mockito.never()).removeOnAccountsUpdatedListener(Mockito.any(OnAccountsUpdateListener.class));
+        Mockito.verify(accountsProxy).addOnAccountsUpdatedListener(AuthStateBus.getInstance(context));
+    }
+
+    public void testRegisterListenersRegistersWithAccountsOnce() {
+        final Context context = Mockito.mock(Context.class);
+        final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
+        final LoginListener loginListener = Mockito.mock(LoginListener.class);
+        final LogoutListener logoutListener = Mockito.mock(LogoutListener.class);
+
+        AuthRuntime.setAuthClient(Mockito.mock(AuthClient.class));
+        AuthRuntime.setAccountsProxy(accountsProxy);
+        Mockito.when(accountsProxy.getAccounts()).thenReturn(new Account[]{ new Account("hi", "bye") });
+
+        Auth.registerLoginListener(context, loginListener);
+        Auth.registerLogoutListener(context, logoutListener);
+        Auth.getAccessToken(context, Mockito.mock(Auth.Listener.class));
+
+        Mockito.verify(accountsProxy).addOnAccountsUpdatedListener(AuthStateBus.getInstance(context));
+        Mockito.verify(accountsProxy, Mockito.never()).removeOnAccountsUpdatedListener(Mockito.any(OnAccountsUpdateListener.class));
+    }
+
+    public void testAccountChangesClearCacheWithoutListeners() {
+        final Context context = Mockito.mock(Context.class);
+        final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
+
+        AuthRuntime.setAuthClient(Mockito.mock(AuthClient.class));
+        AuthRuntime.setAccountsProxy(accountsProxy);
+        Mockito.when(accountsProxy.getAccounts()).thenReturn(new Account[]{ new Account("hi", "bye") });
+
+        Auth.getAccessToken(context);
+        Auth.getAccessToken(context);
+
+        Mockito.verify(accountsProxy).addOnAccountsUpdatedListener(AuthStateBus.getInstance(context));
+
+        AuthStateBus.getInstance(context).update();
+
+        Mockito.verify(accountsProxy).clearAccessTokenCache();
+    }
+
+    public void testUnregisterLogoutListener() {
+        final Context context = Mockito.mock(Context.class);
+        final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
+        final LogoutListener listener = Mockito.mock(LogoutListener.class);
+
+        AuthRuntime.setAccountsProxy(accountsProxy);
+        Mockito.when(accountsProxy.getAccounts()).thenReturn(new Account[]{ new Account("hi", "bye") });
+
+        Auth.registerLogoutListener(context, listener);
+        Auth.unregisterLogoutListener(context, listener);
+
+        Mockito.when(accountsProxy.getAccounts()).thenReturn(new Account[]{});
+        AuthStateBus.getInstance(context).update();
+
+        Mockito.verify(listener, Mockito.never()).onLogout(Mockito.any(Context.class));
+    }
+
+    public void testPrewarm() throws Exception {
+        final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
+        final Properties properties = AuthConfigTest.newProperties();
+        properties.setProperty("pivotal.auth.tokenUrl", "http://" + UUID.randomUUID().toString() + ".com");
+
+        Pivotal.setProperties(properties);
+        AuthRuntime.setAccountsProxy(accountsProxy);
+        Mockito.when(accountsProxy.getAccounts()).thenReturn(new Account[]{});
+        AuthRuntime.setTokenStore(Mockito.mock(TokenStore.class));
+        AuthRuntime.setAuthClient(Mockito.mock(AuthClient.class));
+
+        final Future<Void> future = Auth.prewarm(mContext);
+
+        assertNull(future.get(5, TimeUnit.SECONDS));
+        assertSame(future, Auth.prewarm(mContext));
+        assertNotNull(AuthRuntime.getRemoteAuthenticator());
+
+        Mockito.verify(accountsProxy, Mockito.times(2)).getAccounts();
+        Mockito.verify(accountsProxy).addOnAccountsUpdatedListener(AuthStateBus.getInstance(mContext));
+
+        AuthRuntime.reset();
+        Pivotal.setProperties(null);
+    }
+
+    public void testPrewarmRetriesAfterFailure() throws Exception {
+        final AccountsProxy accountsProxy = Mockito.mock(AccountsProxy.class);
+        final Properties properties = AuthConfigTest.newProperties();
+        properties.setProperty("pivotal.auth.tokenUrl", "http://" + UUID.randomUUID().toString() + ".com");
+
+        Pivotal.setProperties(properties);
+        AuthRuntime.setAccountsProxy(accountsProxy);
+        Mockito.when(accountsProxy.getAccounts()).thenThrow(new IllegalStateException()).thenReturn(new Account[]{});
+        AuthRuntime.setTokenStore(Mockito.mock(TokenStore.class));
+        AuthRuntime.setAuthClient(Mockito.mock(AuthClient.class));
+
+        final Future<Void> failed = Auth.prewarm(mContext);
+
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        final Future<Void> future = Auth.prewarm(mContext);
+
+        assertNotSame(failed, future);
+        assertNull(future.get(5, TimeUnit.SECONDS));
+
+        AuthRuntime.reset();
+        Pivotal.setProperties(null);
     }
 
     public void testShouldShowUserPrompt() {
         final boolean enabled = new Random().nextBoolean();
         final AuthClient client = Mockito.mock(AuthClient.class);
 
-        AuthClientHolder.init(client);
+        AuthRuntime.setAuthClient(client);
 
         Auth.setShouldShowUserPrompt(null, enabled);
 
         Mockito.verify(client).setShouldShowUserPrompt(enabled);
     }
+
+    public void testSetExecutor() {
+        final ExecutorService executor = Mockito.mock(ExecutorService.class);
+
+        Auth.setExecutor(executor);
+
+        assertEquals(executor, AuthExecutor.get());
+
+        AuthExecutor.init(null);
+    }
+
+    public void testSetTokenStore() {
+        final TokenStore store = Mockito.mock(TokenStore.class);
+
+        Auth.setTokenStore(store);
+
+        assertEquals(store, AuthRuntime.getTokenStore(mContext));
+
+        AuthRuntime.setTokenStore(null);
+    }
+
+    public void testSetMetrics() {
+        final AuthMetrics metrics = Mockito.mock(AuthMetrics.class);
+
+        Auth.setMetrics(metrics);
+
+        assertEquals(metrics, Auth.getMetrics());
+
+        Auth.setMetrics(null);
+
+        assertTrue(Auth.getMetrics() instanceof AuthMetrics.Default);
+        assertSame(Auth.getMetrics(), Auth.getMetrics());
+
+        AuthRuntime.setMetrics(null);
+    }
+
+    public void testSetHttpTransport() {
+        final HttpTransport transport = Mockito.mock(HttpTransport.class);
+
+        Auth.setHttpTransport(transport);
+
+        assertEquals(transport, AuthHttpTransport.get());
+
+        AuthHttpTransport.init(null);
+    }
+
+    public void testSetHttpTransportKeepsCustomRemoteAuthenticator() {
+        final RemoteAuthenticator authenticator = Mockito.mock(RemoteAuthenticator.class);
+
+        AuthRuntime.setRemoteAuthenticator(authenticator);
+        Auth.setHttpTransport(Mockito.mock(HttpTransport.class));
+
+        assertSame(authenticator, AuthRuntime.getRemoteAuthenticator());
+
+        AuthHttpTransport.init(null);
+        AuthRuntime.setRemoteAuthenticator(null);
+    }
+
+    public void testShouldRefreshAhead() {
+        Auth.setShouldRefreshAhead(mContext, true);
+
+        assertTrue(TokenRefreshScheduler.getInstance(mContext).isEnabled());
+
+        Auth.setShouldRefreshAhead(mContext, false);
+
+        assertFalse(TokenRefreshScheduler.getInstance(mContext).isEnabled());
+    }
 }
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.accounts.Account;
+import android.os.Build;
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.RandomAccessFile;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.UUID;
+
+public class EncryptedFileTokenStoreTest extends AndroidTestCase {
+
+    private static final String ACCESS_TOKEN = UUID.randomUUID().toString();
+    private static final String REFRESH_TOKEN = UUID.randomUUID().toString();
+    private static final String ACCOUNT_NAME = UUID.randomUUID().toString();
+    private static final String ACCOUNT_TYPE = UUID.randomUUID().toString();
+
+    private static final Account ACCOUNT = new Account(ACCOUNT_NAME, ACCOUNT_TYPE);
+
+    private File mDirectory;
+    private File mKeyDirectory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mDirectory = new File(mContext.getCacheDir(), UUID.randomUUID().toString());
+        mDirectory.mkdirs();
+        mKeyDirectory = new File(mContext.getCacheDir(), UUID.randomUUID().toString());
+        mKeyDirectory.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        delete(mDirectory);
+        delete(mKeyDirectory);
+    }
+
+    public void testEmptyStore() {
+        final EncryptedFileTokenStore store = new EncryptedFileTokenStore(mDirectory);
+
+        assertNull(store.getRefreshToken(ACCOUNT));
+        assertNull(store.getAccessToken(ACCOUNT));
+    }
+
+    public void testTokensArePersisted() {
+        final EncryptedFileTokenStore store = new EncryptedFileTokenStore(mDirectory);
+        store.setRefreshToken(ACCOUNT, REFRESH_TOKEN);
+        store.setAccessToken(ACCOUNT, ACCESS_TOKEN);
+
+        assertEquals(REFRESH_TOKEN, store.getRefreshToken(ACCOUNT));
+        assertEquals(ACCESS_TOKEN, store.getAccessToken(ACCOUNT));
+
+        final EncryptedFileTokenStore reopened = new EncryptedFileTokenStore(mDirectory);
+
+        assertEquals(REFRESH_TOKEN, reopened.getRefreshToken(ACCOUNT));
+        assertEquals(ACCESS_TOKEN, reopened.getAccessToken(ACCOUNT));
+    }
+
+    public void testFileDoesNotContainTokens() throws Exception {
+        final EncryptedFileTokenStore store = new EncryptedFileTokenStore(mDirectory);
+        store.setRefreshToken(ACCOUNT, REFRESH_TOKEN);
+
+        final File file = new File(mDirectory, "pivotal-tokens");
+        final byte[] bytes = new byte[(int) file.length()];
+        final FileInputStream input = new FileInputStream(file);
+        try {
+            assertEquals(bytes.length, input.read(bytes));
+        } finally {
+            input.close();
+        }
+
+        assertFalse(new String(bytes, "ISO-8859-1").contains(REFRESH_TOKEN));
+        assertFalse(new File(mDirectory, "pivotal-tokens.tmp").exists());
+    }
+
+    public void testInvalidateAccessToken() {
+        final EncryptedFileTokenStore store = new EncryptedFileTokenStore(mDirectory);
+        store.setRefreshToken(ACCOUNT, REFRESH_TOKEN);
+        store.setAccessToken(ACCOUNT, ACCESS_TOKEN);
+
+        store.invalidateAccessToken(UUID.randomUUID().toString(), ACCESS_TOKEN);
+        assertEquals(ACCESS_TOKEN, store.getAccessToken(ACCOUNT));
+
+        store.invalidateAccessToken(ACCOUNT_TYPE, ACCESS_TOKEN);
+        assertNull(store.getAccessToken(ACCOUNT));
+        assertEquals(REFRESH_TOKEN, store.getRefreshToken(ACCOUNT));
+        assertNull(new EncryptedFileTokenStore(mDirectory).getAccessToken(ACCOUNT));
+    }
+
+    public void testRemove() {
+        final EncryptedFileTokenStore store = new EncryptedFileTokenStore(mDirectory);
+        store.setRefreshToken(ACCOUNT, REFRESH_TOKEN);
+
+        store.remove(ACCOUNT);
+
+        assertNull(store.getRefreshToken(ACCOUNT));
+        assertNull(new EncryptedFileTokenStore(mDirectory).getRefreshToken(ACCOUNT));
+    }
+
+    public void testTamperedFileIsIgnored() throws Exception {
+        final EncryptedFileTokenStore store = new EncryptedFileTokenStore(mDirectory);
+        store.setRefreshToken(ACCOUNT, REFRESH_TOKEN);
+
+        final RandomAccessFile file = new RandomAccessFile(new File(mDirectory, "pivotal-tokens"), "rw");
+        try {
+            file.seek(20);
+            final int value = file.read();
+            file.seek(20);
+            file.write(value ^ 0xFF);
+        } finally {
+            file.close();
+        }
+
+        assertNull(new EncryptedFileTokenStore(mDirectory).getRefreshToken(ACCOUNT));
+    }
+
+    public void testKeysAreWrapped() throws Exception {
+        final EncryptedFileTokenStore store = new EncryptedFileTokenStore(mDirectory, mKeyDirectory, new XorKeyWrapper());
+        store.setRefreshToken(ACCOUNT, REFRESH_TOKEN);
+
+        assertFalse(new File(mDirectory, "pivotal-tokens.key").exists());
+        assertEquals(1, readFully(new File(mKeyDirectory, "pivotal-tokens.key"))[0]);
+
+        final EncryptedFileTokenStore reopened = new EncryptedFileTokenStore(mDirectory, mKeyDirectory, new XorKeyWrapper());
+        assertEquals(REFRESH_TOKEN, reopened.getRefreshToken(ACCOUNT));
+    }
+
+    public void testLegacyKeysAreMovedAndWrapped() throws Exception {
+        final EncryptedFileTokenStore legacy = new EncryptedFileTokenStore(mDirectory);
+        legacy.setRefreshToken(ACCOUNT, REFRESH_TOKEN);
+        assertEquals(0, readFully(new File(mDirectory, "pivotal-tokens.key"))[0]);
+
+        final EncryptedFileTokenStore store = new EncryptedFileTokenStore(mDirectory, mKeyDirectory, new XorKeyWrapper());
+        assertEquals(REFRESH_TOKEN, store.getRefreshToken(ACCOUNT));
+
+        assertFalse(new File(mDirectory, "pivotal-tokens.key").exists());
+        assertEquals(1, readFully(new File(mKeyDirectory, "pivotal-tokens.key"))[0]);
+    }
+
+    public void testRawKeysInSameDirectoryAreWrappedInPlace() throws Exception {
+        final EncryptedFileTokenStore legacy = new EncryptedFileTokenStore(mDirectory);
+        legacy.setRefreshToken(ACCOUNT, REFRESH_TOKEN);
+
+        final EncryptedFileTokenStore store = new EncryptedFileTokenStore(mDirectory, mDirectory, new XorKeyWrapper());
+        assertEquals(REFRESH_TOKEN, store.getRefreshToken(ACCOUNT));
+        assertEquals(1, readFully(new File(mDirectory, "pivotal-tokens.key"))[0]);
+
+        final EncryptedFileTokenStore reopened = new EncryptedFileTokenStore(mDirectory, mDirectory, new XorKeyWrapper());
+        assertEquals(REFRESH_TOKEN, reopened.getRefreshToken(ACCOUNT));
+    }
+
+    public void testUnwrapFailureKeepsKeysAndTokens() throws Exception {
+        final EncryptedFileTokenStore store = new EncryptedFileTokenStore(mDirectory, mKeyDirectory, new XorKeyWrapper());
+        store.setRefreshToken(ACCOUNT, REFRESH_TOKEN);
+        final byte[] keys = readFully(new File(mKeyDirectory, "pivotal-tokens.key"));
+
+        final EncryptedFileTokenStore failing = new EncryptedFileTokenStore(mDirectory, mKeyDirectory, new FailingKeyWrapper());
+        assertNull(failing.getRefreshToken(ACCOUNT));
+        failing.setAccessToken(ACCOUNT, ACCESS_TOKEN);
+
+        assertTrue(Arrays.equals(keys, readFully(new File(mKeyDirectory, "pivotal-tokens.key"))));
+
+        final EncryptedFileTokenStore reopened = new EncryptedFileTokenStore(mDirectory, mKeyDirectory, new XorKeyWrapper());
+        assertEquals(REFRESH_TOKEN, reopened.getRefreshToken(ACCOUNT));
+        assertNull(reopened.getAccessToken(ACCOUNT));
+    }
+
+    public void testTokensAreLostWithoutWrappingKey() throws Exception {
+        final EncryptedFileTokenStore store = new EncryptedFileTokenStore(mDirectory, mKeyDirectory, new XorKeyWrapper());
+        store.setRefreshToken(ACCOUNT, REFRESH_TOKEN);
+
+        final EncryptedFileTokenStore restored = new EncryptedFileTokenStore(mDirectory, mKeyDirectory, new LostKeyWrapper());
+        assertNull(restored.getRefreshToken(ACCOUNT));
+
+        restored.setAccessToken(ACCOUNT, ACCESS_TOKEN);
+        assertEquals(ACCESS_TOKEN, new EncryptedFileTokenStore(mDirectory, mKeyDirectory, new XorKeyWrapper()).getAccessToken(ACCOUNT));
+    }
+
+    public void testKeyStoreWrapper() throws Exception {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            return;
+        }
+        final EncryptedFileTokenStore.KeyWrapper wrapper = new EncryptedFileTokenStore.KeyStoreWrapper(mContext, UUID.randomUUID().toString());
+        final byte[] keys = UUID.randomUUID().toString().getBytes("UTF-8");
+
+        final byte[] wrapped = wrapper.wrap(keys);
+
+        assertFalse(Arrays.equals(keys, wrapped));
+        assertTrue(Arrays.equals(keys, wrapper.unwrap(wrapped)));
+    }
+
+
+    // ====================================
+
+
+    private static byte[] readFully(final File file) throws Exception {
+        final byte[] bytes = new byte[(int) file.length()];
+        final FileInputStream input = new FileInputStream(file);
+        try {
+            assertEquals(bytes.length, input.read(bytes));
+        } finally {
+            input.close();
+        }
+        return bytes;
+    }
+
+    private static void delete(final File directory) {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static final class XorKeyWrapper implements EncryptedFileTokenStore.KeyWrapper {
+
+        @Override
+        public byte[] wrap(final byte[] keys) {
+            final byte[] wrapped = new byte[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                wrapped[i] = (byte) (keys[i] ^ 0x5A);
+            }
+            return wrapped;
+        }
+
+        @Override
+        public byte[] unwrap(final byte[] wrapped) {
+            return wrap(wrapped);
+        }
+    }
+
+    private static final class LostKeyWrapper implements EncryptedFileTokenStore.KeyWrapper {
+
+        @Override
+        public byte[] wrap(final byte[] keys) {
+            return new XorKeyWrapper().wrap(keys);
+        }
+
+        @Override
+        public byte[] unwrap(final byte[] wrapped) {
+            return null;
+        }
+    }
+
+    private static final class FailingKeyWrapper implements EncryptedFileTokenStore.KeyWrapper {
+
+        @Override
+        public byte[] wrap(final byte[] keys) throws GeneralSecurityException {
+            throw new GeneralSecurityException();
+        }
+
+        @Override
+        public byte[] unwrap(final byte[] wrapped) throws GeneralSecurityException {
+            throw new GeneralSecurityException();
+        }
+    }
+}
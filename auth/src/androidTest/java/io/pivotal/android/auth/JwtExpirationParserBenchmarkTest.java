@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.os.Debug;
+import android.test.AndroidTestCase;
+
+import java.util.UUID;
+
+public class JwtExpirationParserBenchmarkTest extends AndroidTestCase {
+
+    private static final int WARM_UP = 200;
+    private static final int ITERATIONS = 2000;
+
+    private static final String TOKEN = JwtExpirationParserTest.getUrlSafeToken(
+        "{\"jti\":\"" + UUID.randomUUID() + "\",\"sub\":\"" + UUID.randomUUID() + "\"," +
+        "\"scope\":[\"openid\",\"offline_access\"],\"client_id\":\"android\",\"iat\":1400000000," +
+        "\"exp\":1400043200,\"iss\":\"https://login.example.com/oauth/token\",\"aud\":[\"openid\"]}"
+    );
+
+    // timings and allocation counts vary with the device, GC and JIT, so
+    // they are only logged, the run itself checks that both parsers agree
+    public void testStreamingParserMatchesJackson() {
+        final long expected = TokenUtil.getClaims(TOKEN).getExpiration();
+
+        final Measurement streaming = measure(new Parser() {
+            @Override
+            public long parse(final String token) {
+                return JwtExpirationParser.parse(token);
+            }
+        }, expected);
+
+        final Measurement jackson = measure(new Parser() {
+            @Override
+            public long parse(final String token) {
+                return TokenUtil.getClaims(token).getExpiration();
+            }
+        }, expected);
+
+        Logger.i("JwtExpirationParser: " + streaming.allocations + " allocations, " + streaming.nanos / ITERATIONS + "ns per token.");
+        Logger.i("ObjectMapper: " + jackson.allocations + " allocations, " + jackson.nanos / ITERATIONS + "ns per token.");
+    }
+
+
+    // ====================================
+
+
+    private static Measurement measure(final Parser parser, final long expected) {
+        for (int i = 0; i < WARM_UP; i++) {
+            assertEquals(expected, parser.parse(TOKEN));
+        }
+
+        final Measurement measurement = new Measurement();
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+
+        final long start = System.nanoTime();
+        long result = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            result += parser.parse(TOKEN);
+        }
+        measurement.nanos = System.nanoTime() - start;
+
+        Debug.stopAllocCounting();
+        measurement.allocations = Debug.getThreadAllocCount();
+
+        assertEquals(expected * ITERATIONS, result);
+        return measurement;
+    }
+
+    private interface Parser {
+        long parse(String token);
+    }
+
+    private static final class Measurement {
+        public int allocations;
+        public long nanos;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.test.AndroidTestCase;
+import android.util.Base64;
+
+import java.util.UUID;
+
+public class JwtExpirationParserTest extends AndroidTestCase {
+
+    private static final long EXPIRATION = 1400000000L;
+
+    public void testParseNumericExpiration() {
+        assertEquals(EXPIRATION, JwtExpirationParser.parse(getUrlSafeToken("{\"exp\":" + EXPIRATION + "}")));
+    }
+
+    public void testParseQuotedExpiration() {
+        assertEquals(EXPIRATION, JwtExpirationParser.parse(getToken("{ \"exp\": \"" + EXPIRATION + "\" }")));
+    }
+
+    public void testParseIgnoresNestedExpiration() {
+        final String payload = "{\"a\":{\"exp\":5},\"b\":[1,{\"exp\":6}],\"exp\" : " + EXPIRATION + " }";
+        assertEquals(EXPIRATION, JwtExpirationParser.parse(getUrlSafeToken(payload)));
+    }
+
+    public void testParseIgnoresStringValues() {
+        final String payload = "{\"sub\":\"exp\",\"scope\":[\"openid\"],\"exp\":" + EXPIRATION + "}";
+        assertEquals(EXPIRATION, JwtExpirationParser.parse(getUrlSafeToken(payload)));
+    }
+
+    public void testParseSkipsLineBreaksInPayload() {
+        final String payload = "{\"sub\":\"" + UUID.randomUUID() + UUID.randomUUID() + "\",\"exp\":" + EXPIRATION + "}";
+        assertEquals(EXPIRATION, JwtExpirationParser.parse(getToken(payload)));
+    }
+
+    public void testParseWithoutExpiration() {
+        assertEquals(TokenUtil.UNKNOWN_EXPIRATION, JwtExpirationParser.parse(getUrlSafeToken("{\"expx\":1,\"ex\":2}")));
+    }
+
+    public void testParseWithoutPayloadSegment() {
+        assertEquals(JwtExpirationParser.MALFORMED, JwtExpirationParser.parse(UUID.randomUUID().toString()));
+    }
+
+    public void testParseWithEscapedKey() {
+        assertEquals(JwtExpirationParser.MALFORMED, JwtExpirationParser.parse(getUrlSafeToken("{\"e\\u0078p\":1}")));
+    }
+
+    public void testParseWithFractionalExpiration() {
+        assertEquals(JwtExpirationParser.MALFORMED, JwtExpirationParser.parse(getUrlSafeToken("{\"exp\":1.5}")));
+    }
+
+    public void testParseWithNullExpiration() {
+        assertEquals(JwtExpirationParser.MALFORMED, JwtExpirationParser.parse(getUrlSafeToken("{\"exp\":null}")));
+    }
+
+    public void testParseWithTruncatedPayload() {
+        assertEquals(JwtExpirationParser.MALFORMED, JwtExpirationParser.parse(getUrlSafeToken("{\"sub\":\"")));
+    }
+
+
+    // ====================================
+
+
+    /* package */ static String getUrlSafeToken(final String payload) {
+        final int flags = Base64.URL_SAFE | Base64.NO_WRAP | Base64.NO_PADDING;
+        return "header." + Base64.encodeToString(payload.getBytes(), flags) + ".signature";
+    }
+
+    private static String getToken(final String payload) {
+        return "." + Base64.encodeToString(payload.getBytes(), Base64.DEFAULT);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.test.AndroidTestCase;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+public class LogBufferTest extends AndroidTestCase {
+
+    private static final String MESSAGE_1 = UUID.randomUUID().toString();
+    private static final String MESSAGE_2 = UUID.randomUUID().toString();
+
+    public void testInvalidCapacity() {
+        try {
+            new LogBuffer(3);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            assertNotNull(e);
+        }
+    }
+
+    public void testPollEmptyBuffer() {
+        final LogBuffer buffer = new LogBuffer(4);
+
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.poll());
+    }
+
+    public void testMessagesArePolledInOrder() {
+        final LogBuffer buffer = new LogBuffer(4);
+
+        assertTrue(buffer.offer(MESSAGE_1));
+        assertTrue(buffer.offer(MESSAGE_2));
+
+        assertFalse(buffer.isEmpty());
+        assertEquals(MESSAGE_1, buffer.poll());
+        assertEquals(MESSAGE_2, buffer.poll());
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    public void testOverflowDropsAndCountsMessages() {
+        final LogBuffer buffer = new LogBuffer(2);
+
+        assertTrue(buffer.offer(MESSAGE_1));
+        assertTrue(buffer.offer(MESSAGE_1));
+        assertFalse(buffer.offer(MESSAGE_2));
+        assertFalse(buffer.offer(MESSAGE_2));
+
+        assertEquals(2, buffer.getDroppedCount());
+        assertEquals(MESSAGE_1, buffer.poll());
+        assertTrue(buffer.offer(MESSAGE_2));
+        assertEquals(MESSAGE_1, buffer.poll());
+        assertEquals(MESSAGE_2, buffer.poll());
+    }
+
+    public void testSlotsAreReusedAfterWrapping() {
+        final LogBuffer buffer = new LogBuffer(2);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(buffer.offer(String.valueOf(i)));
+            assertEquals(String.valueOf(i), buffer.poll());
+        }
+        assertEquals(0, buffer.getDroppedCount());
+    }
+
+    public void testConcurrentProducers() throws Exception {
+        final int producers = 4;
+        final int messages = 200;
+        final LogBuffer buffer = new LogBuffer(1024);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(producers);
+
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < messages; i++) {
+                            buffer.offer(producer + ":" + i);
+                        }
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        start.countDown();
+        done.await();
+
+        final Set<String> received = new HashSet<String>();
+        String message;
+        while ((message = buffer.poll()) != null) {
+            assertTrue(received.add(message));
+        }
+
+        assertEquals(0, buffer.getDroppedCount());
+        assertEquals(producers * messages, received.size());
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.List;
+import java.util.UUID;
+
+public class LogFileSinkTest extends AndroidTestCase {
+
+    private static final String MESSAGE_1 = UUID.randomUUID().toString();
+    private static final String MESSAGE_2 = UUID.randomUUID().toString();
+
+    private File mDirectory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mDirectory = new File(mContext.getCacheDir(), UUID.randomUUID().toString());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        final File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    public void testInvalidArguments() {
+        try {
+            new LogFileSink(mDirectory, 0, 1);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            assertNotNull(e);
+        }
+    }
+
+    public void testWriteAndExport() throws Exception {
+        final LogFileSink sink = new LogFileSink(mDirectory, 1024, 2);
+
+        sink.write(Log.INFO, MESSAGE_1);
+        sink.write(Log.ERROR, MESSAGE_2);
+
+        final String exported = export(sink);
+        final String[] lines = exported.split("\n");
+
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].endsWith(" I " + MESSAGE_1));
+        assertTrue(lines[1].endsWith(" E " + MESSAGE_2));
+        assertEquals(1, sink.getSegments().size());
+    }
+
+    public void testRollsOverAndCapsSegments() throws Exception {
+        final LogFileSink sink = new LogFileSink(mDirectory, 64, 2);
+
+        for (int i = 0; i < 5; i++) {
+            sink.write(Log.INFO, MESSAGE_1);
+        }
+
+        final List<File> segments = sink.getSegments();
+        assertEquals(2, segments.size());
+        assertEquals("segment-4.log", segments.get(0).getName());
+        assertEquals("segment-5.log", segments.get(1).getName());
+        assertEquals(64, segments.get(1).length());
+
+        assertEquals(2, export(sink).split("\n").length);
+    }
+
+    public void testNewSinkStartsNewSegment() throws Exception {
+        final LogFileSink first = new LogFileSink(mDirectory, 1024, 4);
+        first.write(Log.INFO, MESSAGE_1);
+        first.flush();
+
+        final LogFileSink second = new LogFileSink(mDirectory, 1024, 4);
+        second.write(Log.INFO, MESSAGE_2);
+
+        assertEquals(2, second.getSegments().size());
+
+        final String[] lines = export(second).split("\n");
+        assertTrue(lines[0].endsWith(MESSAGE_1));
+        assertTrue(lines[1].endsWith(MESSAGE_2));
+    }
+
+    public void testLongMessageIsTruncated() throws Exception {
+        final LogFileSink sink = new LogFileSink(mDirectory, 16, 1);
+
+        sink.write(Log.INFO, MESSAGE_1);
+
+        final String exported = export(sink);
+        assertEquals(16, exported.length());
+        assertTrue(exported.endsWith("\n"));
+    }
+
+    public void testLongMessageIsTruncatedOnCharacterBoundary() throws Exception {
+        final LogFileSink sink = new LogFileSink(mDirectory, 32, 1);
+
+        // a 16 byte prefix leaves 15 bytes, the 8th two byte character does not fit
+        sink.write(Log.INFO, "\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9");
+
+        final String exported = export(sink);
+        assertTrue(exported.endsWith(" I \u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\n"));
+        assertEquals(-1, exported.indexOf('\ufffd'));
+    }
+
+    public void testPreparesNextSegmentInBackground() throws Exception {
+        final LogFileSink sink = new LogFileSink(mDirectory, 1024, 2);
+
+        sink.write(Log.INFO, MESSAGE_1);
+
+        final File next = new File(mDirectory, "segment-2.log.next");
+        while (!next.exists()) {
+            Thread.sleep(5);
+        }
+
+        assertEquals(1, sink.getSegments().size());
+        assertEquals("segment-1.log", sink.getSegments().get(0).getName());
+    }
+
+    public void testBacksOffAfterFailure() throws Exception {
+        assertTrue(mDirectory.createNewFile());
+
+        final LogFileSink sink = new LogFileSink(mDirectory, 1024, 2, 60 * 1000);
+        sink.write(Log.INFO, MESSAGE_1);
+
+        assertTrue(mDirectory.delete());
+        sink.write(Log.INFO, MESSAGE_2);
+
+        assertTrue(sink.getSegments().isEmpty());
+    }
+
+    public void testRetryAfterFailureKeepsSegmentIndex() throws Exception {
+        assertTrue(mDirectory.createNewFile());
+
+        final LogFileSink sink = new LogFileSink(mDirectory, 1024, 2, 0);
+        sink.write(Log.INFO, MESSAGE_1);
+        sink.write(Log.INFO, MESSAGE_1);
+
+        assertTrue(mDirectory.delete());
+        sink.write(Log.INFO, MESSAGE_2);
+
+        final List<File> segments = sink.getSegments();
+        assertEquals(1, segments.size());
+        assertEquals("segment-1.log", segments.get(0).getName());
+        assertTrue(export(sink).endsWith(MESSAGE_2 + "\n"));
+    }
+
+
+    // ====================================
+
+
+    private static String export(final LogFileSink sink) throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        sink.export(output);
+        return output.toString("UTF-8");
+    }
+}
@@ -44,8 +44,8 @@ public class LoginActivityTest extends AndroidTestCase {
     protected void tearDown() throws Exception {
         super.tearDown();
 
-        AccountsProxyHolder.init(null);
-        RemoteAuthenticatorHolder.init(null);
+        AuthRuntime.setAccountsProxy(null);
+        AuthRuntime.setRemoteAuthenticator(null);
     }
 
     public void testFetchTokenWithAuthCodeGrantTypeWithWebView() {
@@ -121,7 +121,7 @@ public class LoginActivityTest extends AndroidTestCase {
         Mockito.doNothing().when(activity).setResultIntent(token, USERNAME);
         Mockito.doNothing().when(activity).finish();
 
-        AccountsProxyHolder.init(provider);
+        AuthRuntime.setAccountsProxy(provider);
 
         activity.onAuthorizationComplete(token);
 
@@ -141,7 +141,7 @@ public class LoginActivityTest extends AndroidTestCase {
         Mockito.doReturn(new Account[] {account}).when(provider).getAccounts();
         Mockito.doNothing().when(activity).onAuthorizationFailed(Mockito.any(Error.class));
 
-        AccountsProxyHolder.init(provider);
+        AuthRuntime.setAccountsProxy(provider);
 
         activity.onAuthorizationComplete(token);
 
@@ -160,7 +160,7 @@ public class LoginActivityTest extends AndroidTestCase {
         Mockito.doReturn(intent).when(activity).getResultIntent(token, USERNAME);
         Mockito.when(intent.getExtras()).thenReturn(bundle);
 
-        AccountsProxyHolder.init(provider);
+        AuthRuntime.setAccountsProxy(provider);
 
         activity.setResultIntent(token, USERNAME);
 
@@ -178,7 +178,7 @@ public class LoginActivityTest extends AndroidTestCase {
 
         Mockito.when(token.getAccessToken()).thenReturn(ACCESS_TOKEN);
 
-        AccountsProxyHolder.init(provider);
+        AuthRuntime.setAccountsProxy(provider);
         final Intent intent = activity.getResultIntent(token, USERNAME);
 
         assertEquals(Pivotal.getAccountType(), intent.getStringExtra(AccountManager.KEY_ACCOUNT_TYPE));
@@ -7,8 +7,10 @@ import android.accounts.AccountAuthenticatorActivity;
 import android.app.Activity;
 import android.content.Context;
 import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
+import android.os.Bundle;
 import android.test.AndroidTestCase;
 
 import org.mockito.Mockito;
@@ -23,6 +25,14 @@ public class PackageUtilsTest extends AndroidTestCase {
     protected void setUp() throws Exception {
         super.setUp();
         System.setProperty("dexmaker.dexcache", mContext.getCacheDir().getPath());
+        PackageUtils.reset();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        PackageUtils.reset();
     }
 
     public void testGetLoginActivityClassThrowsExceptionWhenPackageInfoNotFound() throws Exception {
@@ -171,6 +181,81 @@ public class PackageUtilsTest extends AndroidTestCase {
         Mockito.verify(manager).getPackageInfo(PACKAGE, PackageManager.GET_ACTIVITIES);
     }
 
+    public void testGetLoginActivityClassUsesMetaDataWithoutScanning() throws Exception {
+        final Context context = Mockito.mock(Context.class);
+        final PackageManager manager = Mockito.mock(PackageManager.class);
+        final ApplicationInfo application = new ApplicationInfo();
+        application.metaData = new Bundle();
+        application.metaData.putString(PackageUtils.LOGIN_ACTIVITY, TestLoginActivity.class.getName());
+
+        Mockito.when(context.getPackageManager()).thenReturn(manager);
+        Mockito.when(context.getPackageName()).thenReturn(PACKAGE);
+        Mockito.when(manager.getApplicationInfo(PACKAGE, PackageManager.GET_META_DATA)).thenReturn(application);
+
+        assertEquals(TestLoginActivity.class, PackageUtils.getLoginActivityClass(context));
+
+        Mockito.verify(manager).getApplicationInfo(PACKAGE, PackageManager.GET_META_DATA);
+        Mockito.verify(manager, Mockito.never()).getPackageInfo(Mockito.anyString(), Mockito.anyInt());
+    }
+
+    public void testGetLoginActivityClassThrowsExceptionWhenMetaDataIsNotLoginActivity() throws Exception {
+        final Context context = Mockito.mock(Context.class);
+        final PackageManager manager = Mockito.mock(PackageManager.class);
+        final ApplicationInfo application = new ApplicationInfo();
+        application.metaData = new Bundle();
+        application.metaData.putString(PackageUtils.LOGIN_ACTIVITY, TestActivity.class.getName());
+
+        Mockito.when(context.getPackageManager()).thenReturn(manager);
+        Mockito.when(context.getPackageName()).thenReturn(PACKAGE);
+        Mockito.when(manager.getApplicationInfo(PACKAGE, PackageManager.GET_META_DATA)).thenReturn(application);
+
+        try {
+            PackageUtils.getLoginActivityClass(context);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertNotNull(e);
+        }
+    }
+
+    public void testGetLoginActivityClassScansActivitiesWithoutMetaData() throws Exception {
+        final Context context = Mockito.mock(Context.class);
+        final PackageManager manager = Mockito.mock(PackageManager.class);
+        final ActivityInfo activity = new ActivityInfo();
+        activity.name = TestLoginActivity.class.getName();
+        final PackageInfo info = new PackageInfo();
+        info.activities = new ActivityInfo[]{activity};
+
+        Mockito.when(context.getPackageManager()).thenReturn(manager);
+        Mockito.when(context.getPackageName()).thenReturn(PACKAGE);
+        Mockito.when(manager.getApplicationInfo(PACKAGE, PackageManager.GET_META_DATA)).thenReturn(new ApplicationInfo());
+        Mockito.when(manager.getPackageInfo(PACKAGE, PackageManager.GET_ACTIVITIES)).thenReturn(info);
+
+        assertEquals(TestLoginActivity.class, PackageUtils.getLoginActivityClass(context));
+
+        Mockito.verify(manager).getApplicationInfo(PACKAGE, PackageManager.GET_META_DATA);
+        Mockito.verify(manager).getPackageInfo(PACKAGE, PackageManager.GET_ACTIVITIES);
+    }
+
+    public void testGetLoginActivityClassIsResolvedOnce() throws Exception {
+        final Context context = Mockito.mock(Context.class);
+        final PackageManager manager = Mockito.mock(PackageManager.class);
+        final ActivityInfo activity = new ActivityInfo();
+        activity.name = TestLoginActivity.class.getName();
+        final PackageInfo info = new PackageInfo();
+        info.activities = new ActivityInfo[]{activity};
+
+        Mockito.when(context.getPackageManager()).thenReturn(manager);
+        Mockito.when(context.getPackageName()).thenReturn(PACKAGE);
+        Mockito.when(manager.getPackageInfo(PACKAGE, PackageManager.GET_ACTIVITIES)).thenReturn(info);
+
+        assertEquals(TestLoginActivity.class, PackageUtils.getLoginActivityClass(context));
+        assertEquals(TestLoginActivity.class, PackageUtils.getLoginActivityClass(context));
+
+        Mockito.verify(context).getPackageManager();
+        Mockito.verify(context).getPackageName();
+        Mockito.verify(manager).getPackageInfo(PACKAGE, PackageManager.GET_ACTIVITIES);
+    }
+
     private static final class TestActivity extends Activity {}
     private static final class TestLoginActivity extends AccountAuthenticatorActivity {}
 }
\ No newline at end of file
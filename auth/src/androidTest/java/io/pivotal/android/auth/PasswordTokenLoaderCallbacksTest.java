@@ -7,8 +7,6 @@ import android.content.Loader;
 import android.os.Bundle;
 import android.test.AndroidTestCase;
 
-import com.google.api.client.auth.oauth2.TokenResponse;
-
 import java.util.UUID;
 
 public class PasswordTokenLoaderCallbacksTest extends AndroidTestCase {
@@ -26,7 +24,7 @@ public class PasswordTokenLoaderCallbacksTest extends AndroidTestCase {
 
     public void testOnCreateLoader() {
         final PasswordTokenLoaderCallbacks callbacks = new PasswordTokenLoaderCallbacks(mContext, null);
-        final Loader<TokenResponse> loader = callbacks.onCreateLoader(0, Bundle.EMPTY);
+        final Loader<Token> loader = callbacks.onCreateLoader(0, Bundle.EMPTY);
 
         assertTrue(loader instanceof PasswordTokenLoader);
     }
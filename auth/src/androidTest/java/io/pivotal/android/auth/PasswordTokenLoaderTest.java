@@ -9,7 +9,7 @@ import android.os.Build;
 import android.test.AndroidTestCase;
 
 import com.google.api.client.auth.oauth2.PasswordTokenRequest;
-import com.google.api.client.auth.oauth2.TokenResponse;
+import com.google.api.client.http.HttpResponse;
 
 import org.mockito.Mockito;
 
@@ -20,54 +20,65 @@ public class PasswordTokenLoaderTest extends AndroidTestCase {
 
     private static final String USERNAME = UUID.randomUUID().toString();
     private static final String PASSWORD = UUID.randomUUID().toString();
+    private static final String ACCESS_TOKEN = UUID.randomUUID().toString();
+    private static final String REFRESH_TOKEN = UUID.randomUUID().toString();
+
+    private TokenResponseParser.RequestExecutor mExecutor;
 
     @Override
     protected void setUp() throws Exception {
         super.setUp();
         System.setProperty("dexmaker.dexcache", mContext.getCacheDir().getPath());
+
+        mExecutor = Mockito.mock(TokenResponseParser.RequestExecutor.class);
+        TokenResponseParser.setExecutor(mExecutor);
     }
 
     @Override
     protected void tearDown() throws Exception {
         super.tearDown();
 
-        RemoteAuthenticatorHolder.init(null);
+        TokenResponseParser.setExecutor(null);
+        AuthRuntime.setRemoteAuthenticator(null);
     }
 
-    public void testLoadInBackgroundSucceedsWithTokenResponse() throws Exception {
+    public void testLoadInBackgroundSucceedsWithToken() throws Exception {
         final Context context = Mockito.mock(Context.class);
-        final TokenResponse response = Mockito.mock(TokenResponse.class);
+        final HttpResponse response = TokenResponseParserTest.newHttpResponse(ACCESS_TOKEN, REFRESH_TOKEN);
         final RemoteAuthenticator authenticator = Mockito.mock(RemoteAuthenticator.class);
         final PasswordTokenRequest request = Mockito.mock(PasswordTokenRequest.class);
         final PasswordTokenLoader loader = new PasswordTokenLoader(context, USERNAME, PASSWORD);
 
-        RemoteAuthenticatorHolder.init(authenticator);
+        AuthRuntime.setRemoteAuthenticator(authenticator);
 
         Mockito.when(authenticator.newPasswordTokenRequest(USERNAME, PASSWORD)).thenReturn(request);
-        Mockito.when(request.execute()).thenReturn(response);
+        Mockito.when(mExecutor.execute(request)).thenReturn(response);
+
+        final Token token = loader.loadInBackground();
 
-        assertEquals(response, loader.loadInBackground());
+        assertEquals(ACCESS_TOKEN, token.getAccessToken());
+        assertEquals(REFRESH_TOKEN, token.getRefreshToken());
 
         Mockito.verify(authenticator).newPasswordTokenRequest(USERNAME, PASSWORD);
-        Mockito.verify(request).execute();
+        Mockito.verify(mExecutor).execute(request);
     }
 
-    public void testLoadInBackgroundFailsWithErrorResponse() throws Exception {
+    public void testLoadInBackgroundFailsWithErrorToken() throws Exception {
         final Context context = Mockito.mock(Context.class);
         final RemoteAuthenticator authenticator = Mockito.mock(RemoteAuthenticator.class);
         final PasswordTokenRequest request = Mockito.mock(PasswordTokenRequest.class);
         final PasswordTokenLoader loader = new PasswordTokenLoader(context, USERNAME, PASSWORD);
 
-        RemoteAuthenticatorHolder.init(authenticator);
+        AuthRuntime.setRemoteAuthenticator(authenticator);
 
         Mockito.when(authenticator.newPasswordTokenRequest(USERNAME, PASSWORD)).thenReturn(request);
-        Mockito.doThrow(new RuntimeException()).when(request).execute();
+        Mockito.doThrow(new RuntimeException()).when(mExecutor).execute(request);
 
-        final TokenResponse response = loader.loadInBackground();
+        final Token token = loader.loadInBackground();
 
-        assertTrue(response instanceof TokenLoader.ErrorResponse);
+        assertTrue(token instanceof TokenLoader.ErrorToken);
 
         Mockito.verify(authenticator).newPasswordTokenRequest(USERNAME, PASSWORD);
-        Mockito.verify(request).execute();
+        Mockito.verify(mExecutor).execute(request);
     }
 }
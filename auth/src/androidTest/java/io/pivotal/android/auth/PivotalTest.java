@@ -26,6 +26,46 @@ public class PivotalTest extends AndroidTestCase {
         Pivotal.setProperties(null);
     }
 
+    // the test apk is built with pivotal-config.gradle applied
+    public void testGetPropertiesUsesGeneratedConfig() {
+        final Properties properties = Pivotal.loadGeneratedProperties(Pivotal.GENERATED_CLASS);
+
+        assertEquals("test_client_id", properties.getProperty("pivotal.auth.clientId"));
+        assertEquals("openid offline_access", properties.getProperty("pivotal.auth.scopes"));
+        assertEquals("test_client_id", Pivotal.getClientId());
+    }
+
+    public void testLoadGeneratedProperties() {
+        final Properties properties = Pivotal.loadGeneratedProperties(GeneratedConfig.class.getName());
+
+        assertEquals(GeneratedConfig.PIVOTAL_AUTH_CLIENT_ID, properties.getProperty("pivotal.auth.clientId"));
+    }
+
+    public void testLoadGeneratedPropertiesWithInvalidClass() {
+        assertNull(Pivotal.loadGeneratedProperties(Object.class.getName()));
+        assertNull(Pivotal.loadGeneratedProperties("io.pivotal.android.auth.Missing"));
+    }
+
+    public void testGetConfigIsCached() {
+        Pivotal.setProperties(AuthConfigTest.newProperties());
+
+        assertSame(Pivotal.getConfig(), Pivotal.getConfig());
+    }
+
+    public void testSetPropertiesResetsConfig() {
+        final Properties properties = AuthConfigTest.newProperties();
+        properties.setProperty("pivotal.auth.tokenType", "first");
+        Pivotal.setProperties(properties);
+
+        assertEquals("first", Pivotal.getConfig().getTokenType());
+
+        final Properties updated = AuthConfigTest.newProperties();
+        updated.setProperty("pivotal.auth.tokenType", "second");
+        Pivotal.setProperties(updated);
+
+        assertEquals("second", Pivotal.getConfig().getTokenType());
+    }
+
     public void testGetSucceeds() {
         final String key = "key";
         final String value = "value";
@@ -53,10 +93,36 @@ public class PivotalTest extends AndroidTestCase {
         }
     }
 
+    public void testGetWithDefaultValue() {
+        final Properties properties = new Properties();
+        properties.setProperty("key", "value");
+
+        Pivotal.setProperties(properties);
+        assertEquals("value", Pivotal.get("key", "default"));
+        assertEquals("default", Pivotal.get("missing", "default"));
+    }
+
+    public void testGetTimeoutsDefault() {
+        Pivotal.setProperties(AuthConfigTest.newProperties());
+
+        assertEquals(20000, Pivotal.getConnectTimeout());
+        assertEquals(20000, Pivotal.getReadTimeout());
+    }
+
+    public void testGetTimeouts() {
+        final Properties properties = AuthConfigTest.newProperties();
+        properties.setProperty("pivotal.auth.connectTimeout", "1000");
+        properties.setProperty("pivotal.auth.readTimeout", "2000");
+        Pivotal.setProperties(properties);
+
+        assertEquals(1000, Pivotal.getConnectTimeout());
+        assertEquals(2000, Pivotal.getReadTimeout());
+    }
+
     public void testGetClientId() {
         final String value = UUID.randomUUID().toString();
 
-        final Properties properties = new Properties();
+        final Properties properties = AuthConfigTest.newProperties();
         properties.setProperty("pivotal.auth.clientId", value);
         Pivotal.setProperties(properties);
 
@@ -66,7 +132,7 @@ public class PivotalTest extends AndroidTestCase {
     public void testGetClientSecret() {
         final String value = UUID.randomUUID().toString();
 
-        final Properties properties = new Properties();
+        final Properties properties = AuthConfigTest.newProperties();
         properties.setProperty("pivotal.auth.clientSecret", value);
         Pivotal.setProperties(properties);
 
@@ -76,7 +142,7 @@ public class PivotalTest extends AndroidTestCase {
     public void testGetAuthorizeUrl() {
         final String value = UUID.randomUUID().toString();
 
-        final Properties properties = new Properties();
+        final Properties properties = AuthConfigTest.newProperties();
         properties.setProperty("pivotal.auth.authorizeUrl", value);
         Pivotal.setProperties(properties);
 
@@ -86,7 +152,7 @@ public class PivotalTest extends AndroidTestCase {
     public void testGetTokenUrl() {
         final String value = UUID.randomUUID().toString();
 
-        final Properties properties = new Properties();
+        final Properties properties = AuthConfigTest.newProperties();
         properties.setProperty("pivotal.auth.tokenUrl", value);
         Pivotal.setProperties(properties);
 
@@ -96,7 +162,7 @@ public class PivotalTest extends AndroidTestCase {
     public void testGetRedirectUrl() {
         final String value = UUID.randomUUID().toString();
 
-        final Properties properties = new Properties();
+        final Properties properties = AuthConfigTest.newProperties();
         properties.setProperty("pivotal.auth.redirectUrl", value);
         Pivotal.setProperties(properties);
 
@@ -106,7 +172,7 @@ public class PivotalTest extends AndroidTestCase {
     public void testAccountType() {
         final String value = UUID.randomUUID().toString();
 
-        final Properties properties = new Properties();
+        final Properties properties = AuthConfigTest.newProperties();
         properties.setProperty("pivotal.auth.accountType", value);
         Pivotal.setProperties(properties);
 
@@ -116,7 +182,7 @@ public class PivotalTest extends AndroidTestCase {
     public void testTokenType() {
         final String value = UUID.randomUUID().toString();
 
-        final Properties properties = new Properties();
+        final Properties properties = AuthConfigTest.newProperties();
         properties.setProperty("pivotal.auth.tokenType", value);
         Pivotal.setProperties(properties);
 
@@ -126,10 +192,26 @@ public class PivotalTest extends AndroidTestCase {
     public void testScopes() {
         final String value = UUID.randomUUID().toString();
 
-        final Properties properties = new Properties();
+        final Properties properties = AuthConfigTest.newProperties();
         properties.setProperty("pivotal.auth.scopes", value);
         Pivotal.setProperties(properties);
 
         assertEquals(value, Pivotal.getScopes());
     }
-}
\ No newline at end of file
+
+
+    // ====================================
+
+
+    public static final class GeneratedConfig {
+
+        public static final String PIVOTAL_AUTH_CLIENT_ID = "generated_client_id";
+
+        public static final String[] PROPERTIES = {
+            "pivotal.auth.clientId", PIVOTAL_AUTH_CLIENT_ID,
+        };
+
+        private GeneratedConfig() {
+        }
+    }
+}
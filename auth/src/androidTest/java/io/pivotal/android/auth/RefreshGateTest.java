@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.accounts.Account;
+import android.test.AndroidTestCase;
+
+import com.google.api.client.auth.oauth2.RefreshTokenRequest;
+import com.google.api.client.http.HttpResponse;
+
+import org.mockito.Mockito;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class RefreshGateTest extends AndroidTestCase {
+
+    private static final String ACCESS_TOKEN = UUID.randomUUID().toString();
+    private static final String REFRESH_TOKEN = UUID.randomUUID().toString();
+    private static final String ROTATED_TOKEN = UUID.randomUUID().toString();
+
+    private static final Account ACCOUNT = new Account(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+
+    private TokenResponseParser.RequestExecutor mExecutor;
+    private AccountsProxy mProxy;
+    private RemoteAuthenticator mAuthenticator;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        System.setProperty("dexmaker.dexcache", mContext.getCacheDir().getPath());
+
+        mExecutor = Mockito.mock(TokenResponseParser.RequestExecutor.class);
+        mProxy = Mockito.mock(AccountsProxy.class);
+        mAuthenticator = Mockito.mock(RemoteAuthenticator.class);
+
+        TokenResponseParser.setExecutor(mExecutor);
+        AuthRuntime.setAccountsProxy(mProxy);
+        AuthRuntime.setRemoteAuthenticator(mAuthenticator);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        TokenResponseParser.setExecutor(null);
+        AuthRuntime.setAccountsProxy(null);
+        AuthRuntime.setRemoteAuthenticator(null);
+        RefreshGate.reset();
+    }
+
+    public void testConcurrentRefreshesShareOneRequest() throws Exception {
+        final RefreshTokenRequest request = Mockito.mock(RefreshTokenRequest.class);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final HttpResponse response = TokenResponseParserTest.newHttpResponse(ACCESS_TOKEN, REFRESH_TOKEN);
+
+        Mockito.when(mAuthenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(request);
+        Mockito.when(mExecutor.execute(request)).thenAnswer(new AccountAuthenticatorTest.BlockingAnswer(started, release, response));
+
+        final AtomicReference<Token> leaderToken = new AtomicReference<Token>();
+        final AtomicReference<Token> followerToken = new AtomicReference<Token>();
+
+        final Thread leader = new RefreshThread(leaderToken);
+        leader.start();
+        started.await();
+
+        final Thread follower = new RefreshThread(followerToken);
+        follower.start();
+        SingleFlightTest.waitUntilWaiting(follower);
+
+        release.countDown();
+        leader.join();
+        follower.join();
+
+        assertEquals(ACCESS_TOKEN, leaderToken.get().getAccessToken());
+        assertEquals(ACCESS_TOKEN, followerToken.get().getAccessToken());
+
+        Mockito.verify(mAuthenticator, Mockito.times(1)).newRefreshTokenRequest(REFRESH_TOKEN);
+    }
+
+    public void testRotatedRefreshTokenIsStored() throws Exception {
+        final RefreshTokenRequest request = Mockito.mock(RefreshTokenRequest.class);
+
+        Mockito.when(mProxy.getAccount(ACCOUNT.name)).thenReturn(ACCOUNT);
+        Mockito.when(mAuthenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(request);
+        Mockito.when(mExecutor.execute(request)).thenReturn(TokenResponseParserTest.newHttpResponse(ACCESS_TOKEN, ROTATED_TOKEN));
+
+        RefreshGate.refresh(mContext, ACCOUNT, REFRESH_TOKEN);
+
+        Mockito.verify(mProxy).setRefreshToken(ACCOUNT, ROTATED_TOKEN);
+    }
+
+    public void testRefreshWithRotatedAwayTokenUsesNewToken() throws Exception {
+        final RefreshTokenRequest first = Mockito.mock(RefreshTokenRequest.class);
+        final RefreshTokenRequest second = Mockito.mock(RefreshTokenRequest.class);
+
+        Mockito.when(mAuthenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(first);
+        Mockito.when(mAuthenticator.newRefreshTokenRequest(ROTATED_TOKEN)).thenReturn(second);
+        Mockito.when(mExecutor.execute(first)).thenReturn(TokenResponseParserTest.newHttpResponse(ACCESS_TOKEN, ROTATED_TOKEN));
+        Mockito.when(mExecutor.execute(second)).thenReturn(TokenResponseParserTest.newHttpResponse(ACCESS_TOKEN, ROTATED_TOKEN));
+
+        RefreshGate.refresh(mContext, ACCOUNT, REFRESH_TOKEN);
+        RefreshGate.refresh(mContext, ACCOUNT, REFRESH_TOKEN);
+
+        Mockito.verify(mAuthenticator, Mockito.times(1)).newRefreshTokenRequest(REFRESH_TOKEN);
+        Mockito.verify(mAuthenticator, Mockito.times(1)).newRefreshTokenRequest(ROTATED_TOKEN);
+    }
+
+
+    // ====================================
+
+
+    private final class RefreshThread extends Thread {
+
+        private final AtomicReference<Token> mToken;
+
+        public RefreshThread(final AtomicReference<Token> token) {
+            mToken = token;
+        }
+
+        @Override
+        public void run() {
+            try {
+                mToken.set(RefreshGate.refresh(mContext, ACCOUNT, REFRESH_TOKEN));
+            } catch (final Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
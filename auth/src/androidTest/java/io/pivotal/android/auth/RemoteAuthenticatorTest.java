@@ -9,8 +9,12 @@ import com.google.api.client.auth.oauth2.AuthorizationCodeRequestUrl;
 import com.google.api.client.auth.oauth2.AuthorizationCodeTokenRequest;
 import com.google.api.client.auth.oauth2.PasswordTokenRequest;
 import com.google.api.client.auth.oauth2.RefreshTokenRequest;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
 
 import java.util.Properties;
+import java.util.Random;
 import java.util.UUID;
 
 public class RemoteAuthenticatorTest extends AndroidTestCase {
@@ -21,6 +25,8 @@ public class RemoteAuthenticatorTest extends AndroidTestCase {
     private static final String AUTHORIZE_URL = "http://" + UUID.randomUUID().toString() + ".com";
     private static final String REDIRECT_URL = "http://" + UUID.randomUUID().toString() + ".com";
     private static final String SCOPE = UUID.randomUUID().toString();
+    private static final int CONNECT_TIMEOUT = new Random().nextInt(10000) + 1;
+    private static final int READ_TIMEOUT = new Random().nextInt(10000) + 1;
 
     private static final String USERNAME = UUID.randomUUID().toString();
     private static final String PASSWORD = UUID.randomUUID().toString();
@@ -39,6 +45,10 @@ public class RemoteAuthenticatorTest extends AndroidTestCase {
         properties.setProperty("pivotal.auth.authorizeUrl", AUTHORIZE_URL);
         properties.setProperty("pivotal.auth.redirectUrl", REDIRECT_URL);
         properties.setProperty("pivotal.auth.scopes", SCOPE);
+        properties.setProperty("pivotal.auth.accountType", UUID.randomUUID().toString());
+        properties.setProperty("pivotal.auth.tokenType", UUID.randomUUID().toString());
+        properties.setProperty("pivotal.auth.connectTimeout", String.valueOf(CONNECT_TIMEOUT));
+        properties.setProperty("pivotal.auth.readTimeout", String.valueOf(READ_TIMEOUT));
 
         Pivotal.setProperties(properties);
     }
@@ -72,6 +82,21 @@ public class RemoteAuthenticatorTest extends AndroidTestCase {
         assertEquals(REFRESH_TOKEN, request.getRefreshToken());
     }
 
+    public void testCreateNewRefreshTokenRequestWithoutGrantKeys() throws Exception {
+        final Properties properties = new Properties();
+        properties.setProperty("pivotal.auth.clientId", CLIENT_ID);
+        properties.setProperty("pivotal.auth.clientSecret", CLIENT_SECRET);
+        properties.setProperty("pivotal.auth.tokenUrl", TOKEN_URL);
+        properties.setProperty("pivotal.auth.accountType", UUID.randomUUID().toString());
+        properties.setProperty("pivotal.auth.tokenType", UUID.randomUUID().toString());
+        Pivotal.setProperties(properties);
+
+        final RemoteAuthenticator.Default provider = new RemoteAuthenticator.Default();
+        final RefreshTokenRequest request = provider.newRefreshTokenRequest(REFRESH_TOKEN);
+
+        assertEquals(REFRESH_TOKEN, request.getRefreshToken());
+    }
+
     public void testCreateNewAuthorizationCodeTokenRequest() throws Exception {
         final RemoteAuthenticator provider = new RemoteAuthenticator.Default();
         final AuthorizationCodeTokenRequest request = provider.newAuthorizationCodeTokenRequest(AUTH_CODE);
@@ -91,4 +116,45 @@ public class RemoteAuthenticatorTest extends AndroidTestCase {
         assertEquals(SCOPE, url.getScopes());
         assertEquals("offline", url.get("access_type"));
     }
+
+    public void testCreateRequestsFromTemplateWithoutRereadingProperties() throws Exception {
+        final RemoteAuthenticator.Default provider = new RemoteAuthenticator.Default();
+        provider.newAuthorizationCodeUrl();
+
+        Pivotal.setProperties(new Properties());
+
+        final RefreshTokenRequest refreshRequest = provider.newRefreshTokenRequest(REFRESH_TOKEN);
+        assertEquals(CLIENT_ID, refreshRequest.get("client_id"));
+        assertEquals(new GenericUrl(TOKEN_URL), refreshRequest.getTokenServerUrl());
+
+        final PasswordTokenRequest passwordRequest = provider.newPasswordTokenRequest(USERNAME, PASSWORD);
+        assertEquals(SCOPE, passwordRequest.getScopes());
+
+        final AuthorizationCodeTokenRequest codeRequest = provider.newAuthorizationCodeTokenRequest(AUTH_CODE);
+        assertEquals(REDIRECT_URL, codeRequest.getRedirectUri());
+        assertEquals(CLIENT_SECRET, codeRequest.get("client_secret"));
+
+        final AuthorizationCodeRequestUrl url = provider.newAuthorizationCodeUrl();
+        assertEquals(REDIRECT_URL, url.getRedirectUri());
+        assertEquals(SCOPE, url.getScopes());
+    }
+
+    public void testCreateRequestsWithCustomTransport() throws Exception {
+        final HttpTransport transport = new NetHttpTransport();
+        final RemoteAuthenticator.Default provider = new RemoteAuthenticator.Default(transport);
+
+        assertSame(transport, provider.getTransport());
+        assertSame(transport, provider.newRefreshTokenRequest(REFRESH_TOKEN).getTransport());
+        assertSame(transport, provider.newPasswordTokenRequest(USERNAME, PASSWORD).getTransport());
+    }
+
+    public void testCreateRequestsWithTimeouts() throws Exception {
+        final RemoteAuthenticator.Default provider = new RemoteAuthenticator.Default();
+        final AuthHttpTransport.TimeoutInitializer initializer = (AuthHttpTransport.TimeoutInitializer) provider.getRequestInitializer();
+
+        assertEquals(CONNECT_TIMEOUT, initializer.getConnectTimeout());
+        assertEquals(READ_TIMEOUT, initializer.getReadTimeout());
+        assertSame(initializer, provider.newRefreshTokenRequest(REFRESH_TOKEN).getRequestInitializer());
+        assertSame(initializer, provider.newPasswordTokenRequest(USERNAME, PASSWORD).getRequestInitializer());
+    }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@
 package io.pivotal.android.auth;
 
 import android.test.AndroidTestCase;
+import android.util.Base64;
 
 import java.util.UUID;
 
@@ -28,4 +29,47 @@ public class ResponseTest extends AndroidTestCase {
         assertFalse(response.isSuccess());
     }
 
+    public void testIsTokenExpiredWithValidToken() {
+        final Response response = new Response(getAccessToken(System.currentTimeMillis() / 1000 + 60), ACCOUNT_NAME);
+
+        assertFalse(response.isTokenExpired());
+    }
+
+    public void testIsTokenExpiredWithExpiredToken() {
+        final Response response = new Response(getAccessToken(System.currentTimeMillis() / 1000 - 1), ACCOUNT_NAME);
+
+        assertTrue(response.isTokenExpired());
+    }
+
+    public void testIsTokenExpiredWithEmptyToken() {
+        final Response response = new Response("", ACCOUNT_NAME);
+
+        assertTrue(response.isTokenExpired());
+    }
+
+    public void testGetClaimsIsDecodedOnce() {
+        final Response response = new Response(getAccessToken(System.currentTimeMillis() / 1000 + 60), ACCOUNT_NAME);
+
+        assertSame(response.getClaims(), response.getClaims());
+    }
+
+    public void testGetClaimsFollowsAccessTokenChanges() {
+        final long expiration = System.currentTimeMillis() / 1000 - 1;
+        final Response response = new Response(getAccessToken(System.currentTimeMillis() / 1000 + 60), ACCOUNT_NAME);
+        response.getClaims();
+
+        response.accessToken = getAccessToken(expiration);
+
+        assertEquals(expiration, response.getClaims().getExpiration());
+        assertTrue(response.isTokenExpired());
+    }
+
+
+    // ====================================
+
+
+    private String getAccessToken(final long expirationInSeconds) {
+        final String expirationComponent = "{ \"exp\": \"" + expirationInSeconds + "\" }";
+        return "." + Base64.encodeToString(expirationComponent.getBytes(), Base64.DEFAULT);
+    }
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.test.AndroidTestCase;
+
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SingleFlightTest extends AndroidTestCase {
+
+    private static final String KEY = UUID.randomUUID().toString();
+    private static final String VALUE = UUID.randomUUID().toString();
+
+    public void testExecuteReturnsCallableResult() throws Exception {
+        final SingleFlight<String, String> flight = new SingleFlight<String, String>();
+
+        assertEquals(VALUE, flight.execute(KEY, new ValueCallable(new AtomicInteger())));
+    }
+
+    public void testExecuteRunsCallableAgainOnceFlightCompletes() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final SingleFlight<String, String> flight = new SingleFlight<String, String>();
+
+        flight.execute(KEY, new ValueCallable(calls));
+        flight.execute(KEY, new ValueCallable(calls));
+
+        assertEquals(2, calls.get());
+    }
+
+    public void testExecutePropagatesCallableException() throws Exception {
+        final SingleFlight<String, String> flight = new SingleFlight<String, String>();
+
+        try {
+            flight.execute(KEY, new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    throw new IllegalStateException();
+                }
+            });
+            fail();
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    public void testConcurrentExecuteWithSameKeySharesResult() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final SingleFlight<String, String> flight = new SingleFlight<String, String>();
+
+        final Callable<String> callable = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                calls.incrementAndGet();
+                started.countDown();
+                release.await();
+                return VALUE;
+            }
+        };
+
+        final AtomicReference<String> leaderResult = new AtomicReference<String>();
+        final AtomicReference<String> followerResult = new AtomicReference<String>();
+
+        final Thread leader = new ExecuteThread(flight, callable, leaderResult);
+        leader.start();
+        started.await();
+
+        final Thread follower = new ExecuteThread(flight, callable, followerResult);
+        follower.start();
+        waitUntilWaiting(follower);
+
+        release.countDown();
+        leader.join();
+        follower.join();
+
+        assertEquals(1, calls.get());
+        assertEquals(VALUE, leaderResult.get());
+        assertEquals(VALUE, followerResult.get());
+    }
+
+    public void testConcurrentExecuteWithDifferentKeysRunsBoth() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final SingleFlight<String, String> flight = new SingleFlight<String, String>();
+
+        final Callable<String> blocking = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                calls.incrementAndGet();
+                release.await();
+                return VALUE;
+            }
+        };
+
+        final Thread leader = new ExecuteThread(flight, blocking, new AtomicReference<String>());
+        leader.start();
+
+        assertEquals(VALUE, flight.execute(UUID.randomUUID().toString(), new ValueCallable(calls)));
+
+        release.countDown();
+        leader.join();
+
+        assertEquals(2, calls.get());
+    }
+
+
+    // ====================================
+
+
+    /* package */ static void waitUntilWaiting(final Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static final class ValueCallable implements Callable<String> {
+
+        private final AtomicInteger mCalls;
+
+        public ValueCallable(final AtomicInteger calls) {
+            mCalls = calls;
+        }
+
+        @Override
+        public String call() {
+            mCalls.incrementAndGet();
+            return VALUE;
+        }
+    }
+
+    private static final class ExecuteThread extends Thread {
+
+        private final SingleFlight<String, String> mFlight;
+        private final Callable<String> mCallable;
+        private final AtomicReference<String> mResult;
+
+        public ExecuteThread(final SingleFlight<String, String> flight, final Callable<String> callable, final AtomicReference<String> result) {
+            mFlight = flight;
+            mCallable = callable;
+            mResult = result;
+        }
+
+        @Override
+        public void run() {
+            try {
+                mResult.set(mFlight.execute(KEY, mCallable));
+            } catch (final Exception e) {
+                mResult.set(null);
+            }
+        }
+    }
+}
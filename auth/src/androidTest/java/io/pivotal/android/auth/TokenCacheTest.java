@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.accounts.Account;
+import android.test.AndroidTestCase;
+import android.util.Base64;
+
+import java.util.UUID;
+
+public class TokenCacheTest extends AndroidTestCase {
+
+    private static final String ACCOUNT_NAME = UUID.randomUUID().toString();
+    private static final String ACCOUNT_TYPE = UUID.randomUUID().toString();
+    private static final String TOKEN_TYPE = UUID.randomUUID().toString();
+    private static final String OPAQUE_TOKEN = UUID.randomUUID().toString();
+
+    public void testGetReturnsValidToken() {
+        final Account account = new Account(ACCOUNT_NAME, ACCOUNT_TYPE);
+        final String accessToken = getAccessToken(System.currentTimeMillis() / 1000 + 60);
+        final TokenCache cache = new TokenCache();
+
+        cache.put(account, TOKEN_TYPE, accessToken);
+
+        assertEquals(accessToken, cache.get(account, TOKEN_TYPE));
+    }
+
+    public void testGetDoesNotReturnExpiredToken() {
+        final Account account = new Account(ACCOUNT_NAME, ACCOUNT_TYPE);
+        final String accessToken = getAccessToken(System.currentTimeMillis() / 1000 - 1);
+        final TokenCache cache = new TokenCache();
+
+        cache.put(account, TOKEN_TYPE, accessToken);
+
+        assertNull(cache.get(account, TOKEN_TYPE));
+    }
+
+    public void testPutDoesNotCacheTokenWithoutExpiration() {
+        final Account account = new Account(ACCOUNT_NAME, ACCOUNT_TYPE);
+        final TokenCache cache = new TokenCache();
+
+        cache.put(account, TOKEN_TYPE, OPAQUE_TOKEN);
+
+        assertNull(cache.get(account, TOKEN_TYPE));
+    }
+
+    public void testPutReplacesTokenWithoutExpiration() {
+        final Account account = new Account(ACCOUNT_NAME, ACCOUNT_TYPE);
+        final TokenCache cache = new TokenCache();
+
+        cache.put(account, TOKEN_TYPE, getAccessToken(System.currentTimeMillis() / 1000 + 60));
+        cache.put(account, TOKEN_TYPE, null);
+
+        assertNull(cache.get(account, TOKEN_TYPE));
+    }
+
+    public void testGetAndPutIgnoreNullAccount() {
+        final TokenCache cache = new TokenCache();
+
+        cache.put(null, TOKEN_TYPE, getAccessToken(System.currentTimeMillis() / 1000 + 60));
+
+        assertNull(cache.get(null, TOKEN_TYPE));
+    }
+
+    public void testTokenTypesAreCachedSeparately() {
+        final Account account = new Account(ACCOUNT_NAME, ACCOUNT_TYPE);
+        final String otherType = UUID.randomUUID().toString();
+        final String accessToken = getAccessToken(System.currentTimeMillis() / 1000 + 60);
+        final String otherToken = getAccessToken(System.currentTimeMillis() / 1000 + 120);
+        final TokenCache cache = new TokenCache();
+
+        cache.put(account, TOKEN_TYPE, accessToken);
+        cache.put(account, otherType, otherToken);
+
+        assertEquals(accessToken, cache.get(account, TOKEN_TYPE));
+        assertEquals(otherToken, cache.get(account, otherType));
+
+        cache.remove(account);
+
+        assertNull(cache.get(account, TOKEN_TYPE));
+        assertNull(cache.get(account, otherType));
+    }
+
+    public void testRemove() {
+        final Account account = new Account(ACCOUNT_NAME, ACCOUNT_TYPE);
+        final TokenCache cache = new TokenCache();
+
+        cache.put(account, TOKEN_TYPE, getAccessToken(System.currentTimeMillis() / 1000 + 60));
+        cache.remove(account);
+
+        assertNull(cache.get(account, TOKEN_TYPE));
+    }
+
+    public void testInvalidateRemovesMatchingToken() {
+        final Account account = new Account(ACCOUNT_NAME, ACCOUNT_TYPE);
+        final Account other = new Account(UUID.randomUUID().toString(), ACCOUNT_TYPE);
+        final String accessToken = getAccessToken(System.currentTimeMillis() / 1000 + 60);
+        final String otherToken = getAccessToken(System.currentTimeMillis() / 1000 + 120);
+        final TokenCache cache = new TokenCache();
+
+        cache.put(account, TOKEN_TYPE, accessToken);
+        cache.put(other, TOKEN_TYPE, otherToken);
+        cache.invalidate(accessToken);
+
+        assertNull(cache.get(account, TOKEN_TYPE));
+        assertEquals(otherToken, cache.get(other, TOKEN_TYPE));
+    }
+
+    public void testClear() {
+        final Account account = new Account(ACCOUNT_NAME, ACCOUNT_TYPE);
+        final TokenCache cache = new TokenCache();
+
+        cache.put(account, TOKEN_TYPE, getAccessToken(System.currentTimeMillis() / 1000 + 60));
+        cache.clear();
+
+        assertNull(cache.get(account, TOKEN_TYPE));
+    }
+
+
+    // ====================================
+
+
+    private String getAccessToken(final long expirationInSeconds) {
+        final String expirationComponent = "{ \"exp\": \"" + expirationInSeconds + "\" }";
+        return "." + Base64.encodeToString(expirationComponent.getBytes(), Base64.DEFAULT);
+    }
+}
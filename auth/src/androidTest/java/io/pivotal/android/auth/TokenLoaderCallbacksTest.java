@@ -8,8 +8,6 @@ import android.content.Loader;
 import android.os.Bundle;
 import android.test.AndroidTestCase;
 
-import com.google.api.client.auth.oauth2.TokenResponse;
-
 import org.mockito.Mockito;
 
 import java.util.UUID;
@@ -17,6 +15,8 @@ import java.util.UUID;
 public class TokenLoaderCallbacksTest extends AndroidTestCase {
 
     private static final String MESSAGE = UUID.randomUUID().toString();
+    private static final String ACCESS_TOKEN = UUID.randomUUID().toString();
+    private static final String REFRESH_TOKEN = UUID.randomUUID().toString();
 
     @Override
     protected void setUp() throws Exception {
@@ -26,26 +26,24 @@ public class TokenLoaderCallbacksTest extends AndroidTestCase {
 
     public void testSuccessfulCallback() {
         final TokenLoader.Listener listener = Mockito.mock(TokenLoader.Listener.class);
-        final TokenResponse response = Mockito.spy(new TokenResponse());
+        final Token token = new Token(ACCESS_TOKEN, REFRESH_TOKEN);
         final TestTokenLoaderCallbacks callbacks = new TestTokenLoaderCallbacks(null, listener);
 
-        Mockito.doReturn(false).when(response).containsKey("error");
-
-        callbacks.onLoadFinished(null, response);
+        callbacks.onLoadFinished(null, token);
 
-        Mockito.verify(response).containsKey("error");
-        Mockito.verify(listener).onAuthorizationComplete(Mockito.any(Token.class));
+        Mockito.verify(listener).onAuthorizationComplete(token);
+        Mockito.verify(listener, Mockito.never()).onAuthorizationFailed(Mockito.any(Error.class));
     }
 
     public void testFailedCallback() {
         final TokenLoader.Listener listener = Mockito.mock(TokenLoader.Listener.class);
-        final TokenResponse response = Mockito.spy(new TokenResponse().set("error", MESSAGE));
+        final Token token = new TokenLoader.ErrorToken(new Exception(MESSAGE));
         final TestTokenLoaderCallbacks callbacks = new TestTokenLoaderCallbacks(null, listener);
 
-        callbacks.onLoadFinished(null, response);
+        callbacks.onLoadFinished(null, token);
 
-        Mockito.verify(response).containsKey("error");
         Mockito.verify(listener).onAuthorizationFailed(Mockito.any(Error.class));
+        Mockito.verify(listener, Mockito.never()).onAuthorizationComplete(Mockito.any(Token.class));
     }
 
 
@@ -59,7 +57,7 @@ public class TokenLoaderCallbacksTest extends AndroidTestCase {
         }
 
         @Override
-        public Loader<TokenResponse> onCreateLoader(final int id, final Bundle bundle) {
+        public Loader<Token> onCreateLoader(final int id, final Bundle bundle) {
             return null;
         }
     }
@@ -8,8 +8,6 @@ import android.content.Context;
 import android.os.Build;
 import android.test.LoaderTestCase;
 
-import com.google.api.client.auth.oauth2.TokenResponse;
-
 import org.mockito.Mockito;
 
 import java.util.UUID;
@@ -36,24 +34,24 @@ public class TokenLoaderTest extends LoaderTestCase {
         Mockito.verify(loader).forceLoad();
     }
 
-    public void testErrorResponsePutsError() {
+    public void testErrorTokenHasError() {
         final Exception exception = Mockito.mock(Exception.class);
 
         Mockito.when(exception.getLocalizedMessage()).thenReturn(MESSAGE);
 
-        final TokenLoader.ErrorResponse response = new TokenLoader.ErrorResponse(exception);
-        assertEquals(MESSAGE, response.get("error"));
+        final TokenLoader.ErrorToken token = new TokenLoader.ErrorToken(exception);
+        assertEquals(MESSAGE, token.getError());
 
         Mockito.verify(exception).getLocalizedMessage();
     }
 
-    public void testErrorResponsePutsUnknownErrorMessage() {
+    public void testErrorTokenHasUnknownErrorMessage() {
         final Exception exception = Mockito.mock(Exception.class);
 
         Mockito.when(exception.getLocalizedMessage()).thenReturn(null);
 
-        final TokenLoader.ErrorResponse response = new TokenLoader.ErrorResponse(exception);
-        assertEquals("Unknown error.", response.get("error"));
+        final TokenLoader.ErrorToken token = new TokenLoader.ErrorToken(exception);
+        assertEquals("Unknown error.", token.getError());
 
         Mockito.verify(exception).getLocalizedMessage();
     }
@@ -69,7 +67,7 @@ public class TokenLoaderTest extends LoaderTestCase {
         }
 
         @Override
-        public TokenResponse loadInBackground() {
+        public Token loadInBackground() {
             return null;
         }
     }
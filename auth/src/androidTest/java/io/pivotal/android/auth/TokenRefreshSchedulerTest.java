@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.accounts.Account;
+import android.test.AndroidTestCase;
+import android.util.Base64;
+
+import com.google.api.client.auth.oauth2.RefreshTokenRequest;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseException;
+
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.UUID;
+
+public class TokenRefreshSchedulerTest extends AndroidTestCase {
+
+    private static final String ACCESS_TOKEN = UUID.randomUUID().toString();
+    private static final String REFRESH_TOKEN = UUID.randomUUID().toString();
+    private static final String ACCOUNT_NAME = UUID.randomUUID().toString();
+    private static final String ACCOUNT_TYPE = UUID.randomUUID().toString();
+
+    private static final Account ACCOUNT = new Account(ACCOUNT_NAME, ACCOUNT_TYPE);
+
+    private TokenRefreshScheduler mScheduler;
+    private TokenResponseParser.RequestExecutor mExecutor;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        System.setProperty("dexmaker.dexcache", mContext.getCacheDir().getPath());
+
+        mExecutor = Mockito.mock(TokenResponseParser.RequestExecutor.class);
+        TokenResponseParser.setExecutor(mExecutor);
+
+        mScheduler = new TokenRefreshScheduler(mContext);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+
+        TokenResponseParser.setExecutor(null);
+        mScheduler.cancelAll();
+
+        AuthRuntime.setAccountsProxy(null);
+        AuthRuntime.setRemoteAuthenticator(null);
+        RefreshGate.reset();
+    }
+
+    public void testScheduleWhenDisabled() {
+        mScheduler.schedule(ACCOUNT, getAccessToken(60 * 60));
+
+        assertFalse(mScheduler.isScheduled(ACCOUNT));
+    }
+
+    public void testScheduleWithoutExpiration() {
+        mScheduler.setEnabled(true);
+        mScheduler.schedule(ACCOUNT, ACCESS_TOKEN);
+
+        assertFalse(mScheduler.isScheduled(ACCOUNT));
+    }
+
+    public void testDisableCancelsScheduledRefresh() {
+        mScheduler.setEnabled(true);
+        mScheduler.schedule(ACCOUNT, getAccessToken(60 * 60));
+
+        assertTrue(mScheduler.isScheduled(ACCOUNT));
+
+        mScheduler.setEnabled(false);
+
+        assertFalse(mScheduler.isScheduled(ACCOUNT));
+    }
+
+    public void testCancel() {
+        mScheduler.setEnabled(true);
+        mScheduler.schedule(ACCOUNT, getAccessToken(60 * 60));
+        mScheduler.cancel(ACCOUNT);
+
+        assertFalse(mScheduler.isScheduled(ACCOUNT));
+    }
+
+    public void testCancelByAccessToken() {
+        final String accessToken = getAccessToken(60 * 60);
+        final Account other = new Account(UUID.randomUUID().toString(), ACCOUNT_TYPE);
+
+        mScheduler.setEnabled(true);
+        mScheduler.schedule(ACCOUNT, accessToken);
+        mScheduler.schedule(other, getAccessToken(2 * 60 * 60));
+        mScheduler.cancel(accessToken);
+
+        assertFalse(mScheduler.isScheduled(ACCOUNT));
+        assertTrue(mScheduler.isScheduled(other));
+    }
+
+    public void testRefreshStoresNewAccessToken() throws Exception {
+        final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
+        final RemoteAuthenticator authenticator = Mockito.mock(RemoteAuthenticator.class);
+        final RefreshTokenRequest request = Mockito.mock(RefreshTokenRequest.class);
+        final HttpResponse response = TokenResponseParserTest.newHttpResponse(ACCESS_TOKEN, REFRESH_TOKEN);
+
+        AuthRuntime.setAccountsProxy(proxy);
+        AuthRuntime.setRemoteAuthenticator(authenticator);
+
+        Mockito.when(proxy.getRefreshToken(ACCOUNT)).thenReturn(REFRESH_TOKEN);
+        Mockito.when(authenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(request);
+        Mockito.when(mExecutor.execute(request)).thenReturn(response);
+
+        mScheduler.setEnabled(true);
+        mScheduler.schedule(ACCOUNT, getAccessToken(TokenRefreshScheduler.REFRESH_AHEAD));
+
+        Mockito.verify(proxy, Mockito.timeout(1000)).setAccessToken(ACCOUNT, ACCESS_TOKEN);
+        assertFalse(mScheduler.isScheduled(ACCOUNT));
+    }
+
+    public void testRefreshStoresRotatedRefreshToken() throws Exception {
+        final String rotatedToken = UUID.randomUUID().toString();
+        final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
+        final RemoteAuthenticator authenticator = Mockito.mock(RemoteAuthenticator.class);
+        final RefreshTokenRequest request = Mockito.mock(RefreshTokenRequest.class);
+        final HttpResponse response = TokenResponseParserTest.newHttpResponse(ACCESS_TOKEN, rotatedToken);
+
+        AuthRuntime.setAccountsProxy(proxy);
+        AuthRuntime.setRemoteAuthenticator(authenticator);
+
+        Mockito.when(proxy.getRefreshToken(ACCOUNT)).thenReturn(REFRESH_TOKEN);
+        Mockito.when(proxy.getAccount(ACCOUNT_NAME)).thenReturn(ACCOUNT);
+        Mockito.when(authenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(request);
+        Mockito.when(mExecutor.execute(request)).thenReturn(response);
+
+        mScheduler.setEnabled(true);
+        mScheduler.schedule(ACCOUNT, getAccessToken(TokenRefreshScheduler.REFRESH_AHEAD));
+
+        Mockito.verify(proxy, Mockito.timeout(1000)).setAccessToken(ACCOUNT, ACCESS_TOKEN);
+
+        final InOrder inOrder = Mockito.inOrder(proxy);
+        inOrder.verify(proxy).setRefreshToken(ACCOUNT, rotatedToken);
+        inOrder.verify(proxy).setAccessToken(ACCOUNT, ACCESS_TOKEN);
+    }
+
+    public void testRefreshDoesNotStoreRefreshTokenForRemovedAccount() throws Exception {
+        final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
+        final RemoteAuthenticator authenticator = Mockito.mock(RemoteAuthenticator.class);
+        final RefreshTokenRequest request = Mockito.mock(RefreshTokenRequest.class);
+        final HttpResponse response = TokenResponseParserTest.newHttpResponse(ACCESS_TOKEN, UUID.randomUUID().toString());
+
+        AuthRuntime.setAccountsProxy(proxy);
+        AuthRuntime.setRemoteAuthenticator(authenticator);
+
+        Mockito.when(proxy.getRefreshToken(ACCOUNT)).thenReturn(REFRESH_TOKEN);
+        Mockito.when(authenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(request);
+        Mockito.when(mExecutor.execute(request)).thenReturn(response);
+
+        mScheduler.setEnabled(true);
+        mScheduler.schedule(ACCOUNT, getAccessToken(TokenRefreshScheduler.REFRESH_AHEAD));
+
+        Mockito.verify(proxy, Mockito.timeout(1000)).getAccount(ACCOUNT_NAME);
+        waitUntilNotScheduled(ACCOUNT);
+
+        Mockito.verify(proxy, Mockito.never()).setRefreshToken(Mockito.any(Account.class), Mockito.anyString());
+    }
+
+    public void testRefreshWithoutRefreshToken() throws Exception {
+        final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
+        final RemoteAuthenticator authenticator = Mockito.mock(RemoteAuthenticator.class);
+
+        AuthRuntime.setAccountsProxy(proxy);
+        AuthRuntime.setRemoteAuthenticator(authenticator);
+
+        mScheduler.setEnabled(true);
+        mScheduler.schedule(ACCOUNT, getAccessToken(TokenRefreshScheduler.REFRESH_AHEAD));
+
+        Mockito.verify(proxy, Mockito.timeout(1000)).getRefreshToken(ACCOUNT);
+        waitUntilNotScheduled(ACCOUNT);
+
+        Mockito.verifyZeroInteractions(authenticator);
+    }
+
+    public void testRefreshBacksOffWhenOffline() throws Exception {
+        final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
+        final RemoteAuthenticator authenticator = Mockito.mock(RemoteAuthenticator.class);
+        final RefreshTokenRequest request = Mockito.mock(RefreshTokenRequest.class);
+
+        AuthRuntime.setAccountsProxy(proxy);
+        AuthRuntime.setRemoteAuthenticator(authenticator);
+
+        Mockito.when(proxy.getRefreshToken(ACCOUNT)).thenReturn(REFRESH_TOKEN);
+        Mockito.when(authenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(request);
+        Mockito.doThrow(new IOException()).when(mExecutor).execute(request);
+
+        mScheduler.setEnabled(true);
+        mScheduler.schedule(ACCOUNT, getAccessToken(TokenRefreshScheduler.REFRESH_AHEAD));
+
+        Mockito.verify(mExecutor, Mockito.timeout(1000)).execute(request);
+        while (mScheduler.getBackoff(ACCOUNT) == 0) {
+            Thread.sleep(5);
+        }
+
+        assertEquals(TokenRefreshScheduler.MIN_BACKOFF, mScheduler.getBackoff(ACCOUNT));
+        Mockito.verify(proxy, Mockito.never()).setAccessToken(Mockito.any(Account.class), Mockito.anyString());
+    }
+
+    public void testRefreshStopsWhenUnauthorized() throws Exception {
+        final AccountsProxy proxy = Mockito.mock(AccountsProxy.class);
+        final RemoteAuthenticator authenticator = Mockito.mock(RemoteAuthenticator.class);
+        final RefreshTokenRequest request = Mockito.mock(RefreshTokenRequest.class);
+
+        final HttpResponseException.Builder builder = new HttpResponseException.Builder(401, null, new HttpHeaders());
+        final HttpResponseException exception = new TestResponseException(builder);
+
+        AuthRuntime.setAccountsProxy(proxy);
+        AuthRuntime.setRemoteAuthenticator(authenticator);
+
+        Mockito.when(proxy.getRefreshToken(ACCOUNT)).thenReturn(REFRESH_TOKEN);
+        Mockito.when(authenticator.newRefreshTokenRequest(REFRESH_TOKEN)).thenReturn(request);
+        Mockito.doThrow(exception).when(mExecutor).execute(request);
+
+        mScheduler.setEnabled(true);
+        mScheduler.schedule(ACCOUNT, getAccessToken(TokenRefreshScheduler.REFRESH_AHEAD));
+
+        Mockito.verify(mExecutor, Mockito.timeout(1000)).execute(request);
+        waitUntilNotScheduled(ACCOUNT);
+
+        Mockito.verify(proxy, Mockito.never()).setAccessToken(Mockito.any(Account.class), Mockito.anyString());
+    }
+
+
+    // ====================================
+
+
+    private void waitUntilNotScheduled(final Account account) throws InterruptedException {
+        while (mScheduler.isScheduled(account)) {
+            Thread.sleep(5);
+        }
+    }
+
+    private String getAccessToken(final long expiresInSeconds) {
+        final long expiration = System.currentTimeMillis() / 1000 + expiresInSeconds;
+        final String expirationComponent = "{ \"exp\": \"" + expiration + "\" }";
+        return "." + Base64.encodeToString(expirationComponent.getBytes(), Base64.DEFAULT);
+    }
+
+    private static class TestResponseException extends HttpResponseException {
+
+        public TestResponseException(final Builder builder) {
+            super(builder);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.test.AndroidTestCase;
+import android.util.Base64;
+
+import com.google.api.client.auth.oauth2.TokenRequest;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.json.Json;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+public class TokenResponseParserTest extends AndroidTestCase {
+
+    private static final String ACCESS_TOKEN = UUID.randomUUID().toString();
+    private static final String REFRESH_TOKEN = UUID.randomUUID().toString();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        System.setProperty("dexmaker.dexcache", mContext.getCacheDir().getPath());
+    }
+
+    public void testParse() throws Exception {
+        final Token token = TokenResponseParser.parse(getStream(getTokenJson(ACCESS_TOKEN, REFRESH_TOKEN)));
+
+        assertEquals(ACCESS_TOKEN, token.getAccessToken());
+        assertEquals(REFRESH_TOKEN, token.getRefreshToken());
+    }
+
+    public void testParseSkipsUnknownFields() throws Exception {
+        final String json = "{\"token_type\":\"bearer\",\"scope\":[\"openid\"],\"extra\":{\"access_token\":\"nested\"},\"expires_in\":43199,\"access_token\":\"" + ACCESS_TOKEN + "\"}";
+        final Token token = TokenResponseParser.parse(getStream(json));
+
+        assertEquals(ACCESS_TOKEN, token.getAccessToken());
+        assertNull(token.getRefreshToken());
+    }
+
+    public void testParseDecodesClaims() throws Exception {
+        final long expiration = System.currentTimeMillis() / 1000 + 60;
+        final String accessToken = "." + Base64.encodeToString(("{\"exp\":" + expiration + "}").getBytes(), Base64.NO_WRAP);
+        final Token token = TokenResponseParser.parse(getStream(getTokenJson(accessToken, REFRESH_TOKEN)));
+
+        assertEquals(expiration, token.getClaims().getExpiration());
+    }
+
+    public void testParseFailsWithoutAccessToken() throws Exception {
+        try {
+            TokenResponseParser.parse(getStream("{\"refresh_token\":\"" + REFRESH_TOKEN + "\"}"));
+            fail();
+        } catch (final IOException e) {
+            assertNotNull(e);
+        }
+    }
+
+    public void testParseFailsWithoutObject() throws Exception {
+        try {
+            TokenResponseParser.parse(getStream("[]"));
+            fail();
+        } catch (final IOException e) {
+            assertNotNull(e);
+        }
+    }
+
+    public void testExecute() throws Exception {
+        final MockLowLevelHttpResponse response = new MockLowLevelHttpResponse();
+        response.setContentType(Json.MEDIA_TYPE);
+        response.setContent(getTokenJson(ACCESS_TOKEN, REFRESH_TOKEN));
+
+        final Token token = TokenResponseParser.execute(newTokenRequest(response));
+
+        assertEquals(ACCESS_TOKEN, token.getAccessToken());
+        assertEquals(REFRESH_TOKEN, token.getRefreshToken());
+    }
+
+    public void testExecuteThrowsOnErrorResponse() throws Exception {
+        final MockLowLevelHttpResponse response = new MockLowLevelHttpResponse();
+        response.setStatusCode(400);
+        response.setContentType(Json.MEDIA_TYPE);
+        response.setContent("{\"error\":\"invalid_grant\"}");
+
+        try {
+            TokenResponseParser.execute(newTokenRequest(response));
+            fail();
+        } catch (final HttpResponseException e) {
+            assertEquals(400, e.getStatusCode());
+        }
+    }
+
+    public void testExecuteUsesExecutor() throws Exception {
+        final TokenRequest request = Mockito.mock(TokenRequest.class);
+        final TokenResponseParser.RequestExecutor executor = Mockito.mock(TokenResponseParser.RequestExecutor.class);
+
+        Mockito.when(executor.execute(request)).thenReturn(newHttpResponse(ACCESS_TOKEN, null));
+
+        TokenResponseParser.setExecutor(executor);
+        try {
+            assertEquals(ACCESS_TOKEN, TokenResponseParser.execute(request).getAccessToken());
+        } finally {
+            TokenResponseParser.setExecutor(null);
+        }
+    }
+
+
+    // ====================================
+
+
+    /* package */ static HttpResponse newHttpResponse(final String accessToken, final String refreshToken) throws IOException {
+        final MockLowLevelHttpResponse response = new MockLowLevelHttpResponse();
+        response.setContentType(Json.MEDIA_TYPE);
+        response.setContent(getTokenJson(accessToken, refreshToken));
+
+        final HttpTransport transport = new MockHttpTransport.Builder().setLowLevelHttpResponse(response).build();
+        return transport.createRequestFactory().buildGetRequest(new GenericUrl("http://example.com")).execute();
+    }
+
+    private static TokenRequest newTokenRequest(final MockLowLevelHttpResponse response) {
+        final HttpTransport transport = new MockHttpTransport.Builder().setLowLevelHttpResponse(response).build();
+        return new TokenRequest(transport, new JacksonFactory(), new GenericUrl("http://example.com"), "refresh_token");
+    }
+
+    private static String getTokenJson(final String accessToken, final String refreshToken) {
+        final String refresh = refreshToken != null ? ",\"refresh_token\":\"" + refreshToken + "\"" : "";
+        return "{\"access_token\":\"" + accessToken + "\",\"token_type\":\"bearer\"" + refresh + "}";
+    }
+
+    private static InputStream getStream(final String json) {
+        return new ByteArrayInputStream(json.getBytes());
+    }
+}
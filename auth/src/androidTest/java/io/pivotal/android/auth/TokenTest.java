@@ -4,6 +4,7 @@
 package io.pivotal.android.auth;
 
 import android.test.AndroidTestCase;
+import android.util.Base64;
 
 import java.util.UUID;
 
@@ -18,4 +19,34 @@ public class TokenTest extends AndroidTestCase {
         assertEquals(ACCESS_TOKEN, token.getAccessToken());
         assertEquals(REFRESH_TOKEN, token.getRefreshToken());
     }
+
+    public void testConstructorDecodesClaims() {
+        final long expiration = System.currentTimeMillis() / 1000 + 60;
+        final Token token = new Token(getAccessToken(expiration), REFRESH_TOKEN);
+
+        assertEquals(expiration, token.getClaims().getExpiration());
+        assertFalse(token.isExpired());
+    }
+
+    public void testIsExpiredWithExpiredToken() {
+        final Token token = new Token(getAccessToken(System.currentTimeMillis() / 1000 - 1), REFRESH_TOKEN);
+
+        assertTrue(token.isExpired());
+    }
+
+    public void testIsExpiredWithInvalidTokenFormat() {
+        final Token token = new Token(ACCESS_TOKEN, REFRESH_TOKEN);
+
+        assertFalse(token.getClaims().hasExpiration());
+        assertFalse(token.isExpired());
+    }
+
+
+    // ====================================
+
+
+    private String getAccessToken(final long expirationInSeconds) {
+        final String expirationComponent = "{ \"exp\": \"" + expirationInSeconds + "\" }";
+        return "." + Base64.encodeToString(expirationComponent.getBytes(), Base64.DEFAULT);
+    }
 }
@@ -6,11 +6,13 @@ package io.pivotal.android.auth;
 import android.test.AndroidTestCase;
 import android.util.Base64;
 
+import java.util.Arrays;
 import java.util.UUID;
 
 public class TokenUtilTest extends AndroidTestCase {
 
     private static final String ACCESS_TOKEN = UUID.randomUUID().toString();
+    private static final String SUBJECT = UUID.randomUUID().toString();
 
     public void testNotExpiredToken() {
         final long expiration = System.currentTimeMillis() / 1000 + 60;
@@ -34,6 +36,52 @@ public class TokenUtilTest extends AndroidTestCase {
         assertFalse(TokenUtil.isExpired(accessToken));
     }
 
+    public void testGetExpiration() {
+        final long expiration = System.currentTimeMillis() / 1000 + 60;
+        final String accessToken = getAccessToken(expiration);
+        assertEquals(expiration, TokenUtil.getExpiration(accessToken));
+    }
+
+    public void testGetExpirationWithInvalidTokenFormat() {
+        assertEquals(TokenUtil.UNKNOWN_EXPIRATION, TokenUtil.getExpiration(ACCESS_TOKEN));
+    }
+
+    public void testGetClaims() {
+        final long expiration = System.currentTimeMillis() / 1000 + 60;
+        final String payload = "{ \"exp\": " + expiration + ", \"iat\": 10, \"nbf\": 20, \"sub\": \"" + SUBJECT + "\", \"scope\": [\"openid\", \"offline_access\"] }";
+        final TokenClaims claims = TokenUtil.getClaims(getToken(payload));
+
+        assertEquals(expiration, claims.getExpiration());
+        assertEquals(10, claims.getIssuedAt());
+        assertEquals(20, claims.getNotBefore());
+        assertEquals(SUBJECT, claims.getSubject());
+        assertEquals(Arrays.asList("openid", "offline_access"), claims.getScopes());
+    }
+
+    public void testGetClaimsWithSpaceDelimitedScope() {
+        final TokenClaims claims = TokenUtil.getClaims(getToken("{ \"scope\": \"openid offline_access\" }"));
+
+        assertEquals(Arrays.asList("openid", "offline_access"), claims.getScopes());
+        assertFalse(claims.hasExpiration());
+    }
+
+    public void testGetClaimsWithInvalidTokenFormat() {
+        assertSame(TokenClaims.EMPTY, TokenUtil.getClaims(ACCESS_TOKEN));
+    }
+
+    public void testGetClaimsWithEmptyToken() {
+        assertSame(TokenClaims.EMPTY, TokenUtil.getClaims(""));
+        assertSame(TokenClaims.EMPTY, TokenUtil.getClaims(null));
+    }
+
+    public void testNotExpiredExpiration() {
+        assertFalse(TokenUtil.isExpired(System.currentTimeMillis() / 1000 + 60));
+    }
+
+    public void testExpiredExpiration() {
+        assertTrue(TokenUtil.isExpired(System.currentTimeMillis() / 1000 + 29));
+    }
+
 
     // ====================================
 
@@ -43,6 +91,10 @@ public class TokenUtilTest extends AndroidTestCase {
         return "." + Base64.encodeToString(expirationComponent.getBytes(), Base64.DEFAULT);
     }
 
+    private String getToken(final String payload) {
+        return "header." + Base64.encodeToString(payload.getBytes(), Base64.NO_WRAP) + ".signature";
+    }
+
     private String getAccessTokenMissingExpField(final long expirationInSeconds) {
         final String expirationComponent = "{ \"not-exp\": \"" + expirationInSeconds + "\" }";
         return "." + Base64.encodeToString(expirationComponent.getBytes(), Base64.DEFAULT);
@@ -13,11 +13,12 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.text.TextUtils;
 
-import com.google.api.client.auth.oauth2.RefreshTokenRequest;
 import com.google.api.client.http.HttpResponseException;
 
 public class AccountAuthenticator extends AbstractAccountAuthenticator {
 
+    private static final Logger.Tag LOG = Logger.tag(AccountAuthenticator.class);
+
 	private final Context mContext;
 
 	public AccountAuthenticator(final Context context) {
@@ -64,26 +65,30 @@ public class AccountAuthenticator extends AbstractAccountAuthenticator {
 	// =============================================
 
 
+    protected boolean isAsync() {
+        return Pivotal.getConfig().isRefreshAsync();
+    }
+
     protected Class<?> getLoginActivityClass() {
         return PackageUtils.getLoginActivityClass(mContext);
     }
 
     protected Bundle newAccountBundle(final AccountAuthenticatorResponse response) {
-        Logger.v("newAccountBundle");
+        LOG.v("newAccountBundle");
 		final Bundle bundle = new Bundle();
 		bundle.putParcelable(AccountManager.KEY_INTENT, newLoginIntent(response));
 		return bundle;
 	}
 
     protected Intent newLoginIntent(final AccountAuthenticatorResponse response) {
-        Logger.v("newLoginIntent");
+        LOG.v("newLoginIntent");
         final Intent intent = new Intent(mContext, getLoginActivityClass());
         intent.putExtra(AccountManager.KEY_ACCOUNT_AUTHENTICATOR_RESPONSE, response);
         return intent;
     }
 
     protected Bundle newAuthTokenBundle(final Account account, final String authToken) {
-        Logger.v("newAuthTokenBundle: " + authToken);
+        LOG.v("newAuthTokenBundle: %s", authToken);
 		final Bundle bundle = new Bundle();
         bundle.putString(AccountManager.KEY_ACCOUNT_NAME, account.name);
         bundle.putString(AccountManager.KEY_ACCOUNT_TYPE, account.type);
@@ -92,7 +97,7 @@ public class AccountAuthenticator extends AbstractAccountAuthenticator {
 	}
 
     protected Bundle newResultBundle(final boolean result) {
-        Logger.v("newResultBundle: " + result);
+        LOG.v("newResultBundle: %s", result);
         final Bundle bundle = new Bundle();
         bundle.putBoolean(AccountManager.KEY_BOOLEAN_RESULT, result);
         return bundle;
@@ -100,7 +105,7 @@ public class AccountAuthenticator extends AbstractAccountAuthenticator {
 
     protected Bundle newErrorBundle(final Account account, final Throwable throwable) {
         final String message = throwable != null ? throwable.toString() : "Unknown";
-        Logger.v("newErrorBundle: " + message);
+        LOG.v("newErrorBundle: %s", message);
         final Bundle bundle = new Bundle();
         bundle.putString(AccountManager.KEY_ACCOUNT_NAME, account.name);
         bundle.putString(AccountManager.KEY_ACCOUNT_TYPE, account.type);
@@ -111,10 +116,10 @@ public class AccountAuthenticator extends AbstractAccountAuthenticator {
 
     protected Bundle newAuthTokenBundle(final AccountAuthenticatorResponse response, final Account account) {
 
-        final AccountsProxy proxy = AccountsProxyHolder.get(mContext);
+        final AccountsProxy proxy = AuthRuntime.getAccountsProxy(mContext);
         final String accessToken = proxy.getAccessToken(account);
 
-        Logger.v("newAuthTokenBundle accessToken: " + accessToken);
+        LOG.v("newAuthTokenBundle accessToken: %s", accessToken);
 
         if (!TextUtils.isEmpty(accessToken) && !TokenUtil.isExpired(accessToken)) {
             return newAuthTokenBundle(account, accessToken);
@@ -122,8 +127,8 @@ public class AccountAuthenticator extends AbstractAccountAuthenticator {
         } else {
             final String refreshToken = proxy.getRefreshToken(account);
 
-            Logger.v("newAuthTokenBundle accessToken " + (TextUtils.isEmpty(accessToken) ? "empty." : "expired."));
-            Logger.v("newAuthTokenBundle refreshToken: " + refreshToken);
+            LOG.v("newAuthTokenBundle accessToken %s.", TextUtils.isEmpty(accessToken) ? "empty" : "expired");
+            LOG.v("newAuthTokenBundle refreshToken: %s", refreshToken);
 
             if (!TextUtils.isEmpty(refreshToken)) {
                 return newAuthTokenBundle(response, account, refreshToken);
@@ -134,17 +139,54 @@ public class AccountAuthenticator extends AbstractAccountAuthenticator {
     }
 
     protected Bundle newAuthTokenBundle(final AccountAuthenticatorResponse response, final Account account, final String refreshToken) {
+        if (response != null && isAsync()) {
+
+            // release the binder thread, the result is delivered through the response
+            AuthExecutor.getRefreshExecutor().execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        deliverResult(response, refreshAuthTokenBundle(response, account, refreshToken));
+                    } catch (final Exception e) {
+                        LOG.ex(e);
+                        response.onError(AccountManager.ERROR_CODE_REMOTE_EXCEPTION, e.toString());
+                    }
+                }
+            });
+
+            return null;
+
+        } else {
+            return refreshAuthTokenBundle(response, account, refreshToken);
+        }
+    }
+
+    protected void deliverResult(final AccountAuthenticatorResponse response, final Bundle bundle) {
+        if (bundle.containsKey(AccountManager.KEY_ERROR_CODE)) {
+            response.onError(bundle.getInt(AccountManager.KEY_ERROR_CODE), bundle.getString(AccountManager.KEY_ERROR_MESSAGE));
+        } else {
+            response.onResult(bundle);
+        }
+    }
+
+    // concurrent refreshes of the account, here or in the scheduler, share one request
+    // and each caller builds its own bundle, a login intent carries its own response
+    protected Bundle refreshAuthTokenBundle(final AccountAuthenticatorResponse response, final Account account, final String refreshToken) {
+        return requestAuthTokenBundle(response, account, refreshToken);
+    }
+
+    protected Bundle requestAuthTokenBundle(final AccountAuthenticatorResponse response, final Account account, final String refreshToken) {
         try {
-            final RemoteAuthenticator authenticator = RemoteAuthenticatorHolder.get();
-            final RefreshTokenRequest request = authenticator.newRefreshTokenRequest(refreshToken);
-            final String accessToken = request.execute().getAccessToken();
+            final Token token = RefreshGate.refresh(mContext, account, refreshToken);
+            final String accessToken = token.getAccessToken();
 
-            Logger.v("newAuthTokenBundle new accessToken: " + accessToken);
+            LOG.v("newAuthTokenBundle new accessToken: %s", accessToken);
 
             return newAuthTokenBundle(account, accessToken);
 
         } catch (final HttpResponseException e) {
-            Logger.ex(e);
+            LOG.ex(e);
 
             if (e.getStatusCode() == 401) {
                 return newAccountBundle(response);
@@ -152,8 +194,12 @@ public class AccountAuthenticator extends AbstractAccountAuthenticator {
                 return newErrorBundle(account, e.getCause());
             }
 
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return newErrorBundle(account, e);
+
         } catch (final Exception e) {
-            Logger.ex(e);
+            LOG.ex(e);
 
             return newErrorBundle(account, e.getCause());
         }
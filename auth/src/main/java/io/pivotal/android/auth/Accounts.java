@@ -8,13 +8,15 @@ import android.content.Context;
 
 public class Accounts {
 
+    private static final Logger.Tag LOG = Logger.tag(Accounts.class);
+
     public static boolean addAccount(final Context context, final String name, final Token token) {
-        Logger.i("addAccount: " + name + ", token: " + token.getAccessToken());
+        LOG.i("addAccount: %s, token: %s", name, token.getAccessToken());
         final Account oldAccount = getAccount(context);
 
         if (oldAccount == null || oldAccount.name.equals(name)) {
-            final AccountsProxy proxy = AccountsProxyHolder.get(context);
-            final Account account = new Account(name, Pivotal.getAccountType());
+            final AccountsProxy proxy = AuthRuntime.getAccountsProxy(context);
+            final Account account = new Account(name, Pivotal.getConfig().getAccountType());
             proxy.addAccount(account, token.getRefreshToken());
             proxy.setAccessToken(account, token.getAccessToken());
             return true;
@@ -24,8 +26,8 @@ public class Accounts {
     }
 
     public static void removeAccount(final Context context) {
-        Logger.i("removeAccount");
-        final AccountsProxy proxy = AccountsProxyHolder.get(context);
+        LOG.i("removeAccount");
+        final AccountsProxy proxy = AuthRuntime.getAccountsProxy(context);
         final Account account = getAccount(context);
         if (account != null) {
             proxy.removeAccount(account);
@@ -33,28 +35,16 @@ public class Accounts {
     }
 
     public static Account getAccount(final Context context) {
-        final Account[] accounts = getAccounts(context);
+        final AccountsProxy proxy = AuthRuntime.getAccountsProxy(context);
+        final Account[] accounts = proxy.getAccounts();
         if (accounts.length == 1) {
             return accounts[0];
+        } else if (accounts.length == 0) {
+            return null;
         } else {
             final String name = AuthPreferences.getAccountName(context);
-            return getAccount(context, name);
-        }
-    }
-
-    private static Account[] getAccounts(final Context context) {
-        Logger.i("getAccounts");
-        return AccountsProxyHolder.get(context).getAccounts();
-    }
-
-    private static Account getAccount(final Context context, final String name) {
-        Logger.i("getAccount: " + name);
-        final Account[] accounts = getAccounts(context);
-        for (final Account account : accounts) {
-            if (name == null || name.equals(account.name)) {
-                return account;
-            }
+            LOG.i("getAccount: %s", name);
+            return proxy.getAccount(name);
         }
-        return null;
     }
 }
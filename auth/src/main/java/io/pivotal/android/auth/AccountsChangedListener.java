@@ -4,17 +4,17 @@
 package io.pivotal.android.auth;
 
 import android.accounts.Account;
-import android.accounts.AccountManager;
 import android.accounts.OnAccountsUpdateListener;
 import android.content.Context;
 
+// Kept for code that registers it with the account manager itself.
+// Account changes are handled by AuthStateBus, which Auth registers on
+// first use, so this only forwards to it.
+@Deprecated
 public class AccountsChangedListener implements OnAccountsUpdateListener {
 
     static AccountsChangedListener sAccountsChangedListener;
 
-    private boolean mIsLoggedIn;
-    private LoginListener mLoginListener;
-    private LogoutListener mLogoutListener;
     private final Context mContext;
 
     private AccountsChangedListener(final Context context) {
@@ -30,49 +30,19 @@ public class AccountsChangedListener implements OnAccountsUpdateListener {
     }
 
     @Override
-    public void onAccountsUpdated(Account[] accounts)  {
-        boolean isLoggedIn = isLoggedIn();
-
-        Logger.i("Accounts changed, isLoggedIn: " + isLoggedIn);
-
-        if (!mIsLoggedIn && isLoggedIn) {
-            Logger.i("Accounts onLogin");
-
-            if (mLoginListener != null) {
-                mLoginListener.onLogin(mContext);
-            }
-            AccountsProxyHolder.get(mContext).removeOnAccountsUpdatedListener(this);
-        } else if (mIsLoggedIn && !isLoggedIn) {
-            Logger.i("Accounts onLogout");
-
-            if (mLogoutListener != null) {
-                mLogoutListener.onLogout(mContext);
-            }
-            AccountsProxyHolder.get(mContext).removeOnAccountsUpdatedListener(this);
-        } else {
-            Logger.w("Accounts no login state change");
-        }
-
-
-        mIsLoggedIn = isLoggedIn;
+    public void onAccountsUpdated(final Account[] accounts) {
+        AuthStateBus.getInstance(mContext).onAccountsUpdated(accounts);
     }
 
     void registerLoginListener(final LoginListener listener) {
-        mLoginListener = listener;
-        mIsLoggedIn = isLoggedIn();
+        AuthStateBus.getInstance(mContext).addLoginListener(listener);
     }
 
     void registerLogoutListener(final LogoutListener listener) {
-        mLogoutListener = listener;
-        mIsLoggedIn = isLoggedIn();
+        AuthStateBus.getInstance(mContext).addLogoutListener(listener);
     }
 
     void setIsLoggedIn(final boolean loggedIn) {
-        mIsLoggedIn = loggedIn;
-    }
-
-    private boolean isLoggedIn() {
-        final Account account = Accounts.getAccount(mContext);
-        return account != null;
+        AuthStateBus.getInstance(mContext).setIsLoggedIn(loggedIn);
     }
 }
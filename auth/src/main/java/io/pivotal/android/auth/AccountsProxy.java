@@ -6,6 +6,9 @@ package io.pivotal.android.auth;
 import android.accounts.Account;
 import android.accounts.AccountManager;
 import android.accounts.AccountManagerFuture;
+import android.accounts.AuthenticatorException;
+import android.accounts.OnAccountsUpdateListener;
+import android.accounts.OperationCanceledException;
 import android.annotation.TargetApi;
 import android.app.Activity;
 import android.content.Context;
@@ -14,14 +17,26 @@ import android.os.Bundle;
 import android.webkit.CookieManager;
 import android.webkit.CookieSyncManager;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 /* package */ interface AccountsProxy {
 
     public String getRefreshToken(Account account);
 
     public String getAccessToken(Account account);
 
+    public String getCachedAccessToken(Account account);
+
     public void setAccessToken(Account account, String accessToken);
 
+    public void setRefreshToken(Account account, String refreshToken);
+
     public void invalidateAccessToken(String accessToken);
 
     public void addAccount(Account account, String refreshToken);
@@ -30,84 +45,143 @@ import android.webkit.CookieSyncManager;
 
     public Account[] getAccounts();
 
+    public Account getAccount(String name);
+
     public AccountManagerFuture<Bundle> getAuthTokenByFeatures(Activity activity);
 
     public AccountManagerFuture<Bundle> getAuthToken(Activity activity, Account account);
 
     public AccountManagerFuture<Bundle> getAuthToken(Account account);
 
-    public void addOnAccountsUpdatedListener(AccountsChangedListener listener);
+    public void addOnAccountsUpdatedListener(OnAccountsUpdateListener listener);
 
-    public void removeOnAccountsUpdatedListener(AccountsChangedListener listener);
+    public void removeOnAccountsUpdatedListener(OnAccountsUpdateListener listener);
 
     public void clearCookies(Context context);
 
+    public void clearAccessTokenCache();
+
     /* package */ class Default implements AccountsProxy {
 
+        private final TokenCache mCache = new TokenCache();
+        private final Context mContext;
+        private final AuthConfig mConfig;
         private AccountManager mManager;
 
+        // accounts of our type, kept current by the account manager's
+        // update callbacks so lookups don't need a binder call
+        private final Object mSnapshotLock = new Object();
+        private volatile Snapshot mSnapshot;
+        private int mGeneration;
+        private boolean mListening;
+
+        private final OnAccountsUpdateListener mSnapshotListener = new OnAccountsUpdateListener() {
+
+            @Override
+            public void onAccountsUpdated(final Account[] accounts) {
+                updateSnapshot(new Snapshot(filterByType(accounts)));
+            }
+        };
+
         public Default(final Context context) {
+            mContext = context;
+            mConfig = Pivotal.getConfig();
             mManager = AccountManager.get(context);
         }
 
         @Override
         public String getRefreshToken(final Account account) {
-            return mManager.getPassword(account);
+            return getTokenStore().getRefreshToken(account);
         }
 
         @Override
         public String getAccessToken(final Account account) {
-            return mManager.peekAuthToken(account, Pivotal.getTokenType());
+            final String cachedToken = mCache.get(account, mConfig.getTokenType());
+            if (cachedToken != null) {
+                return cachedToken;
+            }
+
+            final String token = getTokenStore().getAccessToken(account);
+            cacheAccessToken(account, token);
+            return token;
+        }
+
+        @Override
+        public String getCachedAccessToken(final Account account) {
+            return mCache.get(account, mConfig.getTokenType());
         }
 
         @Override
         public void setAccessToken(final Account account, final String token) {
-            mManager.setAuthToken(account, Pivotal.getTokenType(), token);
+            getTokenStore().setAccessToken(account, token);
+            cacheAccessToken(account, token);
+        }
+
+        @Override
+        public void setRefreshToken(final Account account, final String refreshToken) {
+            getTokenStore().setRefreshToken(account, refreshToken);
         }
 
         @Override
         public void invalidateAccessToken(final String token) {
-            mManager.invalidateAuthToken(Pivotal.getAccountType(), token);
+            mCache.invalidate(token);
+            TokenRefreshScheduler.getInstance(mContext).cancel(token);
+            final TokenStore store = getTokenStore();
+            store.invalidateAccessToken(mConfig.getAccountType(), token);
+            if (isSeparateStore(store)) {
+                mManager.invalidateAuthToken(mConfig.getAccountType(), token);
+            }
         }
 
         @Override
         public void addAccount(final Account account, final String refreshToken) {
-            mManager.addAccountExplicitly(account, refreshToken, null);
+            mManager.addAccountExplicitly(account, null, null);
+            getTokenStore().setRefreshToken(account, refreshToken);
+            updateSnapshot(null);
         }
 
         @Override
         public void removeAccount(final Account account) {
+            mCache.remove(account);
+            TokenRefreshScheduler.getInstance(mContext).cancel(account);
+            getTokenStore().remove(account);
             mManager.removeAccount(account, null, null);
+            updateSnapshot(null);
         }
 
         @Override
         public Account[] getAccounts() {
-            return mManager.getAccountsByType(Pivotal.getAccountType());
+            return getSnapshot().mAccounts.clone();
+        }
+
+        @Override
+        public Account getAccount(final String name) {
+            return name != null ? getSnapshot().mAccountsByName.get(name) : null;
         }
 
         @Override
         public AccountManagerFuture<Bundle> getAuthTokenByFeatures(final Activity activity) {
-            return mManager.getAuthTokenByFeatures(Pivotal.getAccountType(), Pivotal.getTokenType(), null, activity, null, null, null, null);
+            return new CachingFuture(mManager.getAuthTokenByFeatures(mConfig.getAccountType(), mConfig.getTokenType(), null, activity, null, null, null, null));
         }
 
         @Override
         public AccountManagerFuture<Bundle> getAuthToken(final Activity activity, final Account account) {
-            return mManager.getAuthToken(account, Pivotal.getTokenType(), null, activity, null, null);
+            return new CachingFuture(mManager.getAuthToken(account, mConfig.getTokenType(), null, activity, null, null));
         }
 
         @Override
         @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
         public AccountManagerFuture<Bundle> getAuthToken(final Account account) {
-            return mManager.getAuthToken(account, Pivotal.getTokenType(), null, false, null, null);
+            return new CachingFuture(mManager.getAuthToken(account, mConfig.getTokenType(), null, false, null, null));
         }
 
         @Override
-        public void addOnAccountsUpdatedListener(AccountsChangedListener listener) {
-            mManager.addOnAccountsUpdatedListener(listener, null, true);
+        public void addOnAccountsUpdatedListener(final OnAccountsUpdateListener listener) {
+            mManager.addOnAccountsUpdatedListener(listener, null, false);
         }
 
         @Override
-        public void removeOnAccountsUpdatedListener(AccountsChangedListener listener) {
+        public void removeOnAccountsUpdatedListener(final OnAccountsUpdateListener listener) {
             mManager.removeOnAccountsUpdatedListener(listener);
         }
 
@@ -117,5 +191,134 @@ import android.webkit.CookieSyncManager;
             CookieSyncManager.createInstance(context);
             CookieManager.getInstance().removeAllCookie();
         }
+
+        @Override
+        public void clearAccessTokenCache() {
+            mCache.clear();
+        }
+
+        private void cacheAccessToken(final Account account, final String token) {
+            mCache.put(account, mConfig.getTokenType(), token);
+            TokenRefreshScheduler.getInstance(mContext).schedule(account, token);
+        }
+
+        private TokenStore getTokenStore() {
+            return AuthRuntime.getTokenStore(mContext);
+        }
+
+        // the account manager keeps its own copy of every token the
+        // authenticator returns, a separate store has to follow it
+        private boolean isSeparateStore(final TokenStore store) {
+            return !(store instanceof TokenStore.Default);
+        }
+
+        private Snapshot getSnapshot() {
+            final Snapshot snapshot = mSnapshot;
+            return snapshot != null ? snapshot : loadSnapshot();
+        }
+
+        private Snapshot loadSnapshot() {
+            final int generation;
+            synchronized (mSnapshotLock) {
+                if (!mListening) {
+                    mManager.addOnAccountsUpdatedListener(mSnapshotListener, null, false);
+                    mListening = true;
+                }
+                generation = mGeneration;
+            }
+
+            final Snapshot snapshot = new Snapshot(mManager.getAccountsByType(mConfig.getAccountType()));
+
+            // an update that arrived during the lookup is newer than what we read
+            synchronized (mSnapshotLock) {
+                if (generation == mGeneration) {
+                    mSnapshot = snapshot;
+                }
+            }
+            return snapshot;
+        }
+
+        private void updateSnapshot(final Snapshot snapshot) {
+            synchronized (mSnapshotLock) {
+                mGeneration++;
+                mSnapshot = snapshot;
+            }
+        }
+
+        private Account[] filterByType(final Account[] accounts) {
+            final String type = mConfig.getAccountType();
+            final List<Account> filtered = new ArrayList<Account>(accounts.length);
+            for (final Account account : accounts) {
+                if (type.equals(account.type)) {
+                    filtered.add(account);
+                }
+            }
+            return filtered.toArray(new Account[filtered.size()]);
+        }
+
+        private static final class Snapshot {
+
+            private final Account[] mAccounts;
+            private final Map<String, Account> mAccountsByName;
+
+            public Snapshot(final Account[] accounts) {
+                final Map<String, Account> accountsByName = new HashMap<String, Account>();
+                for (final Account account : accounts) {
+                    accountsByName.put(account.name, account);
+                }
+                mAccounts = accounts;
+                mAccountsByName = Collections.unmodifiableMap(accountsByName);
+            }
+        }
+
+        private final class CachingFuture implements AccountManagerFuture<Bundle> {
+
+            private final AccountManagerFuture<Bundle> mFuture;
+
+            public CachingFuture(final AccountManagerFuture<Bundle> future) {
+                mFuture = future;
+            }
+
+            @Override
+            public boolean cancel(final boolean mayInterruptIfRunning) {
+                return mFuture.cancel(mayInterruptIfRunning);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return mFuture.isCancelled();
+            }
+
+            @Override
+            public boolean isDone() {
+                return mFuture.isDone();
+            }
+
+            @Override
+            public Bundle getResult() throws OperationCanceledException, IOException, AuthenticatorException {
+                return cacheResult(mFuture.getResult());
+            }
+
+            @Override
+            public Bundle getResult(final long timeout, final TimeUnit unit) throws OperationCanceledException, IOException, AuthenticatorException {
+                return cacheResult(mFuture.getResult(timeout, unit));
+            }
+
+            private Bundle cacheResult(final Bundle bundle) {
+                final String name = bundle.getString(AccountManager.KEY_ACCOUNT_NAME);
+                final String type = bundle.getString(AccountManager.KEY_ACCOUNT_TYPE);
+                final String token = bundle.getString(AccountManager.KEY_AUTHTOKEN);
+
+                if (name != null && type != null && token != null) {
+                    final Account account = new Account(name, type);
+                    final TokenStore store = getTokenStore();
+                    if (isSeparateStore(store)) {
+                        store.setAccessToken(account, token);
+                    }
+                    cacheAccessToken(account, token);
+                }
+                return bundle;
+            }
+        }
     }
 }
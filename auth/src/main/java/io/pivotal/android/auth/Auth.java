@@ -6,58 +6,92 @@ package io.pivotal.android.auth;
 import android.accounts.Account;
 import android.content.Context;
 
-public class Auth {
+import com.google.api.client.http.HttpTransport;
 
-    public static Response getAccessToken(final Context context) {
-        AccountsProxyHolder.get(context).removeOnAccountsUpdatedListener(AccountsChangedListener.getInstance(context));
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
-        // only add listener if there isn't already a logged in user
-        if (Accounts.getAccount(context) == null) {
-            AccountsProxyHolder.get(context).addOnAccountsUpdatedListener(AccountsChangedListener.getInstance(context));
-        }
+public class Auth {
 
-        return AuthClientHolder.get(context).requestAccessToken(context);
+    public static Response getAccessToken(final Context context) {
+        AuthStateBus.getInstance(context).register();
+        return AuthRuntime.getAuthClient(context).requestAccessToken(context);
     }
 
-    public static void getAccessToken(final Context context, final Listener listener) {
-        AccountsProxyHolder.get(context).removeOnAccountsUpdatedListener(AccountsChangedListener.getInstance(context));
-
-        // only add listener if there isn't already a logged in user
-        if (Accounts.getAccount(context) == null) {
-            AccountsProxyHolder.get(context).addOnAccountsUpdatedListener(AccountsChangedListener.getInstance(context));
-        }
+    public static Future<Response> getAccessToken(final Context context, final Listener listener) {
+        AuthStateBus.getInstance(context).register();
+        return AuthRuntime.getAuthClient(context).requestAccessToken(context, listener);
+    }
 
-        AuthClientHolder.get(context).requestAccessToken(context, listener);
+    public static Future<Void> prewarm(final Context context) {
+        AuthStateBus.getInstance(context).register();
+        return AuthRuntime.prewarm(context);
     }
 
     public static void invalidateAccessToken(final Context context) {
-        final AccountsProxy proxy = AccountsProxyHolder.get(context);
+        AuthStateBus.getInstance(context).register();
+        final AccountsProxy proxy = AuthRuntime.getAccountsProxy(context);
         final Account account = Accounts.getAccount(context);
         final String accessToken = proxy.getAccessToken(account);
         proxy.invalidateAccessToken(accessToken);
     }
 
     public static void logout(final Context context) {
-        final AccountsProxy accountsProxy = AccountsProxyHolder.get(context);
-        accountsProxy.removeOnAccountsUpdatedListener(AccountsChangedListener.getInstance(context));
+        AuthStateBus.getInstance(context).register();
+        final AccountsProxy accountsProxy = AuthRuntime.getAccountsProxy(context);
 
         if (Accounts.getAccount(context) != null) {
-            accountsProxy.addOnAccountsUpdatedListener(AccountsChangedListener.getInstance(context));
             accountsProxy.clearCookies(context);
             Accounts.removeAccount(context);
         }
+
+        accountsProxy.clearAccessTokenCache();
+        TokenRefreshScheduler.getInstance(context).cancelAll();
     }
 
     public static void setShouldShowUserPrompt(final Context context, final boolean enabled) {
-        AuthClientHolder.get(context).setShouldShowUserPrompt(enabled);
+        AuthRuntime.getAuthClient(context).setShouldShowUserPrompt(enabled);
+    }
+
+    public static void setShouldRefreshAhead(final Context context, final boolean enabled) {
+        TokenRefreshScheduler.getInstance(context).setEnabled(enabled);
+    }
+
+    public static void setExecutor(final ExecutorService executor) {
+        AuthExecutor.init(executor);
+    }
+
+    public static void setTokenStore(final TokenStore store) {
+        AuthRuntime.setTokenStore(store);
+    }
+
+    public static void setMetrics(final AuthMetrics metrics) {
+        AuthRuntime.setMetrics(metrics);
+    }
+
+    public static AuthMetrics getMetrics() {
+        return AuthRuntime.getMetrics();
+    }
+
+    public static void setHttpTransport(final HttpTransport transport) {
+        AuthHttpTransport.init(transport);
+        AuthRuntime.resetDefaultRemoteAuthenticator();
     }
 
     public static void registerLoginListener(final Context context, final LoginListener listener) {
-        AccountsChangedListener.getInstance(context).registerLoginListener(listener);
+        AuthStateBus.getInstance(context).addLoginListener(listener);
+    }
+
+    public static void unregisterLoginListener(final Context context, final LoginListener listener) {
+        AuthStateBus.getInstance(context).removeLoginListener(listener);
     }
 
     public static void registerLogoutListener(final Context context, final LogoutListener listener) {
-        AccountsChangedListener.getInstance(context).registerLogoutListener(listener);
+        AuthStateBus.getInstance(context).addLogoutListener(listener);
+    }
+
+    public static void unregisterLogoutListener(final Context context, final LogoutListener listener) {
+        AuthStateBus.getInstance(context).removeLogoutListener(listener);
     }
 
     public static interface Listener {
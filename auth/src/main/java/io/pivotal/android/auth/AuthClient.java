@@ -6,22 +6,30 @@ package io.pivotal.android.auth;
 import android.accounts.Account;
 import android.accounts.AccountManager;
 import android.accounts.AccountManagerFuture;
+import android.accounts.OperationCanceledException;
 import android.annotation.TargetApi;
 import android.app.Activity;
 import android.content.Context;
-import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /* package */ interface AuthClient {
 
     public Response requestAccessToken(Context context);
 
-    public void requestAccessToken(Context context, Auth.Listener listener);
+    public Future<Response> requestAccessToken(Context context, Auth.Listener listener);
 
     public Response requestAccessToken(Context context, Account account, boolean validate);
 
-    public void requestAccessToken(Context context, Account account, boolean validate, Auth.Listener listener);
+    public Future<Response> requestAccessToken(Context context, Account account, boolean validate, Auth.Listener listener);
 
     public void setShouldShowUserPrompt(boolean enabled);
 
@@ -29,13 +37,17 @@ import android.os.Bundle;
     @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
     /* package */ class Default implements AuthClient {
 
+        private static final Logger.Tag LOG = Logger.tag(AuthClient.class);
+
         private static final String NO_TOKEN_FOUND = "No access token found.";
 
         private final AccountsProxy mProxy;
+        private final SingleFlight<String, Response> mInFlight = new SingleFlight<String, Response>();
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
         private boolean mDisableUserPrompt;
 
         public Default(final Context context) {
-            mProxy = AccountsProxyHolder.get(context);
+            mProxy = AuthRuntime.getAccountsProxy(context);
         }
 
         public Default(final AccountsProxy proxy) {
@@ -56,64 +68,127 @@ import android.os.Bundle;
                     return getFailureAuthResponse(new Exception(NO_TOKEN_FOUND));
                 }
 
-                final AccountManagerFuture<Bundle> future = mProxy.getAuthToken(account);
-                return validateTokenInFuture(context, future);
+                final Response cachedResponse = getCachedResponse(account);
+                if (cachedResponse != null) {
+                    return cachedResponse;
+                }
+
+                return requestAccessTokenInFlight(context, account, true);
             }
         }
 
         @Override
-        public void requestAccessToken(final Context context, final Auth.Listener listener) {
-            new AsyncTask<Void, Void, Response>() {
+        public Future<Response> requestAccessToken(final Context context, final Auth.Listener listener) {
+            return submit(new Callable<Response>() {
 
                 @Override
-                protected Response doInBackground(final Void... params) {
+                public Response call() {
                     return requestAccessToken(context);
                 }
 
-                @Override
-                protected void onPostExecute(final Response response) {
-                    if (listener != null) {
-                        listener.onResponse(response);
-                    }
-                }
-
-            }.execute();
+            }, listener);
         }
 
         @Override
         public Response requestAccessToken(final Context context, final Account account, final boolean validate) {
-            final AccountManagerFuture<Bundle> future;
+            if (validate) {
+                final Response cachedResponse = getCachedResponse(account);
+                if (cachedResponse != null) {
+                    return cachedResponse;
+                }
+            }
 
             if (context instanceof Activity && !mDisableUserPrompt) {
-                future = mProxy.getAuthToken((Activity) context, account);
-            } else {
-                future = mProxy.getAuthToken(account);
-            }
 
-            if (validate) {
-                return validateTokenInFuture(context, future);
+                final AccountManagerFuture<Bundle> future = mProxy.getAuthToken((Activity) context, account);
+                return getResponseFromFuture(context, future, validate);
+
             } else {
-                return retrieveResponseFromFuture(future);
+
+                return requestAccessTokenInFlight(context, account, validate);
             }
         }
 
         @Override
-        public void requestAccessToken(final Context context, final Account account, final boolean validate, final Auth.Listener listener) {
-            new AsyncTask<Void, Void, Response>() {
+        public Future<Response> requestAccessToken(final Context context, final Account account, final boolean validate, final Auth.Listener listener) {
+            return submit(new Callable<Response>() {
 
                 @Override
-                protected Response doInBackground(final Void... params) {
+                public Response call() {
                     return requestAccessToken(context, account, validate);
                 }
 
-                @Override
-                protected void onPostExecute(final Response response) {
-                    if (listener != null) {
-                        listener.onResponse(response);
-                    }
+            }, listener);
+        }
+
+        protected Future<Response> submit(final Callable<Response> callable, final Auth.Listener listener) {
+            final ResponseTask task = new ResponseTask(callable, listener);
+            AuthExecutor.get().execute(task);
+            return task;
+        }
+
+        protected Response getCachedResponse(final Account account) {
+            final String accessToken = mProxy.getCachedAccessToken(account);
+
+            if (accessToken != null) {
+                LOG.i("requested access token found in cache.");
+                AuthRuntime.getMetrics().increment(AuthMetrics.Counter.CACHE_HIT);
+                return new Response(accessToken, account.name);
+            } else {
+                AuthRuntime.getMetrics().increment(AuthMetrics.Counter.CACHE_MISS);
+                return null;
+            }
+        }
+
+        protected Response requestAccessTokenInFlight(final Context context, final Account account, final boolean validate) {
+            while (true) {
+                final AtomicBoolean isLeader = new AtomicBoolean();
+                final Response response;
+
+                try {
+                    response = mInFlight.execute(getInFlightKey(account, validate), new Callable<Response>() {
+
+                        @Override
+                        public Response call() {
+                            isLeader.set(true);
+                            final AccountManagerFuture<Bundle> future = mProxy.getAuthToken(account);
+                            return getResponseFromFuture(context, future, validate);
+                        }
+                    });
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return getFailureAuthResponse(e);
+                } catch (final Exception e) {
+                    return getFailureAuthResponse(e);
+                }
+
+                if (isLeader.get()) {
+                    return response;
                 }
 
-            }.execute();
+                // the leader runs on its caller's thread, when that caller is
+                // cancelled the followers did not give up, so they ask again
+                if (isAborted(response)) {
+                    LOG.i("requested access token retry after cancelled request.");
+                    continue;
+                }
+
+                // every caller gets its own response, the fields are public
+                return new Response(response);
+            }
+        }
+
+        private static boolean isAborted(final Response response) {
+            final Throwable cause = response.isFailure() ? response.error.getCause() : null;
+            return cause instanceof OperationCanceledException || cause instanceof InterruptedException;
+        }
+
+        protected Response getResponseFromFuture(final Context context, final AccountManagerFuture<Bundle> future, final boolean validate) {
+            if (validate) {
+                return validateTokenInFuture(context, future);
+            } else {
+                return retrieveResponseFromFuture(future);
+            }
         }
 
         protected Response validateTokenInFuture(final Context context, final AccountManagerFuture<Bundle> future) {
@@ -124,15 +199,17 @@ import android.os.Bundle;
             }
 
             if (response.isSuccess() && response.isTokenExpired()) {
-                Logger.i("requested access token expired.");
+                LOG.i("requested access token expired.");
 
                 mProxy.invalidateAccessToken(response.accessToken);
 
-                Logger.i("requested access token invalidated.");
+                LOG.i("requested access token invalidated.");
 
                 final Account account = getAccount(context);
 
-                Logger.i("requested access token retry.");
+                LOG.i("requested access token retry.");
+
+                AuthRuntime.getMetrics().increment(AuthMetrics.Counter.RETRY);
 
                 return requestAccessToken(context, account, false);
             } else {
@@ -141,15 +218,17 @@ import android.os.Bundle;
         }
 
         protected Response retrieveResponseFromFuture(final AccountManagerFuture<Bundle> future) {
+            final long start = System.nanoTime();
             try {
 
                 final Bundle bundle = future.getResult();
+                AuthRuntime.getMetrics().record(AuthMetrics.Stage.ACCOUNT_MANAGER, System.nanoTime() - start);
                 final String accessToken = bundle.getString(AccountManager.KEY_AUTHTOKEN);
                 final String accountName = bundle.getString(AccountManager.KEY_ACCOUNT_NAME);
 
-                Logger.i("requested access token for account: " + accountName);
+                LOG.i("requested access token for account: %s", accountName);
 
-                Logger.i("requested access token: " + accessToken);
+                LOG.i("requested access token: %s", accessToken);
 
                 if (accessToken == null) {
                     return getFailureAuthResponse(new Exception(NO_TOKEN_FOUND));
@@ -175,11 +254,56 @@ import android.os.Bundle;
             AuthPreferences.setAccountName(context, name);
         }
 
+        // the token type is fixed per configuration, so the account identifies the token
+        protected String getInFlightKey(final Account account, final boolean validate) {
+            return account.type + ":" + account.name + ":" + validate;
+        }
+
         protected Response getFailureAuthResponse(final Exception e) {
-            Logger.i("requested access token error: " + e.getCause());
+            LOG.i("requested access token error: %s", e.getCause());
+
+            AuthRuntime.getMetrics().increment(AuthMetrics.Counter.FAILURE);
 
             return new Response(new AuthError(e));
         }
 
+        private final class ResponseTask extends FutureTask<Response> {
+
+            private final Auth.Listener mListener;
+
+            public ResponseTask(final Callable<Response> callable, final Auth.Listener listener) {
+                super(callable);
+                mListener = listener;
+            }
+
+            @Override
+            protected void done() {
+                if (mListener == null || isCancelled()) {
+                    return;
+                }
+
+                final Response response = getResponse();
+
+                mHandler.post(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        mListener.onResponse(response);
+                    }
+                });
+            }
+
+            private Response getResponse() {
+                try {
+                    return get();
+                } catch (final ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    return getFailureAuthResponse(cause instanceof Exception ? (Exception) cause : e);
+                } catch (final InterruptedException e) {
+                    return getFailureAuthResponse(e);
+                }
+            }
+        }
+
     }
 }
@@ -7,11 +7,11 @@ import android.annotation.TargetApi;
 import android.content.Context;
 import android.os.Build;
 
-import com.google.api.client.auth.oauth2.TokenResponse;
-
 @TargetApi(Build.VERSION_CODES.HONEYCOMB)
 /* package */ class AuthCodeTokenLoader extends TokenLoader {
 
+    private static final Logger.Tag LOG = Logger.tag(AuthCodeTokenLoader.class);
+
     private final String mAuthCode;
 
     public AuthCodeTokenLoader(final Context context, final String authCode) {
@@ -20,13 +20,13 @@ import com.google.api.client.auth.oauth2.TokenResponse;
     }
 
     @Override
-    public TokenResponse loadInBackground() {
+    public Token loadInBackground() {
         try {
-            final RemoteAuthenticator authenticator = RemoteAuthenticatorHolder.get();
-            return authenticator.newAuthorizationCodeTokenRequest(mAuthCode).execute();
+            final RemoteAuthenticator authenticator = AuthRuntime.getRemoteAuthenticator();
+            return TokenResponseParser.execute(authenticator.newAuthorizationCodeTokenRequest(mAuthCode));
         } catch (final Exception e) {
-            Logger.ex(e);
-            return new ErrorResponse(e);
+            LOG.ex(e);
+            return new ErrorToken(e);
         }
     }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.text.TextUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/* package */ final class AuthConfig {
+
+    /* package */ static final class Keys {
+        /* package */ static final String CLIENT_ID = "pivotal.auth.clientId";
+        /* package */ static final String CLIENT_SECRET = "pivotal.auth.clientSecret";
+        /* package */ static final String AUTHORIZE_URL = "pivotal.auth.authorizeUrl";
+        /* package */ static final String TOKEN_URL = "pivotal.auth.tokenUrl";
+        /* package */ static final String REDIRECT_URL = "pivotal.auth.redirectUrl";
+        /* package */ static final String ACCOUNT_TYPE = "pivotal.auth.accountType";
+        /* package */ static final String TOKEN_TYPE = "pivotal.auth.tokenType";
+        /* package */ static final String SCOPES = "pivotal.auth.scopes";
+        /* package */ static final String CONNECT_TIMEOUT = "pivotal.auth.connectTimeout";
+        /* package */ static final String READ_TIMEOUT = "pivotal.auth.readTimeout";
+        /* package */ static final String REFRESH_ASYNC = "pivotal.auth.refreshAsync";
+    }
+
+    private static final int DEFAULT_TIMEOUT = 20000; // milliseconds
+
+    private final String mClientId;
+    private final String mClientSecret;
+    private final String mAuthorizeUrl;
+    private final String mTokenUrl;
+    private final String mRedirectUrl;
+    private final String mAccountType;
+    private final String mTokenType;
+    private final String mScopes;
+    private final List<String> mScopeList;
+    private final int mConnectTimeout;
+    private final int mReadTimeout;
+    private final boolean mRefreshAsync;
+
+    // keys are read once up front, the ones every request needs are
+    // checked here, the ones only some grants need are checked on use
+    // so a configuration without them can still refresh tokens
+    /* package */ AuthConfig(final Properties properties) {
+        mClientId = require(properties, Keys.CLIENT_ID);
+        mClientSecret = require(properties, Keys.CLIENT_SECRET);
+        mAuthorizeUrl = read(properties, Keys.AUTHORIZE_URL);
+        mTokenUrl = require(properties, Keys.TOKEN_URL);
+        mRedirectUrl = read(properties, Keys.REDIRECT_URL);
+        mAccountType = require(properties, Keys.ACCOUNT_TYPE);
+        mTokenType = require(properties, Keys.TOKEN_TYPE);
+        mScopes = read(properties, Keys.SCOPES);
+        mScopeList = mScopes != null ? Collections.unmodifiableList(Arrays.asList(mScopes.split(" "))) : null;
+        mConnectTimeout = readInt(properties, Keys.CONNECT_TIMEOUT, DEFAULT_TIMEOUT);
+        mReadTimeout = readInt(properties, Keys.READ_TIMEOUT, DEFAULT_TIMEOUT);
+        mRefreshAsync = Boolean.parseBoolean(read(properties, Keys.REFRESH_ASYNC));
+    }
+
+    public String getClientId() {
+        return mClientId;
+    }
+
+    public String getClientSecret() {
+        return mClientSecret;
+    }
+
+    public String getAuthorizeUrl() {
+        return require(mAuthorizeUrl, Keys.AUTHORIZE_URL);
+    }
+
+    public String getTokenUrl() {
+        return mTokenUrl;
+    }
+
+    public String getRedirectUrl() {
+        return require(mRedirectUrl, Keys.REDIRECT_URL);
+    }
+
+    public String getAccountType() {
+        return mAccountType;
+    }
+
+    public String getTokenType() {
+        return mTokenType;
+    }
+
+    public String getScopes() {
+        return require(mScopes, Keys.SCOPES);
+    }
+
+    public List<String> getScopeList() {
+        return require(mScopeList, Keys.SCOPES);
+    }
+
+    public int getConnectTimeout() {
+        return mConnectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return mReadTimeout;
+    }
+
+    // the authenticator may run before any application code, so it takes this from the config
+    public boolean isRefreshAsync() {
+        return mRefreshAsync;
+    }
+
+    private static String read(final Properties properties, final String key) {
+        final String value = properties.getProperty(key);
+        return TextUtils.isEmpty(value) ? null : value;
+    }
+
+    private static String require(final Properties properties, final String key) {
+        return require(read(properties, key), key);
+    }
+
+    private static <T> T require(final T value, final String key) {
+        if (value == null) {
+            throw new IllegalStateException("'" + key + "' not found in pivotal.properties");
+        }
+        return value;
+    }
+
+    private static int readInt(final Properties properties, final String key, final int defaultValue) {
+        final String value = read(properties, key);
+        try {
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        } catch (final NumberFormatException e) {
+            throw new IllegalStateException("'" + key + "' in pivotal.properties is not a number");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* package */ class AuthExecutor {
+
+    private static final int POOL_SIZE = 4;
+    private static final long KEEP_ALIVE = 30;
+
+    private static final Object LOCK = new Object();
+    private static volatile ExecutorService sExecutor;
+    private static volatile ExecutorService sRefreshExecutor;
+
+    public static void init(final ExecutorService executor) {
+        sExecutor = executor;
+    }
+
+    /* package */ static void initRefreshExecutor(final ExecutorService executor) {
+        sRefreshExecutor = executor;
+    }
+
+    public static ExecutorService get() {
+        if (sExecutor == null) {
+            synchronized (LOCK) {
+                if (sExecutor == null) {
+                    sExecutor = newExecutor("AuthExecutor");
+                }
+            }
+        }
+        return sExecutor;
+    }
+
+    // authenticator refreshes get their own threads, tasks on the shared pool
+    // block on the account manager, which may be waiting for one of these
+    public static ExecutorService getRefreshExecutor() {
+        if (sRefreshExecutor == null) {
+            synchronized (LOCK) {
+                if (sRefreshExecutor == null) {
+                    sRefreshExecutor = newExecutor("AuthRefresh");
+                }
+            }
+        }
+        return sRefreshExecutor;
+    }
+
+    private static ExecutorService newExecutor(final String name) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new AuthThreadFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static final class AuthThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger mCount = new AtomicInteger();
+        private final String mName;
+
+        public AuthThreadFactory(final String name) {
+            mName = name;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, mName + " #" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+
+/* package */ class AuthHttpTransport {
+
+    private static final Object LOCK = new Object();
+    private static volatile HttpTransport sTransport;
+
+    public static void init(final HttpTransport transport) {
+        sTransport = transport;
+    }
+
+    public static HttpTransport get() {
+        if (sTransport == null) {
+            synchronized (LOCK) {
+                if (sTransport == null) {
+                    sTransport = newTransport();
+                }
+            }
+        }
+        return sTransport;
+    }
+
+    // HttpURLConnection keeps idle connections alive per host and the
+    // default socket factory shares the platform's TLS session cache, so
+    // one transport is all it takes to reuse connections to the token url.
+    private static HttpTransport newTransport() {
+        return new NetHttpTransport();
+    }
+
+    /* package */ static final class TimeoutInitializer implements HttpRequestInitializer {
+
+        private final int mConnectTimeout;
+        private final int mReadTimeout;
+
+        public TimeoutInitializer(final int connectTimeout, final int readTimeout) {
+            mConnectTimeout = connectTimeout;
+            mReadTimeout = readTimeout;
+        }
+
+        public int getConnectTimeout() {
+            return mConnectTimeout;
+        }
+
+        public int getReadTimeout() {
+            return mReadTimeout;
+        }
+
+        @Override
+        public void initialize(final HttpRequest request) {
+            request.setConnectTimeout(mConnectTimeout);
+            request.setReadTimeout(mReadTimeout);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public interface AuthMetrics {
+
+    public static enum Counter {
+        CACHE_HIT,
+        CACHE_MISS,
+        RETRY,
+        FAILURE,
+        REFRESH,
+        REFRESH_JOINED,
+        REFRESH_FAILURE,
+        HTTP_FAILURE
+    }
+
+    public static enum Stage {
+        ACCOUNT_MANAGER,
+        JWT_DECODE,
+        REFRESH,
+        HTTP_REQUEST
+    }
+
+    public void increment(Counter counter);
+
+    public void record(Stage stage, long durationNanos);
+
+    // Counts are spread over a few stripes picked by thread so that
+    // concurrent updates rarely touch the same cache line, an update is
+    // one uncontended atomic add and reads sum the stripes. Latencies go
+    // into power of two buckets of microseconds.
+    public static class Default implements AuthMetrics {
+
+        public static final int BUCKETS = 32;
+
+        private static final int STRIPES = 8;
+        private static final int PADDING = 8; // longs per 64 byte cache line
+
+        private static final int COUNTERS = Counter.values().length;
+        private static final int STAGES = Stage.values().length;
+
+        private final AtomicLongArray mCounts = new AtomicLongArray(COUNTERS * STRIPES * PADDING);
+        private final AtomicLongArray mTimes = new AtomicLongArray(STAGES * STRIPES * PADDING);
+        private final AtomicLongArray mBuckets = new AtomicLongArray(STRIPES * STAGES * BUCKETS);
+
+        @Override
+        public void increment(final Counter counter) {
+            mCounts.incrementAndGet(padded(counter.ordinal(), stripe()));
+        }
+
+        @Override
+        public void record(final Stage stage, final long durationNanos) {
+            final int stripe = stripe();
+            final int stageIndex = stage.ordinal();
+            mTimes.addAndGet(padded(stageIndex, stripe), durationNanos);
+            mBuckets.incrementAndGet((stripe * STAGES + stageIndex) * BUCKETS + getBucket(durationNanos));
+        }
+
+        public long getCount(final Counter counter) {
+            long total = 0;
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                total += mCounts.get(padded(counter.ordinal(), stripe));
+            }
+            return total;
+        }
+
+        public long getCount(final Stage stage) {
+            long total = 0;
+            for (final long count : getHistogram(stage)) {
+                total += count;
+            }
+            return total;
+        }
+
+        public long getTotalNanos(final Stage stage) {
+            long total = 0;
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                total += mTimes.get(padded(stage.ordinal(), stripe));
+            }
+            return total;
+        }
+
+        // bucket i holds durations below 2^i microseconds, the last also holds anything longer
+        public long[] getHistogram(final Stage stage) {
+            final long[] histogram = new long[BUCKETS];
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                final int offset = (stripe * STAGES + stage.ordinal()) * BUCKETS;
+                for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                    histogram[bucket] += mBuckets.get(offset + bucket);
+                }
+            }
+            return histogram;
+        }
+
+        public void reset() {
+            for (int i = 0; i < mCounts.length(); i++) {
+                mCounts.set(i, 0);
+            }
+            for (int i = 0; i < mTimes.length(); i++) {
+                mTimes.set(i, 0);
+            }
+            for (int i = 0; i < mBuckets.length(); i++) {
+                mBuckets.set(i, 0);
+            }
+        }
+
+        /* package */ static int getBucket(final long durationNanos) {
+            final long micros = durationNanos > 0 ? durationNanos / 1000 : 0;
+            return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        }
+
+        private static int padded(final int index, final int stripe) {
+            return (index * STRIPES + stripe) * PADDING;
+        }
+
+        private static int stripe() {
+            return (int) Thread.currentThread().getId() & (STRIPES - 1);
+        }
+    }
+}
@@ -14,19 +14,85 @@ import android.content.SharedPreferences;
         public static final String LAST_USED_ACCOUNT = "last_used_account";
     }
 
+    private static final Object LOCK = new Object();
+
+    // null until first read, writes go through the cache and
+    // reach disk later on the auth executor
+    private static volatile String sAccountName;
+    private static boolean sWritePending;
+
     public static void setAccountName(final Context context, final String name) {
-        if (context != null) {
-            final SharedPreferences preferences = context.getSharedPreferences(AUTH, Context.MODE_PRIVATE);
-            preferences.edit().putString(Keys.LAST_USED_ACCOUNT, name).apply();
+        if (context == null) {
+            return;
+        }
+
+        final String value = name != null ? name : "";
+        if (value.equals(getAccountName(context))) {
+            return;
         }
+
+        synchronized (LOCK) {
+            sAccountName = value;
+            if (sWritePending) {
+                return;
+            }
+            sWritePending = true;
+        }
+
+        // the write may run after an activity passed in here is gone
+        final Context applicationContext = getApplicationContext(context);
+
+        AuthExecutor.get().execute(new Runnable() {
+
+            @Override
+            public void run() {
+                writeAccountName(applicationContext);
+            }
+        });
     }
 
     public static String getAccountName(final Context context) {
+        final String cached = sAccountName;
+        if (cached != null) {
+            return cached;
+        }
+
         if (context != null) {
             final SharedPreferences preferences = context.getSharedPreferences(AUTH, Context.MODE_PRIVATE);
-            return preferences.getString(Keys.LAST_USED_ACCOUNT, "");
+            final String name = preferences.getString(Keys.LAST_USED_ACCOUNT, "");
+            final String value = name != null ? name : "";
+            synchronized (LOCK) {
+                if (sAccountName == null) {
+                    sAccountName = value;
+                }
+                return sAccountName;
+            }
         } else {
             return "";
         }
     }
-}
\ No newline at end of file
+
+    /* package */ static void reset() {
+        synchronized (LOCK) {
+            sAccountName = null;
+            sWritePending = false;
+        }
+    }
+
+    private static void writeAccountName(final Context context) {
+        final String name;
+        synchronized (LOCK) {
+            sWritePending = false;
+            name = sAccountName;
+        }
+
+        // apply doesn't hold an auth thread for the disk write, newer values replace queued ones
+        final SharedPreferences preferences = context.getSharedPreferences(AUTH, Context.MODE_PRIVATE);
+        preferences.edit().putString(Keys.LAST_USED_ACCOUNT, name).apply();
+    }
+
+    private static Context getApplicationContext(final Context context) {
+        final Context applicationContext = context.getApplicationContext();
+        return applicationContext != null ? applicationContext : context;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.content.Context;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import javax.net.ssl.HttpsURLConnection;
+
+// Process wide components, each created at most once on first use or
+// supplied up front. Reads are a single volatile load, only the first
+// use of a component takes the lock, and re-checks under it so racing
+// callers never build a second instance.
+/* package */ class AuthRuntime {
+
+    private static final Logger.Tag LOG = Logger.tag(AuthRuntime.class);
+
+    private static final Object LOCK = new Object();
+
+    private static volatile AccountsProxy sAccountsProxy;
+    private static volatile AuthClient sAuthClient;
+    private static volatile RemoteAuthenticator sRemoteAuthenticator;
+    private static RemoteAuthenticator sDefaultRemoteAuthenticator;
+    private static volatile TokenStore sTokenStore;
+    private static volatile AuthMetrics sMetrics;
+    private static volatile Future<Void> sWarmUp;
+
+    public static AccountsProxy getAccountsProxy(final Context context) {
+        final AccountsProxy proxy = sAccountsProxy;
+        return proxy != null ? proxy : createAccountsProxy(context);
+    }
+
+    public static void setAccountsProxy(final AccountsProxy proxy) {
+        sAccountsProxy = proxy;
+    }
+
+    public static AuthClient getAuthClient(final Context context) {
+        final AuthClient client = sAuthClient;
+        return client != null ? client : createAuthClient(context);
+    }
+
+    public static void setAuthClient(final AuthClient client) {
+        sAuthClient = client;
+    }
+
+    public static RemoteAuthenticator getRemoteAuthenticator() {
+        final RemoteAuthenticator authenticator = sRemoteAuthenticator;
+        return authenticator != null ? authenticator : createRemoteAuthenticator();
+    }
+
+    public static void setRemoteAuthenticator(final RemoteAuthenticator authenticator) {
+        sRemoteAuthenticator = authenticator;
+    }
+
+    // drops the authenticator only if it was created here, one that was set is kept
+    public static void resetDefaultRemoteAuthenticator() {
+        synchronized (LOCK) {
+            if (sRemoteAuthenticator == sDefaultRemoteAuthenticator) {
+                sRemoteAuthenticator = null;
+            }
+            sDefaultRemoteAuthenticator = null;
+        }
+    }
+
+    public static TokenStore getTokenStore(final Context context) {
+        final TokenStore store = sTokenStore;
+        return store != null ? store : createTokenStore(context);
+    }
+
+    public static void setTokenStore(final TokenStore store) {
+        sTokenStore = store;
+    }
+
+    public static AuthMetrics getMetrics() {
+        final AuthMetrics metrics = sMetrics;
+        return metrics != null ? metrics : createMetrics();
+    }
+
+    public static void setMetrics(final AuthMetrics metrics) {
+        sMetrics = metrics;
+    }
+
+    // creates everything a token request needs so the first one does not pay for it
+    public static void warmUp(final Context context) {
+        Pivotal.getConfig();
+        getTokenStore(context);
+        getAccountsProxy(context).getAccounts();
+        getAuthClient(context);
+        getRemoteAuthenticator();
+        AuthHttpTransport.get();
+        // loads the trust store and the TLS provider the first https request needs
+        HttpsURLConnection.getDefaultSSLSocketFactory();
+        AuthExecutor.get();
+        TokenResponseParser.warmUp();
+    }
+
+    // runs warmUp once per process in the background, later calls share the
+    // result until it fails, then the next call starts a new one
+    public static Future<Void> prewarm(final Context context) {
+        Future<Void> future = sWarmUp;
+        if (future == null) {
+            synchronized (LOCK) {
+                future = sWarmUp;
+                if (future == null) {
+                    final WarmUpTask task = new WarmUpTask(context);
+                    sWarmUp = task;
+                    AuthExecutor.get().execute(task);
+                    future = task;
+                }
+            }
+        }
+        return future;
+    }
+
+    public static void reset() {
+        synchronized (LOCK) {
+            sWarmUp = null;
+            sAccountsProxy = null;
+            sAuthClient = null;
+            sRemoteAuthenticator = null;
+            sDefaultRemoteAuthenticator = null;
+            sTokenStore = null;
+            sMetrics = null;
+        }
+    }
+
+    private static AccountsProxy createAccountsProxy(final Context context) {
+        synchronized (LOCK) {
+            if (sAccountsProxy == null) {
+                sAccountsProxy = new AccountsProxy.Default(context);
+            }
+            return sAccountsProxy;
+        }
+    }
+
+    private static AuthClient createAuthClient(final Context context) {
+        synchronized (LOCK) {
+            if (sAuthClient == null) {
+                sAuthClient = new AuthClient.Default(context);
+            }
+            return sAuthClient;
+        }
+    }
+
+    private static RemoteAuthenticator createRemoteAuthenticator() {
+        synchronized (LOCK) {
+            if (sRemoteAuthenticator == null) {
+                sDefaultRemoteAuthenticator = new RemoteAuthenticator.Default();
+                sRemoteAuthenticator = sDefaultRemoteAuthenticator;
+            }
+            return sRemoteAuthenticator;
+        }
+    }
+
+    private static TokenStore createTokenStore(final Context context) {
+        synchronized (LOCK) {
+            if (sTokenStore == null) {
+                sTokenStore = new TokenStore.Default(context);
+            }
+            return sTokenStore;
+        }
+    }
+
+    private static AuthMetrics createMetrics() {
+        synchronized (LOCK) {
+            if (sMetrics == null) {
+                sMetrics = new AuthMetrics.Default();
+            }
+            return sMetrics;
+        }
+    }
+
+    private static final class WarmUpTask extends FutureTask<Void> {
+
+        public WarmUpTask(final Context context) {
+            super(new Callable<Void>() {
+
+                @Override
+                public Void call() {
+                    final long start = System.currentTimeMillis();
+                    try {
+                        warmUp(context);
+                    } catch (final RuntimeException e) {
+                        LOG.ex("Warm up failed", e);
+                        throw e;
+                    }
+                    if (Logger.isDebugEnabled()) {
+                        LOG.d("Warm up finished in %s ms", System.currentTimeMillis() - start);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        // dropped before any waiter wakes up, so a prewarm after the failure starts over
+        @Override
+        protected void setException(final Throwable t) {
+            synchronized (LOCK) {
+                if (sWarmUp == this) {
+                    sWarmUp = null;
+                }
+            }
+            super.setException(t);
+        }
+    }
+}
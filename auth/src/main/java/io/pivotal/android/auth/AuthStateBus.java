@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.accounts.Account;
+import android.accounts.OnAccountsUpdateListener;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Registered with the account manager once, the first time Auth is used
+// or anyone subscribes, and stays registered, so the token cache is
+// cleared on account changes even when nobody listens. Account updates
+// tend to arrive in bursts (add, set password, set token), so they are
+// collapsed into one check after a quiet period and subscribers only
+// hear about an actual change between logged in and logged out.
+/* package */ class AuthStateBus implements OnAccountsUpdateListener {
+
+    private static final Logger.Tag LOG = Logger.tag(AuthStateBus.class);
+
+    private static final long DEBOUNCE_DELAY = 250;
+
+    private static final Object LOCK = new Object();
+    private static volatile AuthStateBus sInstance;
+
+    private final Set<LoginListener> mLoginListeners = new CopyOnWriteArraySet<LoginListener>();
+    private final Set<LogoutListener> mLogoutListeners = new CopyOnWriteArraySet<LogoutListener>();
+    private final AtomicBoolean mRegistered = new AtomicBoolean();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Context mContext;
+
+    private final Runnable mUpdate = new Runnable() {
+
+        @Override
+        public void run() {
+            update();
+        }
+    };
+
+    private boolean mIsLoggedIn;
+
+    private AuthStateBus(final Context context) {
+        final Context application = context.getApplicationContext();
+        mContext = application != null ? application : context;
+    }
+
+    public static AuthStateBus getInstance(final Context context) {
+        if (sInstance == null) {
+            synchronized (LOCK) {
+                if (sInstance == null) {
+                    sInstance = new AuthStateBus(context);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /* package */ static void reset() {
+        synchronized (LOCK) {
+            if (sInstance != null) {
+                sInstance.mHandler.removeCallbacks(sInstance.mUpdate);
+                sInstance = null;
+            }
+        }
+    }
+
+    public void addLoginListener(final LoginListener listener) {
+        mLoginListeners.add(listener);
+        register();
+    }
+
+    public void removeLoginListener(final LoginListener listener) {
+        mLoginListeners.remove(listener);
+    }
+
+    public void addLogoutListener(final LogoutListener listener) {
+        mLogoutListeners.add(listener);
+        register();
+    }
+
+    public void removeLogoutListener(final LogoutListener listener) {
+        mLogoutListeners.remove(listener);
+    }
+
+    @Override
+    public void onAccountsUpdated(final Account[] accounts) {
+        mHandler.removeCallbacks(mUpdate);
+        mHandler.postDelayed(mUpdate, DEBOUNCE_DELAY);
+    }
+
+    /* package */ void update() {
+        AuthRuntime.getAccountsProxy(mContext).clearAccessTokenCache();
+
+        final boolean isLoggedIn = isLoggedIn();
+        final boolean wasLoggedIn;
+        synchronized (this) {
+            wasLoggedIn = mIsLoggedIn;
+            mIsLoggedIn = isLoggedIn;
+        }
+
+        if (!wasLoggedIn && isLoggedIn) {
+            LOG.i("Accounts onLogin");
+
+            for (final LoginListener listener : mLoginListeners) {
+                listener.onLogin(mContext);
+            }
+        } else if (wasLoggedIn && !isLoggedIn) {
+            LOG.i("Accounts onLogout");
+
+            for (final LogoutListener listener : mLogoutListeners) {
+                listener.onLogout(mContext);
+            }
+        } else {
+            LOG.v("Accounts no login state change");
+        }
+    }
+
+    /* package */ synchronized void setIsLoggedIn(final boolean loggedIn) {
+        mIsLoggedIn = loggedIn;
+    }
+
+    public void register() {
+        if (mRegistered.compareAndSet(false, true)) {
+            setIsLoggedIn(isLoggedIn());
+            AuthRuntime.getAccountsProxy(mContext).addOnAccountsUpdatedListener(this);
+        }
+    }
+
+    private boolean isLoggedIn() {
+        final Account account = Accounts.getAccount(mContext);
+        return account != null;
+    }
+}
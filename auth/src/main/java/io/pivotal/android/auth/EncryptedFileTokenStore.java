@@ -0,0 +1,506 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.accounts.Account;
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.security.KeyPairGeneratorSpec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.security.auth.x500.X500Principal;
+
+// Keeps tokens in an app-private file instead of the account manager, so
+// reads are served from memory without a binder call. The file is
+// encrypted with AES/CBC and authenticated with an HMAC over the IV and
+// ciphertext, and every write replaces it atomically through a rename.
+//
+// The keys live in a second file. On API 18+ they are wrapped with an RSA
+// key held by the Android Keystore, so a copy of the files is useless off
+// the device. On API 21+ the key file is kept in the no backup directory.
+// Below API 18 the keys are stored as is and only the file permissions
+// protect them, apps that need more must disable backups. None of this
+// protects from code running as the application.
+public class EncryptedFileTokenStore implements TokenStore {
+
+    private static final Logger.Tag LOG = Logger.tag(EncryptedFileTokenStore.class);
+
+    private static final String FILE_NAME = "pivotal-tokens";
+    private static final String KEY_FILE_NAME = "pivotal-tokens.key";
+    private static final String KEY_ALIAS = "io.pivotal.android.auth.tokens";
+
+    private static final int VERSION = 1;
+    private static final int IV_LENGTH = 16;
+    private static final int ENCRYPTION_KEY_LENGTH = 16;
+    private static final int MAC_KEY_LENGTH = 32;
+    private static final int MAC_LENGTH = 32;
+    private static final int KEYS_LENGTH = ENCRYPTION_KEY_LENGTH + MAC_KEY_LENGTH;
+
+    private static final byte KEYS_RAW = 0;
+    private static final byte KEYS_WRAPPED = 1;
+
+    private static final String CIPHER = "AES/CBC/PKCS5Padding";
+    private static final String MAC = "HmacSHA256";
+    private static final String UTF_8 = "UTF-8";
+
+    private final Object mLock = new Object();
+    private final SecureRandom mRandom = new SecureRandom();
+    private final File mFile;
+    private final File mKeyFile;
+    private final File mLegacyKeyFile;
+    private final KeyWrapper mWrapper;
+
+    private volatile Map<Account, Entry> mEntries;
+    private SecretKeySpec mEncryptionKey;
+    private SecretKeySpec mMacKey;
+    private boolean mReadOnly;
+
+    public EncryptedFileTokenStore(final Context context) {
+        this(context.getFilesDir(), getKeyDirectory(context), newKeyWrapper(context));
+    }
+
+    /* package */ EncryptedFileTokenStore(final File directory) {
+        this(directory, directory, null);
+    }
+
+    /* package */ EncryptedFileTokenStore(final File directory, final File keyDirectory, final KeyWrapper wrapper) {
+        mFile = new File(directory, FILE_NAME);
+        mKeyFile = new File(keyDirectory, KEY_FILE_NAME);
+        mLegacyKeyFile = new File(directory, KEY_FILE_NAME);
+        mWrapper = wrapper;
+    }
+
+    @Override
+    public String getRefreshToken(final Account account) {
+        final Entry entry = getEntries().get(account);
+        return entry != null ? entry.mRefreshToken : null;
+    }
+
+    @Override
+    public void setRefreshToken(final Account account, final String refreshToken) {
+        synchronized (mLock) {
+            final Map<Account, Entry> entries = new HashMap<Account, Entry>(getEntries());
+            final Entry entry = entries.get(account);
+            entries.put(account, new Entry(refreshToken, entry != null ? entry.mAccessToken : null));
+            update(entries);
+        }
+    }
+
+    @Override
+    public String getAccessToken(final Account account) {
+        final Entry entry = getEntries().get(account);
+        return entry != null ? entry.mAccessToken : null;
+    }
+
+    @Override
+    public void setAccessToken(final Account account, final String accessToken) {
+        synchronized (mLock) {
+            final Map<Account, Entry> entries = new HashMap<Account, Entry>(getEntries());
+            final Entry entry = entries.get(account);
+            entries.put(account, new Entry(entry != null ? entry.mRefreshToken : null, accessToken));
+            update(entries);
+        }
+    }
+
+    @Override
+    public void invalidateAccessToken(final String accountType, final String accessToken) {
+        if (accessToken == null) {
+            return;
+        }
+        synchronized (mLock) {
+            final Map<Account, Entry> entries = new HashMap<Account, Entry>(getEntries());
+            boolean changed = false;
+            for (final Map.Entry<Account, Entry> item : entries.entrySet()) {
+                final Entry entry = item.getValue();
+                if (item.getKey().type.equals(accountType) && accessToken.equals(entry.mAccessToken)) {
+                    item.setValue(new Entry(entry.mRefreshToken, null));
+                    changed = true;
+                }
+            }
+            if (changed) {
+                update(entries);
+            }
+        }
+    }
+
+    @Override
+    public void remove(final Account account) {
+        synchronized (mLock) {
+            final Map<Account, Entry> entries = new HashMap<Account, Entry>(getEntries());
+            if (entries.remove(account) != null) {
+                update(entries);
+            }
+        }
+    }
+
+    private Map<Account, Entry> getEntries() {
+        Map<Account, Entry> entries = mEntries;
+        if (entries == null) {
+            synchronized (mLock) {
+                entries = mEntries;
+                if (entries == null) {
+                    entries = Collections.unmodifiableMap(load());
+                    mEntries = entries;
+                }
+            }
+        }
+        return entries;
+    }
+
+    // memory is updated even if the write fails so the session keeps working
+    private void update(final Map<Account, Entry> entries) {
+        mEntries = Collections.unmodifiableMap(entries);
+        if (mReadOnly) {
+            LOG.w("Token store keys are unavailable, tokens are kept in memory only");
+            return;
+        }
+        try {
+            writeAtomically(mFile, encrypt(serialize(entries)));
+        } catch (final Exception e) {
+            LOG.ex("Could not write token store", e);
+        }
+    }
+
+    private Map<Account, Entry> load() {
+        if (!mFile.exists()) {
+            return new HashMap<Account, Entry>();
+        }
+        try {
+            loadKeys();
+        } catch (final Exception e) {
+            // the file may be readable once the keys are, so it isn't overwritten
+            LOG.ex("Could not load token store keys", e);
+            mReadOnly = true;
+            return new HashMap<Account, Entry>();
+        }
+        try {
+            return deserialize(decrypt(readFully(mFile)));
+        } catch (final Exception e) {
+            LOG.ex("Could not read token store", e);
+            return new HashMap<Account, Entry>();
+        }
+    }
+
+    private byte[] encrypt(final byte[] plaintext) throws GeneralSecurityException, IOException {
+        loadKeys();
+
+        final byte[] iv = new byte[IV_LENGTH];
+        mRandom.nextBytes(iv);
+
+        final Cipher cipher = Cipher.getInstance(CIPHER);
+        cipher.init(Cipher.ENCRYPT_MODE, mEncryptionKey, new IvParameterSpec(iv));
+        final byte[] ciphertext = cipher.doFinal(plaintext);
+
+        final byte[] output = new byte[1 + IV_LENGTH + ciphertext.length + MAC_LENGTH];
+        output[0] = VERSION;
+        System.arraycopy(iv, 0, output, 1, IV_LENGTH);
+        System.arraycopy(ciphertext, 0, output, 1 + IV_LENGTH, ciphertext.length);
+
+        final byte[] mac = mac(output, output.length - MAC_LENGTH);
+        System.arraycopy(mac, 0, output, output.length - MAC_LENGTH, MAC_LENGTH);
+        return output;
+    }
+
+    private byte[] decrypt(final byte[] input) throws GeneralSecurityException, IOException {
+        if (input.length < 1 + IV_LENGTH + MAC_LENGTH || input[0] != VERSION) {
+            throw new GeneralSecurityException("Unrecognized token store format.");
+        }
+
+        loadKeys();
+
+        final int length = input.length - MAC_LENGTH;
+        final byte[] expected = mac(input, length);
+        final byte[] actual = new byte[MAC_LENGTH];
+        System.arraycopy(input, length, actual, 0, MAC_LENGTH);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            throw new GeneralSecurityException("Token store failed authentication.");
+        }
+
+        final Cipher cipher = Cipher.getInstance(CIPHER);
+        cipher.init(Cipher.DECRYPT_MODE, mEncryptionKey, new IvParameterSpec(input, 1, IV_LENGTH));
+        return cipher.doFinal(input, 1 + IV_LENGTH, length - 1 - IV_LENGTH);
+    }
+
+    private byte[] mac(final byte[] input, final int length) throws GeneralSecurityException {
+        final Mac mac = Mac.getInstance(MAC);
+        mac.init(mMacKey);
+        mac.update(input, 0, length);
+        return mac.doFinal();
+    }
+
+    private void loadKeys() throws GeneralSecurityException, IOException {
+        if (mEncryptionKey != null) {
+            return;
+        }
+
+        byte[] keys = null;
+        final File file = mKeyFile.exists() ? mKeyFile : mLegacyKeyFile;
+        if (file.exists()) {
+            final byte[] bytes = readFully(file);
+            keys = parseKeys(bytes);
+
+            // keys from an older version, or left raw by a failed wrap, are
+            // wrapped and moved on first use, the old file goes only once replaced
+            final boolean wrapped = bytes.length != KEYS_LENGTH && bytes[0] == KEYS_WRAPPED;
+            if (keys != null && (file != mKeyFile || (mWrapper != null && !wrapped))) {
+                writeKeys(keys);
+                if (file != mKeyFile) {
+                    file.delete();
+                }
+            }
+        }
+
+        if (keys == null) {
+            keys = new byte[KEYS_LENGTH];
+            mRandom.nextBytes(keys);
+            writeKeys(keys);
+        }
+
+        mEncryptionKey = new SecretKeySpec(keys, 0, ENCRYPTION_KEY_LENGTH, "AES");
+        mMacKey = new SecretKeySpec(keys, ENCRYPTION_KEY_LENGTH, MAC_KEY_LENGTH, MAC);
+    }
+
+    // a failed unwrap is thrown so the key file is kept for the next attempt,
+    // keys are only replaced when the wrapping key no longer exists
+    private byte[] parseKeys(final byte[] bytes) throws GeneralSecurityException, IOException {
+        // written before the keys had a format byte
+        if (bytes.length == KEYS_LENGTH) {
+            return bytes;
+        }
+        if (bytes.length == 1 + KEYS_LENGTH && bytes[0] == KEYS_RAW) {
+            return Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (bytes.length > 1 && bytes[0] == KEYS_WRAPPED) {
+            if (mWrapper == null) {
+                throw new GeneralSecurityException("Token store keys are wrapped.");
+            }
+            final byte[] keys = mWrapper.unwrap(Arrays.copyOfRange(bytes, 1, bytes.length));
+            if (keys == null) {
+                LOG.w("Token store wrapping key is gone, stored tokens can't be read");
+                return null;
+            }
+            if (keys.length != KEYS_LENGTH) {
+                throw new GeneralSecurityException("Unrecognized token store keys.");
+            }
+            return keys;
+        }
+        return null;
+    }
+
+    private void writeKeys(final byte[] keys) throws IOException {
+        byte[] payload = null;
+        byte format = KEYS_RAW;
+        if (mWrapper != null) {
+            try {
+                payload = mWrapper.wrap(keys);
+                format = KEYS_WRAPPED;
+            } catch (final Exception e) {
+                LOG.ex("Could not wrap token store keys", e);
+            }
+        }
+        if (payload == null) {
+            payload = keys;
+        }
+
+        final byte[] bytes = new byte[1 + payload.length];
+        bytes[0] = format;
+        System.arraycopy(payload, 0, bytes, 1, payload.length);
+        writeAtomically(mKeyFile, bytes);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static File getKeyDirectory(final Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return context.getNoBackupFilesDir();
+        } else {
+            return context.getFilesDir();
+        }
+    }
+
+    private static KeyWrapper newKeyWrapper(final Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            final Context applicationContext = context.getApplicationContext();
+            return new KeyStoreWrapper(applicationContext != null ? applicationContext : context, KEY_ALIAS);
+        } else {
+            return null;
+        }
+    }
+
+    private static byte[] serialize(final Map<Account, Entry> entries) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(entries.size());
+        for (final Map.Entry<Account, Entry> item : entries.entrySet()) {
+            writeString(output, item.getKey().name);
+            writeString(output, item.getKey().type);
+            writeString(output, item.getValue().mRefreshToken);
+            writeString(output, item.getValue().mAccessToken);
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Map<Account, Entry> deserialize(final byte[] bytes) throws IOException {
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+        final int count = input.readInt();
+        final Map<Account, Entry> entries = new HashMap<Account, Entry>();
+        for (int i = 0; i < count; i++) {
+            final Account account = new Account(readString(input), readString(input));
+            entries.put(account, new Entry(readString(input), readString(input)));
+        }
+        return entries;
+    }
+
+    private static void writeString(final DataOutputStream output, final String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+        } else {
+            final byte[] bytes = value.getBytes(UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    private static String readString(final DataInputStream input) throws IOException {
+        final int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static byte[] readFully(final File file) throws IOException {
+        final DataInputStream input = new DataInputStream(new FileInputStream(file));
+        try {
+            final byte[] bytes = new byte[(int) file.length()];
+            input.readFully(bytes);
+            return bytes;
+        } finally {
+            input.close();
+        }
+    }
+
+    private static void writeAtomically(final File file, final byte[] bytes) throws IOException {
+        final File temp = new File(file.getPath() + ".tmp");
+        final FileOutputStream output = new FileOutputStream(temp);
+        try {
+            output.write(bytes);
+            output.getFD().sync();
+        } finally {
+            output.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    // unwrap returns null once the wrapping key is gone for good
+    /* package */ interface KeyWrapper {
+        public byte[] wrap(byte[] keys) throws GeneralSecurityException, IOException;
+        public byte[] unwrap(byte[] wrapped) throws GeneralSecurityException, IOException;
+    }
+
+    // the keystore only holds asymmetric keys before API 23
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    /* package */ static final class KeyStoreWrapper implements KeyWrapper {
+
+        private static final String PROVIDER = "AndroidKeyStore";
+        private static final String TRANSFORMATION = "RSA/ECB/PKCS1Padding";
+        private static final int VALIDITY_YEARS = 30;
+
+        private final Context mContext;
+        private final String mAlias;
+
+        public KeyStoreWrapper(final Context context, final String alias) {
+            mContext = context;
+            mAlias = alias;
+        }
+
+        @Override
+        public byte[] wrap(final byte[] keys) throws GeneralSecurityException, IOException {
+            final Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, getEntry(true).getCertificate().getPublicKey());
+            return cipher.doFinal(keys);
+        }
+
+        @Override
+        public byte[] unwrap(final byte[] wrapped) throws GeneralSecurityException, IOException {
+            final KeyStore.PrivateKeyEntry entry = getEntry(false);
+            if (entry == null) {
+                return null;
+            }
+            final Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, entry.getPrivateKey());
+            return cipher.doFinal(wrapped);
+        }
+
+        private KeyStore.PrivateKeyEntry getEntry(final boolean create) throws GeneralSecurityException, IOException {
+            final KeyStore keyStore = KeyStore.getInstance(PROVIDER);
+            keyStore.load(null);
+            if (!keyStore.containsAlias(mAlias)) {
+                if (!create) {
+                    return null;
+                }
+                generate();
+            }
+            return (KeyStore.PrivateKeyEntry) keyStore.getEntry(mAlias, null);
+        }
+
+        private void generate() throws GeneralSecurityException {
+            final Calendar start = Calendar.getInstance();
+            final Calendar end = Calendar.getInstance();
+            end.add(Calendar.YEAR, VALIDITY_YEARS);
+
+            final KeyPairGeneratorSpec spec = new KeyPairGeneratorSpec.Builder(mContext)
+                .setAlias(mAlias)
+                .setSubject(new X500Principal("CN=" + mAlias))
+                .setSerialNumber(BigInteger.ONE)
+                .setStartDate(start.getTime())
+                .setEndDate(end.getTime())
+                .build();
+
+            final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA", PROVIDER);
+            generator.initialize(spec);
+            generator.generateKeyPair();
+        }
+    }
+
+    private static final class Entry {
+
+        private final String mRefreshToken;
+        private final String mAccessToken;
+
+        public Entry(final String refreshToken, final String accessToken) {
+            mRefreshToken = refreshToken;
+            mAccessToken = accessToken;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+/* package */ class JwtExpirationParser {
+
+    /* package */ static final long MALFORMED = -1;
+
+    private static final String EXP = "exp";
+    private static final int MAX_DIGITS = 18;
+
+    private static final int STATE_STRUCTURE = 0;
+    private static final int STATE_STRING = 1;
+    private static final int STATE_STRING_ESCAPE = 2;
+    private static final int STATE_VALUE = 3;
+    private static final int STATE_NUMBER = 4;
+
+    // Decodes the payload segment of the token one byte at a time and
+    // scans it for a top level "exp" member without allocating. Returns
+    // UNKNOWN_EXPIRATION if the payload has no "exp" or MALFORMED if the
+    // caller should fall back to a full decode.
+    public static long parse(final String token) {
+        final int start = token.indexOf('.') + 1;
+        if (start == 0) {
+            return MALFORMED;
+        }
+
+        int bits = 0;
+        int bitCount = 0;
+
+        int state = STATE_STRUCTURE;
+        int depth = 0;
+        boolean expectKey = false;
+        boolean inKey = false;
+        boolean keyMatched = false;
+        boolean ambiguous = false;
+        int keyIndex = 0;
+
+        boolean quoted = false;
+        int digits = 0;
+        long value = 0;
+
+        final int length = token.length();
+        for (int i = start; i < length; i++) {
+            final char c = token.charAt(i);
+            if (c == '.' || c == '=') {
+                break;
+            }
+
+            final int sextet = decode(c);
+            if (sextet < 0) {
+                if (isWhitespace(c)) {
+                    continue;
+                } else {
+                    return MALFORMED;
+                }
+            }
+
+            bits = (bits << 6) | sextet;
+            bitCount += 6;
+            if (bitCount < 8) {
+                continue;
+            }
+            bitCount -= 8;
+            final int b = (bits >> bitCount) & 0xFF;
+            bits &= (1 << bitCount) - 1;
+
+            switch (state) {
+                case STATE_STRING:
+                    if (b == '\\') {
+                        state = STATE_STRING_ESCAPE;
+                        if (inKey) {
+                            keyIndex = -1;
+                            ambiguous = true;
+                        }
+                    } else if (b == '"') {
+                        state = STATE_STRUCTURE;
+                        if (inKey) {
+                            keyMatched = keyIndex == EXP.length();
+                            inKey = false;
+                        }
+                    } else if (inKey && keyIndex >= 0) {
+                        keyIndex = keyIndex < EXP.length() && b == EXP.charAt(keyIndex) ? keyIndex + 1 : -1;
+                    }
+                    break;
+
+                case STATE_STRING_ESCAPE:
+                    state = STATE_STRING;
+                    break;
+
+                case STATE_VALUE:
+                    if (b == '"' && !quoted) {
+                        quoted = true;
+                    } else if (isDigit(b)) {
+                        value = b - '0';
+                        digits = 1;
+                        state = STATE_NUMBER;
+                    } else if (!isWhitespace(b) || quoted) {
+                        return MALFORMED;
+                    }
+                    break;
+
+                case STATE_NUMBER:
+                    if (isDigit(b)) {
+                        if (++digits > MAX_DIGITS) {
+                            return MALFORMED;
+                        }
+                        value = value * 10 + (b - '0');
+                    } else if (quoted) {
+                        return b == '"' ? value : MALFORMED;
+                    } else {
+                        return b == ',' || b == '}' || isWhitespace(b) ? value : MALFORMED;
+                    }
+                    break;
+
+                default:
+                    if (b == '"') {
+                        if (depth == 0) {
+                            return MALFORMED;
+                        }
+                        state = STATE_STRING;
+                        inKey = depth == 1 && expectKey;
+                        keyIndex = 0;
+                    } else if (b == '{' || b == '[') {
+                        if (depth == 0 && b != '{') {
+                            return MALFORMED;
+                        }
+                        depth++;
+                        expectKey = depth == 1;
+                    } else if (b == '}' || b == ']') {
+                        if (--depth == 0) {
+                            return ambiguous ? MALFORMED : TokenUtil.UNKNOWN_EXPIRATION;
+                        } else if (depth < 0) {
+                            return MALFORMED;
+                        }
+                    } else if (b == ',') {
+                        expectKey = depth == 1;
+                    } else if (b == ':') {
+                        if (depth == 1) {
+                            expectKey = false;
+                            if (keyMatched) {
+                                keyMatched = false;
+                                state = STATE_VALUE;
+                            }
+                        }
+                    } else if (depth == 0 && !isWhitespace(b)) {
+                        return MALFORMED;
+                    }
+                    break;
+            }
+        }
+
+        return MALFORMED;
+    }
+
+    private static int decode(final char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        } else if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 26;
+        } else if (c >= '0' && c <= '9') {
+            return c - '0' + 52;
+        } else if (c == '+' || c == '-') {
+            return 62;
+        } else if (c == '/' || c == '_') {
+            return 63;
+        } else {
+            return -1;
+        }
+    }
+
+    private static boolean isDigit(final int b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isWhitespace(final int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Bounded ring buffer for any number of producers and a single consumer.
+// Each slot carries a sequence number telling producers and the consumer
+// whose turn it is, so neither side ever takes a lock or waits. A full
+// buffer drops the message and counts it instead of blocking the caller.
+/* package */ class LogBuffer {
+
+    private final int mMask;
+    private final AtomicReferenceArray<String> mSlots;
+    private final AtomicLongArray mSequences;
+    private final AtomicLong mTail = new AtomicLong();
+    private final AtomicLong mDropped = new AtomicLong();
+
+    // only touched by the consumer
+    private long mHead;
+
+    public LogBuffer(final int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two.");
+        }
+        mMask = capacity - 1;
+        mSlots = new AtomicReferenceArray<String>(capacity);
+        mSequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            mSequences.set(i, i);
+        }
+    }
+
+    public boolean offer(final String message) {
+        long position = mTail.get();
+        while (true) {
+            final int index = (int) (position & mMask);
+            final long difference = mSequences.get(index) - position;
+
+            if (difference == 0) {
+                if (mTail.compareAndSet(position, position + 1)) {
+                    mSlots.set(index, message);
+                    mSequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                mDropped.incrementAndGet();
+                return false;
+            }
+            position = mTail.get();
+        }
+    }
+
+    public String poll() {
+        final long position = mHead;
+        final int index = (int) (position & mMask);
+
+        if (mSequences.get(index) != position + 1) {
+            return null;
+        }
+
+        final String message = mSlots.get(index);
+        mSlots.set(index, null);
+        mSequences.lazySet(index, position + mMask + 1);
+        mHead = position + 1;
+        return message;
+    }
+
+    public boolean isEmpty() {
+        return mSequences.get((int) (mHead & mMask)) != mHead + 1;
+    }
+
+    public long getDroppedCount() {
+        return mDropped.get();
+    }
+}
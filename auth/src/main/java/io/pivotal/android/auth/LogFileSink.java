@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Appends log lines to fixed size segment files mapped into memory. A
+// write is a copy into the page cache, so records survive a crash of
+// the process without a write call per message. Segments are zero
+// filled, a line never contains a zero byte, so the first zero marks
+// the end of a segment's records.
+//
+// The next segment is created and mapped on a background thread while
+// the current one fills, so a roll over only renames it into place. The
+// same thread flushes full segments and deletes old ones, a segment is
+// unmapped once its buffer is collected.
+public class LogFileSink {
+
+    private static final String TAG_NAME = "Pivotal";
+    private static final String DIRECTORY = "pivotal-logs";
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+    private static final String NEXT_SUFFIX = ".next";
+
+    private static final int DEFAULT_SEGMENT_SIZE = 256 * 1024;
+    private static final int DEFAULT_MAX_SEGMENTS = 4;
+    private static final long DEFAULT_RETRY_DELAY = 30 * 1000; // milliseconds
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String PRIORITIES = "??VDIWEA";
+
+    private static final ExecutorService IO = newExecutor();
+
+    private final File mDirectory;
+    private final int mSegmentSize;
+    private final int mMaxSegments;
+    private final long mRetryDelay;
+
+    private MappedByteBuffer mBuffer;
+    private int mIndex;
+    private Future<MappedByteBuffer> mNext;
+    private long mRetryAt;
+
+    public static LogFileSink create(final Context context) {
+        return new LogFileSink(new File(context.getFilesDir(), DIRECTORY), DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+    }
+
+    public LogFileSink(final File directory, final int segmentSize, final int maxSegments) {
+        this(directory, segmentSize, maxSegments, DEFAULT_RETRY_DELAY);
+    }
+
+    /* package */ LogFileSink(final File directory, final int segmentSize, final int maxSegments, final long retryDelay) {
+        if (segmentSize <= 0 || maxSegments <= 0) {
+            throw new IllegalArgumentException("Segment size and count must be positive.");
+        }
+        mDirectory = directory;
+        mSegmentSize = segmentSize;
+        mMaxSegments = maxSegments;
+        mRetryDelay = retryDelay;
+
+        // a new process always starts a new segment
+        final List<File> segments = listSegments(directory);
+        mIndex = segments.isEmpty() ? 0 : getIndex(segments.get(segments.size() - 1));
+        mNext = IO.submit(new PrepareTask(mIndex + 1));
+    }
+
+    public synchronized void write(final int priority, final String message) {
+        final byte[] bytes = format(priority, message);
+        if (mBuffer == null || mBuffer.remaining() < bytes.length) {
+            // after a failure lines are dropped for a while instead of retrying the i/o for each one
+            if (System.currentTimeMillis() < mRetryAt) {
+                return;
+            }
+            try {
+                roll();
+            } catch (final IOException e) {
+                Log.w(TAG_NAME, "Could not write log segment: " + e.getLocalizedMessage());
+                mRetryAt = System.currentTimeMillis() + mRetryDelay;
+                return;
+            }
+        }
+
+        if (bytes.length <= mBuffer.remaining()) {
+            mBuffer.put(bytes);
+        } else {
+            // longer than a whole segment, keep the start of the line
+            mBuffer.put(bytes, 0, getTruncatedLength(bytes, mBuffer.remaining() - 1));
+            mBuffer.put((byte) '\n');
+        }
+    }
+
+    public synchronized void flush() {
+        if (mBuffer != null) {
+            mBuffer.force();
+        }
+    }
+
+    // old segments are deleted in the background, the newest ones are the log
+    public synchronized List<File> getSegments() {
+        final List<File> segments = listSegments(mDirectory);
+        return segments.subList(Math.max(0, segments.size() - mMaxSegments), segments.size());
+    }
+
+    public synchronized void export(final OutputStream output) throws IOException {
+        final byte[] buffer = new byte[8192];
+        for (final File segment : getSegments()) {
+            final InputStream input;
+            try {
+                input = new FileInputStream(segment);
+            } catch (final FileNotFoundException e) {
+                continue;
+            }
+            try {
+                int count;
+                while ((count = input.read(buffer)) != -1) {
+                    final int end = indexOfZero(buffer, count);
+                    output.write(buffer, 0, end);
+                    if (end < count) {
+                        break;
+                    }
+                }
+            } finally {
+                input.close();
+            }
+        }
+        output.flush();
+    }
+
+    private void roll() throws IOException {
+        if (mBuffer != null) {
+            IO.execute(new FlushTask(mBuffer));
+            mBuffer = null;
+        }
+
+        final int index = mIndex + 1;
+        if (mNext == null) {
+            mNext = IO.submit(new PrepareTask(index));
+        }
+
+        // normally the next segment was ready long before this one filled up
+        final MappedByteBuffer next;
+        try {
+            next = mNext.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while preparing " + getNextFile(index));
+        } catch (final ExecutionException e) {
+            mNext = null;
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause().toString());
+        }
+        mNext = null;
+
+        if (!getNextFile(index).renameTo(getSegmentFile(index))) {
+            throw new IOException("Could not rename " + getNextFile(index));
+        }
+
+        mIndex = index;
+        mBuffer = next;
+        mNext = IO.submit(new PrepareTask(index + 1));
+    }
+
+    private File getSegmentFile(final int index) {
+        return new File(mDirectory, PREFIX + index + SUFFIX);
+    }
+
+    private File getNextFile(final int index) {
+        return new File(mDirectory, PREFIX + index + SUFFIX + NEXT_SUFFIX);
+    }
+
+    private static byte[] format(final int priority, final String message) {
+        final char level = priority >= 0 && priority < PRIORITIES.length() ? PRIORITIES.charAt(priority) : '?';
+        final String line = System.currentTimeMillis() + " " + level + " " + message.replace('\0', ' ') + "\n";
+        return line.getBytes(UTF_8);
+    }
+
+    // backs off to the start of a character, a cut in the middle of one is not valid utf-8
+    private static int getTruncatedLength(final byte[] bytes, final int length) {
+        int end = length;
+        while (end > 0 && (bytes[end] & 0xC0) == 0x80) {
+            end--;
+        }
+        return end;
+    }
+
+    private static int getIndex(final File file) {
+        final String name = file.getName();
+        if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+            try {
+                return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+            } catch (final NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    private static List<File> listSegments(final File directory) {
+        final List<File> segments = new ArrayList<File>();
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                if (getIndex(file) > 0) {
+                    segments.add(file);
+                }
+            }
+        }
+        Collections.sort(segments, new Comparator<File>() {
+
+            @Override
+            public int compare(final File lhs, final File rhs) {
+                final int left = getIndex(lhs);
+                final int right = getIndex(rhs);
+                return left < right ? -1 : (left == right ? 0 : 1);
+            }
+        });
+        return segments;
+    }
+
+    private static int indexOfZero(final byte[] buffer, final int count) {
+        for (int i = 0; i < count; i++) {
+            if (buffer[i] == 0) {
+                return i;
+            }
+        }
+        return count;
+    }
+
+    private static ExecutorService newExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "LogFileSink");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private final class PrepareTask implements Callable<MappedByteBuffer> {
+
+        private final int mNextIndex;
+
+        public PrepareTask(final int index) {
+            mNextIndex = index;
+        }
+
+        @Override
+        public MappedByteBuffer call() throws IOException {
+            if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+                throw new IOException("Could not create " + mDirectory);
+            }
+
+            // a crashed process may have left this file behind with records in it
+            final File next = getNextFile(mNextIndex);
+            if (next.exists() && !next.delete()) {
+                throw new IOException("Could not delete " + next);
+            }
+
+            final MappedByteBuffer buffer;
+            final RandomAccessFile file = new RandomAccessFile(next, "rw");
+            try {
+                file.setLength(mSegmentSize);
+                buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, mSegmentSize);
+            } finally {
+                file.close();
+            }
+
+            final List<File> segments = listSegments(mDirectory);
+            for (int i = 0; i < segments.size() - mMaxSegments; i++) {
+                if (!segments.get(i).delete()) {
+                    Log.w(TAG_NAME, "Could not delete log segment: " + segments.get(i));
+                }
+            }
+            return buffer;
+        }
+    }
+
+    private static final class FlushTask implements Runnable {
+
+        private final MappedByteBuffer mBuffer;
+
+        public FlushTask(final MappedByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public void run() {
+            mBuffer.force();
+        }
+    }
+}
@@ -11,20 +11,22 @@ import android.os.Looper;
 import android.util.Log;
 
 import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Logger {
 
-    private static final Object LOCK = new Object();
-
     private static final String TAG_NAME = "Pivotal";
     private static final String UI_THREAD = "UI";
     private static final String BG_THREAD = "BG";
 
     private static boolean sIsDebugEnabled = false;
     private static boolean sIsSetup = false;
+    private static volatile boolean sIsStackCaptureEnabled = false;
+
+    private static volatile Dispatcher sDispatcher;
+    private static volatile LogFileSink sFileSink;
 
-    private static Listener sListener;
-    private static Handler sMainHandler;
+    private static final Tag DEFAULT = new Tag(null);
 
     private static class Holder {
         public static final Logger INSTANCE = new Logger();
@@ -59,114 +61,135 @@ public class Logger {
         return Logger.sIsSetup;
     }
 
+    public static boolean isStackCaptureEnabled() {
+        return Logger.sIsStackCaptureEnabled;
+    }
+
+    // walks the stack on every message to find the calling method and
+    // line, only worth the cost while diagnosing a problem
+    public static void setStackCaptureEnabled(final boolean enabled) {
+        Logger.sIsStackCaptureEnabled = enabled;
+    }
+
+    public static Tag tag(final Class<?> klass) {
+        return new Tag(klass.getSimpleName());
+    }
+
     public static void i(final String message) {
-        if (sIsDebugEnabled) {
-            final String formattedString = format(message);
-            Log.i(TAG_NAME, formattedString);
-            sendMessageToListener(formattedString);
-        }
+        DEFAULT.i(message);
+    }
+
+    public static void i(final String format, final Object arg) {
+        DEFAULT.i(format, arg);
+    }
+
+    public static void i(final String format, final Object arg1, final Object arg2) {
+        DEFAULT.i(format, arg1, arg2);
     }
 
     public static void w(final String message, final Throwable tr) {
-        if (sIsDebugEnabled) {
-            final String formattedString = format(message) + ": " + Log.getStackTraceString(tr);
-            Log.w(TAG_NAME, formattedString);
-            sendMessageToListener(formattedString);
-        }
+        DEFAULT.w(message, tr);
     }
 
     public static void w(final Throwable tr) {
-        if (sIsDebugEnabled) {
-            final String formattedString = format("") + Log.getStackTraceString(tr);
-            Log.w(TAG_NAME, formattedString);
-            sendMessageToListener(formattedString);
-        }
+        DEFAULT.w(tr);
     }
 
     public static void w(final String message) {
-        if (sIsDebugEnabled) {
-            final String formattedString = format(message);
-            Log.w(TAG_NAME, formattedString);
-            sendMessageToListener(formattedString);
-        }
+        DEFAULT.w(message);
+    }
+
+    public static void w(final String format, final Object arg) {
+        DEFAULT.w(format, arg);
+    }
+
+    public static void w(final String format, final Object arg1, final Object arg2) {
+        DEFAULT.w(format, arg1, arg2);
     }
 
     public static void v(final String message) {
-        if (sIsDebugEnabled) {
-            final String formattedString = format(message);
-            Log.v(TAG_NAME, formattedString);
-            sendMessageToListener(formattedString);
-        }
+        DEFAULT.v(message);
+    }
+
+    public static void v(final String format, final Object arg) {
+        DEFAULT.v(format, arg);
+    }
+
+    public static void v(final String format, final Object arg1, final Object arg2) {
+        DEFAULT.v(format, arg1, arg2);
     }
 
     public static void d(final String message) {
-        if (sIsDebugEnabled) {
-            final String formattedString = format(message);
-            Log.d(TAG_NAME, formattedString);
-            sendMessageToListener(formattedString);
-        }
+        DEFAULT.d(message);
     }
 
     public static void d(final String message, final Throwable tr) {
-        if (sIsDebugEnabled) {
-            final String formattedString = format(message) + ": " + Log.getStackTraceString(tr);
-            Log.d(TAG_NAME, formattedString);
-            sendMessageToListener(formattedString);
-        }
+        DEFAULT.d(message, tr);
     }
 
     public static void d(final Throwable tr) {
-        if (sIsDebugEnabled) {
-            final String formattedString = format("") + Log.getStackTraceString(tr);
-            Log.d(TAG_NAME, formattedString);
-            sendMessageToListener(formattedString);
-        }
+        DEFAULT.d(tr);
+    }
+
+    public static void d(final String format, final Object arg) {
+        DEFAULT.d(format, arg);
+    }
+
+    public static void d(final String format, final Object arg1, final Object arg2) {
+        DEFAULT.d(format, arg1, arg2);
     }
 
     public static void fd(final String message, final Object... objects) {
         if (sIsDebugEnabled) {
-            final String fullString = String.format(message, objects);
-            final String formattedString = format(fullString);
-            Log.d(TAG_NAME, formattedString);
-            sendMessageToListener(formattedString);
+            DEFAULT.println(Log.DEBUG, String.format(message, objects));
         }
     }
 
     public static void e(final String message) {
-        final String formattedString = format(message);
-        sendMessageToListener(formattedString);
-        Log.e(TAG_NAME, formattedString);
+        DEFAULT.e(message);
+    }
+
+    public static void e(final String format, final Object arg) {
+        DEFAULT.e(format, arg);
     }
 
     public static void ex(final String message, final Throwable tr) {
-        final String stackTraceString;
-        if (tr instanceof UnknownHostException) {
-            stackTraceString = tr.getLocalizedMessage();
-        } else {
-            stackTraceString = Log.getStackTraceString(tr);
-        }
-        final String formattedString = format(message) + ": " + stackTraceString;
-        sendMessageToListener(formattedString);
-        Log.e(TAG_NAME, formattedString);
+        DEFAULT.ex(message, tr);
     }
 
     public static void ex(final Throwable tr) {
-        final String formattedString = format("") + Log.getStackTraceString(tr);
-        sendMessageToListener(formattedString);
-        Log.e(TAG_NAME, formattedString);
+        DEFAULT.ex(tr);
     }
 
-    private static String format(final String message) {
-        final StackTraceElement s = StackUtils.getCallingStackTraceElement();
+    private static String format(final String name, final String message) {
+        // errors are still logged in release builds, but without
+        // any caller context
+        if (!sIsDebugEnabled) {
+            return message;
+        }
 
         final String thread = isUiThread() ? UI_THREAD : BG_THREAD;
         final long threadId = Thread.currentThread().getId();
 
-        final String klass = s.getClassName();
-        final String method = s.getMethodName();
-        final int line = s.getLineNumber();
+        if (sIsStackCaptureEnabled) {
+            final StackTraceElement s = StackUtils.getCallingStackTraceElement();
 
-        return String.format("*%s* (%d) [%s:%s:%d] %s", thread, threadId, klass, method, line, message);
+            final String klass = s.getClassName();
+            final String method = s.getMethodName();
+            final int line = s.getLineNumber();
+
+            return String.format("*%s* (%d) [%s:%s:%d] %s", thread, threadId, klass, method, line, message);
+        } else {
+            return String.format("*%s* (%d) [%s] %s", thread, threadId, name != null ? name : TAG_NAME, message);
+        }
+    }
+
+    private static String getStackTraceString(final Throwable tr) {
+        if (tr instanceof UnknownHostException) {
+            return tr.getLocalizedMessage();
+        } else {
+            return Log.getStackTraceString(tr);
+        }
     }
 
     private static boolean isUiThread() {
@@ -174,30 +197,222 @@ public class Logger {
     }
 
     public static void setListener(final Listener listener) {
-        synchronized (LOCK) {
-            Logger.sListener = listener;
-            if (Logger.sListener != null && Logger.sMainHandler == null) {
-                Logger.sMainHandler = new Handler(Looper.getMainLooper());
+        setListener(listener, Looper.getMainLooper());
+    }
+
+    // messages are batched and handed to the listener on the given
+    // looper, at most one batch every DELIVERY_INTERVAL milliseconds
+    public static void setListener(final Listener listener, final Looper looper) {
+        Logger.sDispatcher = listener != null ? new Dispatcher(listener, looper) : null;
+    }
+
+    public static void setFileSink(final LogFileSink sink) {
+        Logger.sFileSink = sink;
+    }
+
+    public static LogFileSink getFileSink() {
+        return Logger.sFileSink;
+    }
+
+    public static long getDroppedMessageCount() {
+        final Dispatcher dispatcher = sDispatcher;
+        return dispatcher != null ? dispatcher.mBuffer.getDroppedCount() : 0;
+    }
+
+    public static void sendMessageToListener(final String message) {
+        final int indexBracket = message.indexOf("] ");
+        if (indexBracket == -1) {
+            enqueue(message);
+        } else {
+            enqueue(message.substring(indexBracket + 2));
+        }
+    }
+
+    private static void enqueue(final String message) {
+        final Dispatcher dispatcher = sDispatcher;
+        if (dispatcher != null) {
+            dispatcher.enqueue(message);
+        }
+    }
+
+    public static final class Tag {
+
+        private final String mName;
+
+        private Tag(final String name) {
+            mName = name;
+        }
+
+        public void v(final String message) {
+            if (sIsDebugEnabled) {
+                println(Log.VERBOSE, message);
+            }
+        }
+
+        public void v(final String format, final Object arg) {
+            if (sIsDebugEnabled) {
+                println(Log.VERBOSE, String.format(format, arg));
+            }
+        }
+
+        public void v(final String format, final Object arg1, final Object arg2) {
+            if (sIsDebugEnabled) {
+                println(Log.VERBOSE, String.format(format, arg1, arg2));
+            }
+        }
+
+        public void d(final String message) {
+            if (sIsDebugEnabled) {
+                println(Log.DEBUG, message);
+            }
+        }
+
+        public void d(final String format, final Object arg) {
+            if (sIsDebugEnabled) {
+                println(Log.DEBUG, String.format(format, arg));
+            }
+        }
+
+        public void d(final String format, final Object arg1, final Object arg2) {
+            if (sIsDebugEnabled) {
+                println(Log.DEBUG, String.format(format, arg1, arg2));
+            }
+        }
+
+        public void d(final String message, final Throwable tr) {
+            if (sIsDebugEnabled) {
+                println(Log.DEBUG, message + ": " + Log.getStackTraceString(tr));
+            }
+        }
+
+        public void d(final Throwable tr) {
+            if (sIsDebugEnabled) {
+                println(Log.DEBUG, Log.getStackTraceString(tr));
+            }
+        }
+
+        public void i(final String message) {
+            if (sIsDebugEnabled) {
+                println(Log.INFO, message);
+            }
+        }
+
+        public void i(final String format, final Object arg) {
+            if (sIsDebugEnabled) {
+                println(Log.INFO, String.format(format, arg));
+            }
+        }
+
+        public void i(final String format, final Object arg1, final Object arg2) {
+            if (sIsDebugEnabled) {
+                println(Log.INFO, String.format(format, arg1, arg2));
+            }
+        }
+
+        public void w(final String message) {
+            if (sIsDebugEnabled) {
+                println(Log.WARN, message);
+            }
+        }
+
+        public void w(final String format, final Object arg) {
+            if (sIsDebugEnabled) {
+                println(Log.WARN, String.format(format, arg));
+            }
+        }
+
+        public void w(final String format, final Object arg1, final Object arg2) {
+            if (sIsDebugEnabled) {
+                println(Log.WARN, String.format(format, arg1, arg2));
+            }
+        }
+
+        public void w(final String message, final Throwable tr) {
+            if (sIsDebugEnabled) {
+                println(Log.WARN, message + ": " + Log.getStackTraceString(tr));
+            }
+        }
+
+        public void w(final Throwable tr) {
+            if (sIsDebugEnabled) {
+                println(Log.WARN, Log.getStackTraceString(tr));
+            }
+        }
+
+        public void e(final String message) {
+            println(Log.ERROR, message);
+        }
+
+        public void e(final String format, final Object arg) {
+            println(Log.ERROR, String.format(format, arg));
+        }
+
+        public void ex(final String message, final Throwable tr) {
+            println(Log.ERROR, message + ": " + getStackTraceString(tr));
+        }
+
+        public void ex(final Throwable tr) {
+            println(Log.ERROR, Log.getStackTraceString(tr));
+        }
+
+        private void println(final int priority, final String message) {
+            final String formattedString = format(mName, message);
+            Log.println(priority, TAG_NAME, formattedString);
+            enqueue(message);
+
+            final LogFileSink sink = sFileSink;
+            if (sink != null) {
+                sink.write(priority, formattedString);
             }
         }
     }
 
-    public static void sendMessageToListener(final String message) {
-        synchronized (LOCK) {
-            if (sListener != null && sMainHandler != null) {
-                final Listener localListener = sListener;
-                sMainHandler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        int indexBracket = message.indexOf("] ");
-                        if (indexBracket == -1) {
-                            localListener.onLogMessage(message);
-                        } else {
-                            final String messageWithoutLeader = message.substring(indexBracket + 2);
-                            localListener.onLogMessage(messageWithoutLeader);
-                        }
-                    }
-                });
+    private static final class Dispatcher implements Runnable {
+
+        private static final int CAPACITY = 1024;
+        private static final int MAX_BATCH = 128;
+        private static final long DELIVERY_INTERVAL = 100; // milliseconds
+
+        private final LogBuffer mBuffer = new LogBuffer(CAPACITY);
+        private final AtomicBoolean mScheduled = new AtomicBoolean();
+        private final Listener mListener;
+        private final Handler mHandler;
+
+        public Dispatcher(final Listener listener, final Looper looper) {
+            mListener = listener;
+            mHandler = new Handler(looper);
+        }
+
+        public void enqueue(final String message) {
+            if (mBuffer.offer(message)) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (mScheduled.compareAndSet(false, true)) {
+                mHandler.postDelayed(this, DELIVERY_INTERVAL);
+            }
+        }
+
+        @Override
+        public void run() {
+            mScheduled.set(false);
+
+            if (sDispatcher != this) {
+                return;
+            }
+
+            for (int i = 0; i < MAX_BATCH; i++) {
+                final String message = mBuffer.poll();
+                if (message == null) {
+                    break;
+                }
+                mListener.onLogMessage(message);
+            }
+
+            if (!mBuffer.isEmpty()) {
+                schedule();
             }
         }
     }
@@ -232,7 +447,7 @@ public class Logger {
 
         private static boolean stackTraceElementIsForLoggerClass(final StackTraceElement s) {
             final String className = Logger.class.getName();
-            return s.getClassName().equals(className);
+            return s.getClassName().equals(className) || s.getClassName().startsWith(className + "$");
         }
     }
 }
@@ -17,16 +17,20 @@ import android.widget.Toast;
 @TargetApi(Build.VERSION_CODES.HONEYCOMB)
 public abstract class LoginActivity extends AccountAuthenticatorActivity implements TokenLoader.Listener {
 
+    private static final Logger.Tag LOG = Logger.tag(LoginActivity.class);
+
+    private AuthConfig mConfig;
+
     protected abstract String getUserName();
 
 
     protected String getAuthorizationUrl() {
-        final RemoteAuthenticator authenticator = RemoteAuthenticatorHolder.get();
+        final RemoteAuthenticator authenticator = AuthRuntime.getRemoteAuthenticator();
         return authenticator.newAuthorizationCodeUrl().build();
     }
 
     protected boolean handleRedirectUrl(final WebView webView, final String url) {
-        if (url.startsWith(Pivotal.getRedirectUrl().toLowerCase())) {
+        if (url.startsWith(getConfig().getRedirectUrl().toLowerCase())) {
 
             final Uri uri = Uri.parse(url);
             final String authCode = uri.getQueryParameter("code");
@@ -40,7 +44,7 @@ public abstract class LoginActivity extends AccountAuthenticatorActivity impleme
     }
 
     public void fetchTokenWithAuthCodeGrantType(final WebView webView) {
-        Logger.v("fetchTokenWithAuthCodeGrantType");
+        LOG.v("fetchTokenWithAuthCodeGrantType");
 
         webView.setWebViewClient(new WebViewClient() {
             @Override
@@ -53,7 +57,7 @@ public abstract class LoginActivity extends AccountAuthenticatorActivity impleme
     }
 
     public void fetchTokenWithAuthCodeGrantType(final String authCode) {
-        Logger.v("fetchTokenWithAuthCodeGrantType");
+        LOG.v("fetchTokenWithAuthCodeGrantType");
 
         final Bundle bundle = AuthCodeTokenLoaderCallbacks.createBundle(authCode);
         final AuthCodeTokenLoaderCallbacks callback = new AuthCodeTokenLoaderCallbacks(this, this);
@@ -62,7 +66,7 @@ public abstract class LoginActivity extends AccountAuthenticatorActivity impleme
     }
 
     public void fetchTokenWithPasswordGrantType(final String userName, final String password) {
-        Logger.v("fetchTokenWithPasswordGrantType");
+        LOG.v("fetchTokenWithPasswordGrantType");
 
         final Bundle bundle = PasswordTokenLoaderCallbacks.createBundle(userName, password);
         final PasswordTokenLoaderCallbacks callback = new PasswordTokenLoaderCallbacks(this, this);
@@ -96,9 +100,16 @@ public abstract class LoginActivity extends AccountAuthenticatorActivity impleme
 
     protected Intent getResultIntent(final Token token, final String username) {
         final Intent intent = new Intent();
-        intent.putExtra(AccountManager.KEY_ACCOUNT_TYPE, Pivotal.getAccountType());
+        intent.putExtra(AccountManager.KEY_ACCOUNT_TYPE, getConfig().getAccountType());
         intent.putExtra(AccountManager.KEY_AUTHTOKEN, token.getAccessToken());
         intent.putExtra(AccountManager.KEY_ACCOUNT_NAME, username);
         return intent;
     }
+
+    private AuthConfig getConfig() {
+        if (mConfig == null) {
+            mConfig = Pivotal.getConfig();
+        }
+        return mConfig;
+    }
 }
@@ -11,6 +11,8 @@ import android.widget.Toast;
 
 public class LoginPasswordActivity extends LoginActivity {
 
+    private static final Logger.Tag LOG = Logger.tag(LoginPasswordActivity.class);
+
     @Override
     protected void onCreate(final Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -39,7 +41,7 @@ public class LoginPasswordActivity extends LoginActivity {
     }
 
     protected boolean onValidateCredentials(final String userName, final String password) {
-        Logger.v("onValidateCredentials");
+        LOG.v("onValidateCredentials");
         final boolean userNameValid = userName != null && userName.length() > 0;
         final boolean passwordValid = password != null && password.length() > 0;
 
@@ -51,7 +53,7 @@ public class LoginPasswordActivity extends LoginActivity {
     }
 
     protected void onStartLoading() {
-        Logger.v("onStartLoading");
+        LOG.v("onStartLoading");
         final Button button = (Button) findViewById(R.id.login_submit);
         if (button != null) {
             button.setText("Loading...");
@@ -6,6 +6,7 @@ package io.pivotal.android.auth;
 import android.accounts.AccountAuthenticatorActivity;
 import android.content.Context;
 import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 
@@ -14,12 +15,36 @@ import java.util.List;
 
 /* package */ class PackageUtils {
 
+    private static final Logger.Tag LOG = Logger.tag(PackageUtils.class);
+
+    // <meta-data android:name="io.pivotal.android.auth.LOGIN_ACTIVITY" android:value="..." />
+    // on the application names the login activity so the manifest is not scanned
+    /* package */ static final String LOGIN_ACTIVITY = "io.pivotal.android.auth.LOGIN_ACTIVITY";
+
+    private static final Object LOCK = new Object();
+    private static volatile Class<?> sLoginActivityClass;
+
     public static Class<?> getLoginActivityClass(final Context context) {
+        if (sLoginActivityClass == null) {
+            synchronized (LOCK) {
+                if (sLoginActivityClass == null) {
+                    sLoginActivityClass = resolveLoginActivityClass(context);
+                }
+            }
+        }
+        return sLoginActivityClass;
+    }
+
+    /* package */ static void reset() {
+        sLoginActivityClass = null;
+    }
+
+    private static Class<?> resolveLoginActivityClass(final Context context) {
         try {
             final Class<?> klass = findLoginActivityClass(context);
             if (klass != null) return klass;
         } catch (final Exception e) {
-            Logger.ex(e);
+            LOG.ex(e);
         }
 
         throw new IllegalStateException("No subclass of AccountAuthenticatorActivity found in your AndroidManifest.xml");
@@ -27,9 +52,29 @@ import java.util.List;
 
     private static Class<?> findLoginActivityClass(final Context context) throws Exception {
         final PackageManager manager = context.getPackageManager();
-        final PackageInfo info = manager.getPackageInfo(context.getPackageName(), PackageManager.GET_ACTIVITIES);
-        final ActivityInfo[] activities = info.activities;
-        return findLoginActivityClass(activities);
+        final String packageName = context.getPackageName();
+
+        // only the application's meta-data is parsed, activities are read if it has none
+        final ApplicationInfo application = manager.getApplicationInfo(packageName, PackageManager.GET_META_DATA);
+        final String name = getDeclaredLoginActivity(application);
+        if (name != null) {
+            final Class<?> klass = Class.forName(name);
+            if (!AccountAuthenticatorActivity.class.isAssignableFrom(klass)) {
+                throw new IllegalStateException(name + " is not a subclass of AccountAuthenticatorActivity");
+            }
+            return klass;
+        }
+
+        LOG.w("No %s meta-data, scanning activities in AndroidManifest.xml", LOGIN_ACTIVITY);
+        final PackageInfo info = manager.getPackageInfo(packageName, PackageManager.GET_ACTIVITIES);
+        return findLoginActivityClass(info.activities);
+    }
+
+    private static String getDeclaredLoginActivity(final ApplicationInfo application) {
+        if (application != null && application.metaData != null) {
+            return application.metaData.getString(LOGIN_ACTIVITY);
+        }
+        return null;
     }
 
     private static Class<?> findLoginActivityClass(final ActivityInfo[] activities) throws Exception {
@@ -7,11 +7,11 @@ import android.annotation.TargetApi;
 import android.content.Context;
 import android.os.Build;
 
-import com.google.api.client.auth.oauth2.TokenResponse;
-
 @TargetApi(Build.VERSION_CODES.HONEYCOMB)
 /* package */ class PasswordTokenLoader extends TokenLoader {
 
+    private static final Logger.Tag LOG = Logger.tag(PasswordTokenLoader.class);
+
     private final String mUsername;
     private final String mPassword;
 
@@ -22,13 +22,13 @@ import com.google.api.client.auth.oauth2.TokenResponse;
     }
 
     @Override
-    public TokenResponse loadInBackground() {
+    public Token loadInBackground() {
         try {
-            final RemoteAuthenticator authenticator = RemoteAuthenticatorHolder.get();
-            return authenticator.newPasswordTokenRequest(mUsername, mPassword).execute();
+            final RemoteAuthenticator authenticator = AuthRuntime.getRemoteAuthenticator();
+            return TokenResponseParser.execute(authenticator.newPasswordTokenRequest(mUsername, mPassword));
         } catch (final Exception e) {
-            Logger.ex(e);
-            return new ErrorResponse(e);
+            LOG.ex(e);
+            return new ErrorToken(e);
         }
     }
 }
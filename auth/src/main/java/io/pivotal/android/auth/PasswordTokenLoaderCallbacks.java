@@ -9,8 +9,6 @@ import android.content.Loader;
 import android.os.Build;
 import android.os.Bundle;
 
-import com.google.api.client.auth.oauth2.TokenResponse;
-
 @TargetApi(Build.VERSION_CODES.HONEYCOMB)
 /* package */ class PasswordTokenLoaderCallbacks extends TokenLoaderCallbacks {
 
@@ -31,7 +29,7 @@ import com.google.api.client.auth.oauth2.TokenResponse;
     }
 
     @Override
-    public final Loader<TokenResponse> onCreateLoader(final int id, final Bundle args) {
+    public final Loader<Token> onCreateLoader(final int id, final Bundle args) {
         final String username = args.getString(Args.USERNAME);
         final String password = args.getString(Args.PASSWORD);
         return new PasswordTokenLoader(getContext(), username, password);
@@ -11,57 +11,83 @@ import java.util.Properties;
 
 /* package */ class Pivotal {
 
-    private static final class Keys {
-        private static final String CLIENT_ID = "pivotal.auth.clientId";
-        private static final String CLIENT_SECRET = "pivotal.auth.clientSecret";
-        private static final String AUTHORIZE_URL = "pivotal.auth.authorizeUrl";
-        private static final String TOKEN_URL = "pivotal.auth.tokenUrl";
-        private static final String REDIRECT_URL = "pivotal.auth.redirectUrl";
-        private static final String ACCOUNT_TYPE = "pivotal.auth.accountType";
-        private static final String TOKEN_TYPE = "pivotal.auth.tokenType";
-        private static final String SCOPES = "pivotal.auth.scopes";
-    }
+    private static final Logger.Tag LOG = Logger.tag(Pivotal.class);
 
+    // generated into the application by pivotal-config.gradle
+    /* package */ static final String GENERATED_CLASS = "io.pivotal.android.auth.PivotalConfig";
+    /* package */ static final String GENERATED_FIELD = "PROPERTIES";
 
     private static final String[] LOCATIONS = {
             "assets/pivotal.properties", "res/raw/pivotal.properties"
     };
 
-    private static Properties sProperties;
+    private static volatile Properties sProperties;
+    private static volatile AuthConfig sConfig;
 
     /* package */ static Properties getProperties() {
-        if (sProperties == null) {
-            sProperties = loadProperties();
+        Properties properties = sProperties;
+        if (properties == null) {
+            properties = loadProperties();
+            sProperties = properties;
         }
-        return sProperties;
+        return properties;
     }
 
     /* package */ static void setProperties(final Properties properties) {
         sProperties = properties;
+        sConfig = null;
+    }
+
+    /* package */ static AuthConfig getConfig() {
+        AuthConfig config = sConfig;
+        if (config == null) {
+            config = new AuthConfig(getProperties());
+            sConfig = config;
+        }
+        return config;
     }
 
     private static Properties loadProperties() {
+        final Properties generated = loadGeneratedProperties(GENERATED_CLASS);
+        if (generated != null) {
+            return generated;
+        }
         for (final String path : LOCATIONS) {
             try {
                 return loadProperties(path);
             } catch (final Exception e) {
-                Logger.ex(e);
+                LOG.ex(e);
             }
         }
         throw new IllegalStateException("Could not find pivotal.properties file.");
     }
 
+    // the generated class lists its keys and values in pairs
+    /* package */ static Properties loadGeneratedProperties(final String className) {
+        try {
+            final String[] values = (String[]) Class.forName(className).getField(GENERATED_FIELD).get(null);
+            final Properties properties = new Properties();
+            for (int i = 0; i + 1 < values.length; i += 2) {
+                properties.setProperty(values[i], values[i + 1]);
+            }
+            return properties;
+        } catch (final ClassNotFoundException e) {
+            return null;
+        } catch (final Exception e) {
+            LOG.ex(e);
+            return null;
+        }
+    }
+
     private static Properties loadProperties(final String path) throws IOException {
-        Logger.e("Loading properties: " + path);
+        LOG.v("Loading properties: %s", path);
         final Properties properties = new Properties();
         properties.load(getInputStream(path));
         return properties;
     }
 
     private static InputStream getInputStream(final String path) {
-        final Thread currentThread = Thread.currentThread();
-        Logger.e("Current Thread: " + currentThread.getName());
-        final ClassLoader loader = currentThread.getContextClassLoader();
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
         return loader.getResourceAsStream(path);
     }
 
@@ -73,35 +99,48 @@ import java.util.Properties;
         return value;
     }
 
+    public static String get(final String key, final String defaultValue) {
+        final String value = getProperties().getProperty(key);
+        return TextUtils.isEmpty(value) ? defaultValue : value;
+    }
+
     public static String getClientId() {
-        return get(Keys.CLIENT_ID);
+        return getConfig().getClientId();
     }
 
     public static String getClientSecret() {
-        return get(Keys.CLIENT_SECRET);
+        return getConfig().getClientSecret();
     }
 
     public static String getAuthorizeUrl() {
-        return get(Keys.AUTHORIZE_URL);
+        return getConfig().getAuthorizeUrl();
     }
 
     public static String getTokenUrl() {
-        return get(Keys.TOKEN_URL);
+        return getConfig().getTokenUrl();
     }
 
     public static String getRedirectUrl() {
-        return get(Keys.REDIRECT_URL);
+        return getConfig().getRedirectUrl();
     }
 
     public static String getAccountType() {
-        return get(Keys.ACCOUNT_TYPE);
+        return getConfig().getAccountType();
     }
 
     public static String getTokenType() {
-        return get(Keys.TOKEN_TYPE);
+        return getConfig().getTokenType();
     }
 
     public static String getScopes() {
-        return get(Keys.SCOPES);
+        return getConfig().getScopes();
+    }
+
+    public static int getConnectTimeout() {
+        return getConfig().getConnectTimeout();
+    }
+
+    public static int getReadTimeout() {
+        return getConfig().getReadTimeout();
     }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.accounts.Account;
+import android.content.Context;
+import android.text.TextUtils;
+
+import com.google.api.client.auth.oauth2.RefreshTokenRequest;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Every refresh in the process goes through here, from the authenticator
+// and from the scheduler, so an account has at most one refresh request
+// in flight. A server that rotates refresh tokens revokes the old one, a
+// second request with it would fail and force a login.
+/* package */ class RefreshGate {
+
+    private static final Logger.Tag LOG = Logger.tag(RefreshGate.class);
+
+    private static final SingleFlight<String, Token> FLIGHTS = new SingleFlight<String, Token>();
+
+    // the last rotation per account, a caller that read the refresh token
+    // just before it was replaced uses the new one instead
+    private static final Map<String, String[]> ROTATIONS = new HashMap<String, String[]>();
+
+    public static Token refresh(final Context context, final Account account, final String refreshToken) throws IOException, InterruptedException {
+        final String key = getKey(account);
+        final String currentToken = getCurrentToken(key, refreshToken);
+        final AtomicBoolean isLeader = new AtomicBoolean();
+
+        try {
+            final Token token = FLIGHTS.execute(key, new Callable<Token>() {
+
+                @Override
+                public Token call() throws IOException {
+                    isLeader.set(true);
+                    return request(context, account, key, currentToken);
+                }
+            });
+
+            if (!isLeader.get()) {
+                LOG.v("Joined refresh in flight.");
+                AuthRuntime.getMetrics().increment(AuthMetrics.Counter.REFRESH_JOINED);
+            }
+            return token;
+
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IOException(String.valueOf(cause));
+            }
+        }
+    }
+
+    /* package */ static void reset() {
+        synchronized (ROTATIONS) {
+            ROTATIONS.clear();
+        }
+    }
+
+    private static Token request(final Context context, final Account account, final String key, final String refreshToken) throws IOException {
+        final AuthMetrics metrics = AuthRuntime.getMetrics();
+        final long start = System.nanoTime();
+        try {
+            final RemoteAuthenticator authenticator = AuthRuntime.getRemoteAuthenticator();
+            final RefreshTokenRequest request = authenticator.newRefreshTokenRequest(refreshToken);
+            final Token token = TokenResponseParser.execute(request);
+
+            // store a rotated refresh token before followers see the result, even
+            // if the caller gave up, unless the account was removed meanwhile
+            final String newRefreshToken = token.getRefreshToken();
+            if (!TextUtils.isEmpty(newRefreshToken) && !newRefreshToken.equals(refreshToken)) {
+                synchronized (ROTATIONS) {
+                    ROTATIONS.put(key, new String[] { refreshToken, newRefreshToken });
+                }
+                final AccountsProxy proxy = AuthRuntime.getAccountsProxy(context);
+                if (proxy.getAccount(account.name) != null) {
+                    proxy.setRefreshToken(account, newRefreshToken);
+                }
+            }
+
+            metrics.increment(AuthMetrics.Counter.REFRESH);
+            metrics.record(AuthMetrics.Stage.REFRESH, System.nanoTime() - start);
+            return token;
+
+        } catch (final IOException e) {
+            metrics.increment(AuthMetrics.Counter.REFRESH_FAILURE);
+            throw e;
+
+        } catch (final RuntimeException e) {
+            metrics.increment(AuthMetrics.Counter.REFRESH_FAILURE);
+            throw e;
+        }
+    }
+
+    private static String getCurrentToken(final String key, final String refreshToken) {
+        synchronized (ROTATIONS) {
+            final String[] rotation = ROTATIONS.get(key);
+            if (rotation != null && rotation[0].equals(refreshToken)) {
+                return rotation[1];
+            }
+            return refreshToken;
+        }
+    }
+
+    // the token type is fixed per configuration, so the account identifies the refresh
+    private static String getKey(final Account account) {
+        return account.type + ":" + account.name;
+    }
+}
@@ -13,12 +13,12 @@ import com.google.api.client.auth.oauth2.RefreshTokenRequest;
 import com.google.api.client.http.BasicAuthentication;
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpExecuteInterceptor;
+import com.google.api.client.http.HttpRequestInitializer;
 import com.google.api.client.http.HttpTransport;
-import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.jackson2.JacksonFactory;
 
-import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 
 public interface RemoteAuthenticator {
@@ -33,65 +33,118 @@ public interface RemoteAuthenticator {
 
     public static class Default implements RemoteAuthenticator {
 
-        private static final HttpTransport TRANSPORT = new NetHttpTransport();
         private static final JsonFactory JSON_FACTORY = new JacksonFactory();
-        private static final GenericUrl TOKEN_URL = new GenericUrl(Pivotal.getTokenUrl());
 
-        private static final HttpExecuteInterceptor INTERCEPTOR = new BasicAuthentication(Pivotal.getClientId(), Pivotal.getClientSecret());
+        private final AuthConfig mConfig;
+        private final HttpTransport mTransport;
+        private final HttpRequestInitializer mInitializer;
+
+        private final String mClientId;
+        private final String mClientSecret;
+        private final GenericUrl mTokenUrl;
+        private final HttpExecuteInterceptor mInterceptor;
+
+        // only needed by some grants, resolved on first use so a
+        // configuration without them can still refresh tokens
+        private volatile DefaultAuthorizationCodeFlow mFlow;
+
+        public Default() {
+            this(AuthHttpTransport.get());
+        }
+
+        public Default(final HttpTransport transport) {
+            this(transport, Pivotal.getConfig());
+        }
+
+        /* package */ Default(final HttpTransport transport, final AuthConfig config) {
+            mConfig = config;
+            mTransport = transport;
+            mInitializer = new AuthHttpTransport.TimeoutInitializer(config.getConnectTimeout(), config.getReadTimeout());
+
+            mClientId = config.getClientId();
+            mClientSecret = config.getClientSecret();
+            mTokenUrl = new GenericUrl(config.getTokenUrl());
+            mInterceptor = new BasicAuthentication(mClientId, mClientSecret);
+        }
+
+        public HttpTransport getTransport() {
+            return mTransport;
+        }
+
+        public HttpRequestInitializer getRequestInitializer() {
+            return mInitializer;
+        }
 
         @Override
         public PasswordTokenRequest newPasswordTokenRequest(final String username, final String password) {
-            final PasswordTokenRequest request = new PasswordTokenRequest(TRANSPORT, JSON_FACTORY, TOKEN_URL, username, password);
-            request.set("client_id", Pivotal.getClientId());
-            request.set("client_secret", Pivotal.getClientSecret());
-            request.setClientAuthentication(INTERCEPTOR);
-            request.setScopes(Arrays.asList(Pivotal.getScopes().split(" ")));
+            final PasswordTokenRequest request = new PasswordTokenRequest(mTransport, JSON_FACTORY, mTokenUrl, username, password);
+            request.setRequestInitializer(mInitializer);
+            request.set("client_id", mClientId);
+            request.set("client_secret", mClientSecret);
+            request.setClientAuthentication(mInterceptor);
+            request.setScopes(getScopes());
             return request;
         }
 
         @Override
         public RefreshTokenRequest newRefreshTokenRequest(final String refreshToken) {
-            final RefreshTokenRequest request = new RefreshTokenRequest(TRANSPORT, JSON_FACTORY, TOKEN_URL, refreshToken);
-            request.set("client_id", Pivotal.getClientId());
-            request.set("client_secret", Pivotal.getClientSecret());
-            request.setClientAuthentication(INTERCEPTOR);
+            final RefreshTokenRequest request = new RefreshTokenRequest(mTransport, JSON_FACTORY, mTokenUrl, refreshToken);
+            request.setRequestInitializer(mInitializer);
+            request.set("client_id", mClientId);
+            request.set("client_secret", mClientSecret);
+            request.setClientAuthentication(mInterceptor);
             return request;
         }
 
         @Override
         public AuthorizationCodeTokenRequest newAuthorizationCodeTokenRequest(final String authorizationCode) {
-            final DefaultAuthorizationCodeFlow flow = new DefaultAuthorizationCodeFlow();
-            final AuthorizationCodeTokenRequest request = flow.newTokenRequest(authorizationCode);
-            request.set("client_id", Pivotal.getClientId());
-            request.set("client_secret", Pivotal.getClientSecret());
+            final AuthorizationCodeTokenRequest request = getFlow().newTokenRequest(authorizationCode);
+            request.set("client_id", mClientId);
+            request.set("client_secret", mClientSecret);
             return request;
         }
 
         @Override
         public AuthorizationCodeRequestUrl newAuthorizationCodeUrl() {
-            final DefaultAuthorizationCodeFlow flow = new DefaultAuthorizationCodeFlow();
-            return flow.newAuthorizationUrl();
+            return getFlow().newAuthorizationUrl();
+        }
+
+        private List<String> getScopes() {
+            return mConfig.getScopeList();
+        }
+
+        private DefaultAuthorizationCodeFlow getFlow() {
+            DefaultAuthorizationCodeFlow flow = mFlow;
+            if (flow == null) {
+                final AuthorizationCodeFlow.Builder builder = new AuthorizationCodeFlow.Builder(DefaultAuthorizationCodeFlow.METHOD, mTransport, JSON_FACTORY, mTokenUrl, mInterceptor, mClientId, mConfig.getAuthorizeUrl());
+                flow = new DefaultAuthorizationCodeFlow(builder.setRequestInitializer(mInitializer).setScopes(getScopes()), mConfig.getRedirectUrl());
+                mFlow = flow;
+            }
+            return flow;
         }
 
         private static final class DefaultAuthorizationCodeFlow extends AuthorizationCodeFlow {
 
             private static final Credential.AccessMethod METHOD = BearerToken.authorizationHeaderAccessMethod();
 
-            public DefaultAuthorizationCodeFlow() {
-                super(new Builder(METHOD, TRANSPORT, JSON_FACTORY, TOKEN_URL, INTERCEPTOR, Pivotal.getClientId(), Pivotal.getAuthorizeUrl()).setScopes(Arrays.asList(Pivotal.getScopes().split(" "))));
+            private final String mRedirectUrl;
+
+            public DefaultAuthorizationCodeFlow(final Builder builder, final String redirectUrl) {
+                super(builder);
+                mRedirectUrl = redirectUrl;
             }
 
             @Override
             public AuthorizationCodeTokenRequest newTokenRequest(final String authorizationCode) {
                 final AuthorizationCodeTokenRequest request = super.newTokenRequest(authorizationCode);
-                request.setRedirectUri(Pivotal.getRedirectUrl());
+                request.setRedirectUri(mRedirectUrl);
                 return request;
             }
 
             @Override
             public AuthorizationCodeRequestUrl newAuthorizationUrl() {
                 final AuthorizationCodeRequestUrl requestUrl = super.newAuthorizationUrl();
-                requestUrl.setRedirectUri(Pivotal.getRedirectUrl());
+                requestUrl.setRedirectUri(mRedirectUrl);
                 requestUrl.setState(UUID.randomUUID().toString());
                 requestUrl.set("access_type", "offline");
                 return requestUrl;
@@ -10,17 +10,39 @@ public class Response {
     public String accountName;
     public AuthError error;
 
+    private final String mClaimsToken;
+    private final TokenClaims mClaims;
+
     public Response(final AuthError error) {
         this.error = error;
+        mClaimsToken = null;
+        mClaims = TokenClaims.EMPTY;
     }
 
     public Response(final String accessToken, final String accountName) {
         this.accessToken = accessToken;
         this.accountName = accountName;
+        mClaimsToken = accessToken;
+        mClaims = TokenUtil.getClaims(accessToken);
+    }
+
+    /* package */ Response(final Response response) {
+        this.accessToken = response.accessToken;
+        this.accountName = response.accountName;
+        this.error = response.error;
+        mClaimsToken = response.accessToken;
+        mClaims = response.getClaims();
+    }
+
+    public TokenClaims getClaims() {
+        // decoded once in the constructor, a token assigned
+        // to the public field afterwards is decoded on each call
+        final String token = this.accessToken;
+        return token == mClaimsToken ? mClaims : TokenUtil.getClaims(token);
     }
 
     public boolean isTokenExpired() {
-        return TextUtils.isEmpty(this.accessToken) || TokenUtil.isExpired(this.accessToken);
+        return TextUtils.isEmpty(this.accessToken) || getClaims().isExpired();
     }
 
     public boolean isSuccess() {
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/* package */ class SingleFlight<K, V> {
+
+    private final Map<K, FutureTask<V>> mFlights = new HashMap<K, FutureTask<V>>();
+
+    public V execute(final K key, final Callable<V> callable) throws InterruptedException, ExecutionException {
+        final FutureTask<V> flight;
+        final boolean isLeader;
+
+        synchronized (mFlights) {
+            final FutureTask<V> existing = mFlights.get(key);
+            if (existing != null) {
+                flight = existing;
+                isLeader = false;
+            } else {
+                flight = new FutureTask<V>(callable);
+                mFlights.put(key, flight);
+                isLeader = true;
+            }
+        }
+
+        if (isLeader) {
+            try {
+                flight.run();
+            } finally {
+                synchronized (mFlights) {
+                    mFlights.remove(key);
+                }
+            }
+        }
+
+        return flight.get();
+    }
+}
@@ -7,10 +7,12 @@ public class Token {
 
     private final String mAccessToken;
     private final String mRefreshToken;
+    private final TokenClaims mClaims;
 
     public Token(final String accessToken, final String refreshToken) {
         mAccessToken = accessToken;
         mRefreshToken = refreshToken;
+        mClaims = TokenUtil.getClaims(accessToken);
     }
 
     public String getAccessToken() {
@@ -21,7 +23,11 @@ public class Token {
         return mRefreshToken;
     }
 
+    public TokenClaims getClaims() {
+        return mClaims;
+    }
+
     public boolean isExpired() {
-        return TokenUtil.isExpired(mAccessToken);
+        return mClaims.isExpired();
     }
 }
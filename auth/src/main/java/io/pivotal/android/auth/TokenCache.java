@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.accounts.Account;
+import android.text.TextUtils;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* package */ class TokenCache {
+
+    // an account can hold tokens of several types, so both make up the key
+    private final Map<Key, Entry> mEntries = new ConcurrentHashMap<Key, Entry>();
+
+    public String get(final Account account, final String tokenType) {
+        if (account == null) {
+            return null;
+        }
+
+        final Entry entry = mEntries.get(new Key(account, tokenType));
+        if (entry != null && !TokenUtil.isExpired(entry.expiration)) {
+            return entry.accessToken;
+        } else {
+            return null;
+        }
+    }
+
+    public void put(final Account account, final String tokenType, final String accessToken) {
+        if (account == null) {
+            return;
+        }
+
+        final Key key = new Key(account, tokenType);
+
+        final long expiration = TextUtils.isEmpty(accessToken) ? TokenUtil.UNKNOWN_EXPIRATION : TokenUtil.getExpiration(accessToken);
+
+        // tokens without a readable expiry are never cached
+        if (expiration != TokenUtil.UNKNOWN_EXPIRATION) {
+            mEntries.put(key, new Entry(accessToken, expiration));
+        } else {
+            mEntries.remove(key);
+        }
+    }
+
+    public void remove(final Account account) {
+        if (account == null) {
+            return;
+        }
+
+        final Iterator<Key> iterator = mEntries.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().account.equals(account)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public void invalidate(final String accessToken) {
+        final Iterator<Entry> iterator = mEntries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().accessToken.equals(accessToken)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        mEntries.clear();
+    }
+
+    private static final class Key {
+        public final Account account;
+        public final String tokenType;
+
+        public Key(final Account account, final String tokenType) {
+            this.account = account;
+            this.tokenType = tokenType;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return account.equals(other.account) && TextUtils.equals(tokenType, other.tokenType);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * account.hashCode() + (tokenType != null ? tokenType.hashCode() : 0);
+        }
+    }
+
+    private static final class Entry {
+        public final String accessToken;
+        public final long expiration;
+
+        public Entry(final String accessToken, final long expiration) {
+            this.accessToken = accessToken;
+            this.expiration = expiration;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import java.util.Collections;
+import java.util.List;
+
+public final class TokenClaims {
+
+    /* package */ static final TokenClaims EMPTY = new TokenClaims(TokenUtil.UNKNOWN_EXPIRATION, 0, 0, null, Collections.<String>emptyList());
+
+    private final long mExpiration;
+    private final long mIssuedAt;
+    private final long mNotBefore;
+    private final String mSubject;
+    private final List<String> mScopes;
+
+    /* package */ TokenClaims(final long expiration, final long issuedAt, final long notBefore, final String subject, final List<String> scopes) {
+        mExpiration = expiration;
+        mIssuedAt = issuedAt;
+        mNotBefore = notBefore;
+        mSubject = subject;
+        mScopes = Collections.unmodifiableList(scopes);
+    }
+
+    public long getExpiration() {
+        return mExpiration;
+    }
+
+    public long getIssuedAt() {
+        return mIssuedAt;
+    }
+
+    public long getNotBefore() {
+        return mNotBefore;
+    }
+
+    public String getSubject() {
+        return mSubject;
+    }
+
+    public List<String> getScopes() {
+        return mScopes;
+    }
+
+    public boolean hasExpiration() {
+        return mExpiration != TokenUtil.UNKNOWN_EXPIRATION;
+    }
+
+    public boolean isExpired() {
+        return hasExpiration() && TokenUtil.isExpired(mExpiration);
+    }
+}
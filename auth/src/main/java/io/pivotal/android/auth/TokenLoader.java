@@ -8,10 +8,8 @@ import android.content.AsyncTaskLoader;
 import android.content.Context;
 import android.os.Build;
 
-import com.google.api.client.auth.oauth2.TokenResponse;
-
 @TargetApi(Build.VERSION_CODES.HONEYCOMB)
-/* package */ abstract class TokenLoader extends AsyncTaskLoader<TokenResponse> {
+/* package */ abstract class TokenLoader extends AsyncTaskLoader<Token> {
 
     public TokenLoader(final Context context) {
         super(context);
@@ -22,11 +20,18 @@ import com.google.api.client.auth.oauth2.TokenResponse;
         forceLoad();
     }
 
-    /* package */ static final class ErrorResponse extends TokenResponse {
+    /* package */ static final class ErrorToken extends Token {
+
+        private final String mError;
 
-        public ErrorResponse(final Exception e) {
+        public ErrorToken(final Exception e) {
+            super(null, null);
             final String message = e.getLocalizedMessage();
-            put("error", message != null ? message : "Unknown error.");
+            mError = message != null ? message : "Unknown error.";
+        }
+
+        public String getError() {
+            return mError;
         }
     }
 
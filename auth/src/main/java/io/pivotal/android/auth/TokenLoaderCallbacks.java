@@ -9,12 +9,8 @@ import android.content.Context;
 import android.content.Loader;
 import android.os.Build;
 
-import com.google.api.client.auth.oauth2.TokenResponse;
-
 @TargetApi(Build.VERSION_CODES.HONEYCOMB)
-/* package */ abstract class TokenLoaderCallbacks implements LoaderManager.LoaderCallbacks<TokenResponse> {
-
-    private static final String ERROR = "error";
+/* package */ abstract class TokenLoaderCallbacks implements LoaderManager.LoaderCallbacks<Token> {
 
     private final Context mContext;
     private final TokenLoader.Listener mListener;
@@ -29,18 +25,17 @@ import com.google.api.client.auth.oauth2.TokenResponse;
     }
 
     @Override
-    public final void onLoaderReset(final Loader<TokenResponse> loader) {
+    public final void onLoaderReset(final Loader<Token> loader) {
         // do nothing
     }
 
     @Override
-    public final void onLoadFinished(final Loader<TokenResponse> loader, final TokenResponse data) {
-        if (data.containsKey(ERROR)) {
-            final String error = data.get(ERROR).toString();
+    public final void onLoadFinished(final Loader<Token> loader, final Token data) {
+        if (data instanceof TokenLoader.ErrorToken) {
+            final String error = ((TokenLoader.ErrorToken) data).getError();
             mListener.onAuthorizationFailed(new Error(error));
         } else {
-            final Token token = new Token(data.getAccessToken(), data.getRefreshToken());
-            mListener.onAuthorizationComplete(token);
+            mListener.onAuthorizationComplete(data);
         }
     }
 }
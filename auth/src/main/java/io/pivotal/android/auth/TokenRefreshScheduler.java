@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.accounts.Account;
+import android.content.Context;
+import android.text.TextUtils;
+
+import com.google.api.client.http.HttpResponseException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/* package */ class TokenRefreshScheduler {
+
+    private static final Logger.Tag LOG = Logger.tag(TokenRefreshScheduler.class);
+
+    /* package */ static final long REFRESH_AHEAD = 60; // refresh a minute before the token expires
+    /* package */ static final long MIN_BACKOFF = 5;
+    /* package */ static final long MAX_BACKOFF = 300;
+
+    static TokenRefreshScheduler sTokenRefreshScheduler;
+
+    private final Context mContext;
+    private final Map<Account, RefreshTask> mTasks = new HashMap<Account, RefreshTask>();
+    private ScheduledExecutorService mExecutor;
+    private volatile boolean mEnabled;
+
+    /* package */ TokenRefreshScheduler(final Context context) {
+        final Context applicationContext = context.getApplicationContext();
+        mContext = applicationContext != null ? applicationContext : context;
+    }
+
+    public static synchronized TokenRefreshScheduler getInstance(final Context context) {
+        if (sTokenRefreshScheduler == null) {
+            sTokenRefreshScheduler = new TokenRefreshScheduler(context);
+        }
+
+        return sTokenRefreshScheduler;
+    }
+
+    public void setEnabled(final boolean enabled) {
+        mEnabled = enabled;
+
+        if (!enabled) {
+            cancelAll();
+        }
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    public void schedule(final Account account, final String accessToken) {
+        if (!mEnabled || account == null || TextUtils.isEmpty(accessToken)) {
+            return;
+        }
+
+        final long expiration = TokenUtil.getExpiration(accessToken);
+        if (expiration == TokenUtil.UNKNOWN_EXPIRATION) {
+            return;
+        }
+
+        final long delay = Math.max(0, expiration - REFRESH_AHEAD - System.currentTimeMillis() / 1000);
+
+        synchronized (mTasks) {
+            final RefreshTask current = mTasks.get(account);
+            if (current != null && accessToken.equals(current.mAccessToken)) {
+                return;
+            }
+            schedule(new RefreshTask(account, accessToken, 0), delay);
+        }
+
+        if (Logger.isDebugEnabled()) {
+            LOG.v("Token refresh scheduled in %s seconds.", delay);
+        }
+    }
+
+    public void cancel(final Account account) {
+        synchronized (mTasks) {
+            final RefreshTask task = mTasks.remove(account);
+            if (task != null) {
+                task.cancel();
+            }
+        }
+    }
+
+    // an invalidated token will not be stored again, so its refresh is dropped
+    public void cancel(final String accessToken) {
+        if (accessToken == null) {
+            return;
+        }
+
+        synchronized (mTasks) {
+            final Iterator<RefreshTask> iterator = mTasks.values().iterator();
+            while (iterator.hasNext()) {
+                final RefreshTask task = iterator.next();
+                if (accessToken.equals(task.mAccessToken)) {
+                    iterator.remove();
+                    task.cancel();
+                }
+            }
+        }
+    }
+
+    public void cancelAll() {
+        synchronized (mTasks) {
+            for (final RefreshTask task : mTasks.values()) {
+                task.cancel();
+            }
+            mTasks.clear();
+        }
+    }
+
+    /* package */ boolean isScheduled(final Account account) {
+        synchronized (mTasks) {
+            return mTasks.containsKey(account);
+        }
+    }
+
+    /* package */ long getBackoff(final Account account) {
+        synchronized (mTasks) {
+            final RefreshTask task = mTasks.get(account);
+            return task != null ? task.mBackoff : 0;
+        }
+    }
+
+    private void schedule(final RefreshTask task, final long delay) {
+        final RefreshTask previous = mTasks.put(task.mAccount, task);
+        if (previous != null) {
+            previous.cancel();
+        }
+        task.setFuture(getExecutor().schedule(task, delay, TimeUnit.SECONDS));
+    }
+
+    private ScheduledExecutorService getExecutor() {
+        if (mExecutor == null) {
+            mExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "TokenRefreshScheduler");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return mExecutor;
+    }
+
+    private void retry(final RefreshTask task) {
+        final long backoff = task.mBackoff == 0 ? MIN_BACKOFF : Math.min(task.mBackoff * 2, MAX_BACKOFF);
+
+        synchronized (mTasks) {
+            if (mTasks.get(task.mAccount) == task) {
+                schedule(new RefreshTask(task.mAccount, task.mAccessToken, backoff), backoff);
+            }
+        }
+
+        if (Logger.isDebugEnabled()) {
+            LOG.v("Token refresh retry in %s seconds.", backoff);
+        }
+    }
+
+    private boolean finish(final RefreshTask task) {
+        synchronized (mTasks) {
+            if (mTasks.get(task.mAccount) == task) {
+                mTasks.remove(task.mAccount);
+                return true;
+            } else {
+                return false;
+            }
+        }
+    }
+
+    private final class RefreshTask implements Runnable {
+
+        private final Account mAccount;
+        private final String mAccessToken;
+        private final long mBackoff;
+        private volatile ScheduledFuture<?> mFuture;
+        private volatile boolean mCancelled;
+
+        public RefreshTask(final Account account, final String accessToken, final long backoff) {
+            mAccount = account;
+            mAccessToken = accessToken;
+            mBackoff = backoff;
+        }
+
+        public void cancel() {
+            mCancelled = true;
+            final ScheduledFuture<?> future = mFuture;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        // a cancel that ran before the future was set is applied here
+        public void setFuture(final ScheduledFuture<?> future) {
+            mFuture = future;
+            if (mCancelled) {
+                future.cancel(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (mCancelled) {
+                return;
+            }
+
+            final AccountsProxy proxy = AuthRuntime.getAccountsProxy(mContext);
+            final String refreshToken = proxy.getRefreshToken(mAccount);
+
+            if (TextUtils.isEmpty(refreshToken)) {
+                finish(this);
+                return;
+            }
+
+            try {
+                // shares a request with the authenticator, the gate stores a rotated refresh token
+                final Token token = RefreshGate.refresh(mContext, mAccount, refreshToken);
+                final String accessToken = token.getAccessToken();
+
+                LOG.v("Token refreshed ahead of expiry.");
+
+                // storing the token schedules the next refresh through the proxy
+                if (finish(this) && !mCancelled) {
+                    proxy.setAccessToken(mAccount, accessToken);
+                }
+
+            } catch (final HttpResponseException e) {
+                LOG.ex(e);
+
+                if (e.getStatusCode() == 401 || e.getStatusCode() == 400) {
+                    finish(this);
+                } else {
+                    retry(this);
+                }
+
+            } catch (final IOException e) {
+                LOG.ex(e);
+
+                retry(this);
+
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                finish(this);
+
+            } catch (final Exception e) {
+                LOG.ex(e);
+
+                finish(this);
+            }
+        }
+    }
+}
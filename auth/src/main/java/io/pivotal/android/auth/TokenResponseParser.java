@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.api.client.auth.oauth2.TokenRequest;
+import com.google.api.client.http.HttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/* package */ class TokenResponseParser {
+
+    private static final Logger.Tag LOG = Logger.tag(TokenResponseParser.class);
+
+    private static final String ACCESS_TOKEN = "access_token";
+    private static final String REFRESH_TOKEN = "refresh_token";
+
+    private static final byte[] WARM_UP_RESPONSE = "{\"access_token\":\"\",\"refresh_token\":\"\"}".getBytes();
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private static final RequestExecutor DEFAULT_EXECUTOR = new RequestExecutor() {
+
+        @Override
+        public HttpResponse execute(final TokenRequest request) throws IOException {
+            return request.executeUnparsed();
+        }
+    };
+
+    private static volatile RequestExecutor sExecutor = DEFAULT_EXECUTOR;
+
+    // executeUnparsed is final, tests replace the executor to fake the round trip
+    /* package */ static void setExecutor(final RequestExecutor executor) {
+        sExecutor = executor != null ? executor : DEFAULT_EXECUTOR;
+    }
+
+    // error responses are still parsed by executeUnparsed, which throws a TokenResponseException
+    public static Token execute(final TokenRequest request) throws IOException {
+        final AuthMetrics metrics = AuthRuntime.getMetrics();
+        final long start = System.nanoTime();
+        try {
+            final HttpResponse response = sExecutor.execute(request);
+            try {
+                return parse(response.getContent());
+            } finally {
+                response.disconnect();
+                metrics.record(AuthMetrics.Stage.HTTP_REQUEST, System.nanoTime() - start);
+            }
+        } catch (final IOException e) {
+            metrics.increment(AuthMetrics.Counter.HTTP_FAILURE);
+            throw e;
+        }
+    }
+
+    // loads the parser classes ahead of the first real response
+    public static void warmUp() {
+        try {
+            parse(new ByteArrayInputStream(WARM_UP_RESPONSE));
+        } catch (final IOException e) {
+            LOG.ex(e);
+        }
+    }
+
+    public static Token parse(final InputStream stream) throws IOException {
+        final JsonParser parser = FACTORY.createParser(stream);
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Token response is not a JSON object.");
+            }
+
+            String accessToken = null;
+            String refreshToken = null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+
+                if (ACCESS_TOKEN.equals(name) && value == JsonToken.VALUE_STRING) {
+                    accessToken = parser.getText();
+                } else if (REFRESH_TOKEN.equals(name) && value == JsonToken.VALUE_STRING) {
+                    refreshToken = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            if (accessToken == null) {
+                throw new IOException("Token response has no access_token.");
+            }
+
+            return new Token(accessToken, refreshToken);
+
+        } finally {
+            parser.close();
+        }
+    }
+
+    /* package */ interface RequestExecutor {
+        public HttpResponse execute(TokenRequest request) throws IOException;
+    }
+}
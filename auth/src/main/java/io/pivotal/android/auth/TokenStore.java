@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2014 Pivotal Software, Inc. All rights reserved.
+ */
+package io.pivotal.android.auth;
+
+import android.accounts.Account;
+import android.accounts.AccountManager;
+import android.content.Context;
+
+public interface TokenStore {
+
+    public String getRefreshToken(Account account);
+
+    public void setRefreshToken(Account account, String refreshToken);
+
+    public String getAccessToken(Account account);
+
+    public void setAccessToken(Account account, String accessToken);
+
+    public void invalidateAccessToken(String accountType, String accessToken);
+
+    public void remove(Account account);
+
+    public static class Default implements TokenStore {
+
+        private final AccountManager mManager;
+        private final AuthConfig mConfig;
+
+        public Default(final Context context) {
+            mManager = AccountManager.get(context);
+            mConfig = Pivotal.getConfig();
+        }
+
+        @Override
+        public String getRefreshToken(final Account account) {
+            return mManager.getPassword(account);
+        }
+
+        @Override
+        public void setRefreshToken(final Account account, final String refreshToken) {
+            mManager.setPassword(account, refreshToken);
+        }
+
+        @Override
+        public String getAccessToken(final Account account) {
+            return mManager.peekAuthToken(account, mConfig.getTokenType());
+        }
+
+        @Override
+        public void setAccessToken(final Account account, final String accessToken) {
+            mManager.setAuthToken(account, mConfig.getTokenType(), accessToken);
+        }
+
+        @Override
+        public void invalidateAccessToken(final String accountType, final String accessToken) {
+            mManager.invalidateAuthToken(accountType, accessToken);
+        }
+
+        @Override
+        public void remove(final Account account) {
+            // the account manager drops an account's tokens along with it
+        }
+    }
+}
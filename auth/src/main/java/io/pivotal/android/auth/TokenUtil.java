@@ -3,33 +3,104 @@
  */
 package io.pivotal.android.auth;
 
+import android.text.TextUtils;
 import android.util.Base64;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 /* package */ class TokenUtil {
 
+    private static final Logger.Tag LOG = Logger.tag(TokenUtil.class);
+
+    /* package */ static final long UNKNOWN_EXPIRATION = 0;
+
+    private static final long EXPIRATION_THRESHOLD = 30; // expired if valid for less than 30 seconds
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     public static boolean isExpired(final String token) {
+        final long expiration = getExpiration(token);
+        if (expiration != UNKNOWN_EXPIRATION) {
+            final long timeDifference = getTimeDifference(expiration);
+            if (Logger.isDebugEnabled()) {
+                LOG.v("Token expires in %s minutes", timeDifference / 60);
+            }
+            return timeDifference < EXPIRATION_THRESHOLD;
+        } else {
+            return false;
+        }
+    }
+
+    public static boolean isExpired(final long expiration) {
+        return getTimeDifference(expiration) < EXPIRATION_THRESHOLD;
+    }
+
+    public static long getExpiration(final String token) {
+        if (TextUtils.isEmpty(token)) {
+            return UNKNOWN_EXPIRATION;
+        }
+        final long start = System.nanoTime();
+        long expiration = JwtExpirationParser.parse(token);
+        if (expiration == JwtExpirationParser.MALFORMED) {
+            expiration = getClaims(token).getExpiration();
+        }
+        AuthRuntime.getMetrics().record(AuthMetrics.Stage.JWT_DECODE, System.nanoTime() - start);
+        return expiration;
+    }
+
+    public static TokenClaims getClaims(final String token) {
+        if (TextUtils.isEmpty(token)) {
+            return TokenClaims.EMPTY;
+        }
         try {
             final DecodedToken decoded = getDecodedToken(token);
-            final long timeDifference = getTimeDifference(decoded.exp);
-            Logger.v("Token expires in " + (timeDifference / 60) + " minutes");
-            return timeDifference < 30; // expired if valid for less than 30 seconds
+            final long expiration = parseTime(decoded.exp);
+            final long issuedAt = parseTime(decoded.iat);
+            final long notBefore = parseTime(decoded.nbf);
+            return new TokenClaims(expiration, issuedAt, notBefore, decoded.sub, parseScopes(decoded.scope));
         } catch (final Exception e) {
-            Logger.ex(e);
-            return false;
+            LOG.ex(e);
+            return TokenClaims.EMPTY;
         }
     }
 
     private static DecodedToken getDecodedToken(final String token) throws Exception {
-        final String[] parts = token.split("\\.");
-        final byte[] bytes = Base64.decode(parts[1], Base64.DEFAULT);
-        return new ObjectMapper().readValue(bytes, DecodedToken.class);
+        final int start = token.indexOf('.') + 1;
+        if (start == 0) {
+            throw new IllegalArgumentException("Token has no payload segment.");
+        }
+        final int end = token.indexOf('.', start);
+        final String payload = end < 0 ? token.substring(start) : token.substring(start, end);
+        final byte[] bytes = Base64.decode(payload, Base64.DEFAULT);
+        return MAPPER.readValue(bytes, DecodedToken.class);
+    }
+
+    private static long parseTime(final String time) {
+        return TextUtils.isEmpty(time) ? UNKNOWN_EXPIRATION : Long.parseLong(time);
+    }
+
+    private static List<String> parseScopes(final Object scope) {
+        final List<String> scopes = new ArrayList<String>();
+        if (scope instanceof Collection) {
+            for (final Object item : (Collection<?>) scope) {
+                scopes.add(String.valueOf(item));
+            }
+        } else if (scope instanceof String) {
+            for (final String item : ((String) scope).split(" ")) {
+                if (item.length() > 0) {
+                    scopes.add(item);
+                }
+            }
+        }
+        return scopes;
     }
 
-    private static long getTimeDifference(final String expiration) {
-        final long expirationTime = Long.parseLong(expiration);
+    private static long getTimeDifference(final long expirationTime) {
         final long currentTime = System.currentTimeMillis() / 1000;
         return expirationTime - currentTime;
     }
@@ -37,5 +108,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
     @JsonIgnoreProperties(ignoreUnknown = true)
     private static final class DecodedToken {
         public String exp;
+        public String iat;
+        public String nbf;
+        public String sub;
+        public Object scope;
     }
 }